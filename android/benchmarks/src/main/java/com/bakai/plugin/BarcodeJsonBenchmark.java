@@ -0,0 +1,57 @@
+package com.bakai.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Serializing one scan event the way {@code BarcodeMapper} does, including the string the bridge sends. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class BarcodeJsonBenchmark {
+
+    // payload length: short SKU vs a dense GS1 / document code
+    @Param({ "24", "600" })
+    public int payloadLength;
+
+    private String payload;
+    private byte[] rawBytes;
+    private final int[] corners = { 412, 310, 868, 318, 860, 771, 404, 764 };
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder(payloadLength);
+        for (int i = 0; i < payloadLength; i++) {
+            sb.append((char) ('0' + (i % 43)));
+        }
+        payload = sb.toString();
+        rawBytes = payload.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public String scanEvent() {
+        JSONObject barcode = new JSONObject();
+        BarcodeJson.putCore(barcode, payload, payload, "QR_CODE", "TEXT", rawBytes, corners);
+
+        JSONArray barcodes = new JSONArray();
+        barcodes.put(barcode);
+        JSONObject event = new JSONObject();
+        event.put("barcodes", barcodes);
+        return event.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.bakai.plugin;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.imageio.ImageIO;
+
+/** Loads the reference images under {@code src/main/resources/fixtures} as ARGB pixel arrays. */
+final class BenchmarkFixtures {
+
+    static final class Image {
+
+        final int width;
+        final int height;
+        final int[] argb;
+
+        Image(int width, int height, int[] argb) {
+            this.width = width;
+            this.height = height;
+            this.argb = argb;
+        }
+    }
+
+    private BenchmarkFixtures() {}
+
+    static Image load(String name) {
+        String path = "/fixtures/" + name + ".png";
+        try (InputStream input = BenchmarkFixtures.class.getResourceAsStream(path)) {
+            if (input == null) throw new IllegalArgumentException("Missing fixture " + path);
+
+            BufferedImage image = ImageIO.read(input);
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+            return new Image(width, height, argb);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read fixture " + path, e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi-frame fusion on a noisy fixture at 720p analysis size.
+ * {@link #push} is paid on every camera frame during a miss streak, {@link #fuse} once per decoded frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class FrameFusionBenchmark {
+
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+
+    @Param({ "qr-label-1600x1200" })
+    public String fixture;
+
+    private final LumaFrame[] frames = new LumaFrame[FrameFusion.DEFAULT_WINDOW];
+    private FrameFusion fusion;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.Image image = BenchmarkFixtures.load(fixture);
+        byte[] luma = new byte[image.argb.length];
+        ImageKernels.lumaPlane(image.argb, luma, luma.length);
+
+        // the same crop shaken by a few pixels per frame, with sensor noise
+        Random random = new Random(42);
+        for (int i = 0; i < frames.length; i++) {
+            final int ox = 40 + i * 3;
+            final int oy = 40 + i * 2;
+            byte[] plane = new byte[WIDTH * HEIGHT];
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    final int v = (luma[(y + oy) * image.width + x + ox] & 0xFF) + (int) (random.nextGaussian() * 10);
+                    plane[y * WIDTH + x] = (byte) Math.max(0, Math.min(255, v));
+                }
+            }
+            frames[i] = new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, WIDTH, 0, i * 33L, null);
+        }
+
+        fusion = new FrameFusion(FrameFusion.DEFAULT_WINDOW);
+        for (LumaFrame frame : frames) fusion.push(frame);
+    }
+
+    @Benchmark
+    public int push() {
+        fusion.push(frames[next]);
+        next = (next + 1) % frames.length;
+        return fusion.size();
+    }
+
+    @Benchmark
+    public LumaFrame fuse() {
+        return fusion.fuse(0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.bakai.plugin;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Pixel kernels used for the {@code readBarcodesFromImage} fallback candidates.
+ * In-place kernels run on a fresh copy of the fixture each call; {@link #copyOnly} measures that copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class ImageKernelsBenchmark {
+
+    @Param({ "qr-clean-1200", "qr-label-1600x1200" })
+    public String fixture;
+
+    private BenchmarkFixtures.Image image;
+    private int[] work;
+    private int[] luma;
+
+    @Setup
+    public void setUp() {
+        image = BenchmarkFixtures.load(fixture);
+        work = new int[image.argb.length];
+        luma = new int[image.argb.length];
+    }
+
+    @Benchmark
+    public int[] copyOnly() {
+        System.arraycopy(image.argb, 0, work, 0, work.length);
+        return work;
+    }
+
+    @Benchmark
+    public long luminance() {
+        return ImageKernels.luminance(image.argb, luma, luma.length);
+    }
+
+    @Benchmark
+    public int[] binarize() {
+        System.arraycopy(image.argb, 0, work, 0, work.length);
+        ImageKernels.binarize(work, work.length);
+        return work;
+    }
+
+    @Benchmark
+    public int[] highContrast() {
+        System.arraycopy(image.argb, 0, work, 0, work.length);
+        ImageKernels.highContrast(work, work.length);
+        return work;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void cropAndScaleMath(Blackhole bh) {
+        float scale = ImageKernels.decodeScale(image.width, image.height, 1200, 2200);
+        bh.consume(ImageKernels.scaledSide(image.width, scale));
+        bh.consume(ImageKernels.scaledSide(image.height, scale));
+        bh.consume(ImageKernels.centeredSquare(image.width, image.height, 0.88f));
+    }
+}
@@ -0,0 +1,73 @@
+package com.bakai.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Per-frame payload filtering and de-dup, with a realistic mix of empty candidates and repeats. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class PayloadsBenchmark {
+
+    static final class Result {
+
+        final String raw;
+        final String display;
+
+        Result(String raw, String display) {
+            this.raw = raw;
+            this.display = display;
+        }
+    }
+
+    static final Payloads.Accessor<Result> ACCESSOR = new Payloads.Accessor<Result>() {
+        @Override
+        public String rawValue(Result item) {
+            return item.raw;
+        }
+
+        @Override
+        public String displayValue(Result item) {
+            return item.display;
+        }
+    };
+
+    // results in one frame: a single code, or a shelf of labels
+    @Param({ "1", "8" })
+    public int size;
+
+    private List<Result> frame;
+
+    @Setup
+    public void setUp() {
+        frame = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (i % 4 == 3) {
+                frame.add(new Result(null, " "));
+            } else {
+                String payload = "0109501101020917" + (i / 2);
+                frame.add(new Result(payload, payload));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Result> filterDecoded() {
+        return Payloads.filterDecoded(frame, ACCESSOR);
+    }
+}
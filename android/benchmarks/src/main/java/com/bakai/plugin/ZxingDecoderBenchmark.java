@@ -0,0 +1,56 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ZXing decoder backend on the fixture images as Y planes.
+ * {@link #live} uses the settings of the camera path, {@link #still} those of {@code readBarcodesFromImage}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class ZxingDecoderBenchmark {
+
+    @Param({ "qr-clean-1200", "qr-label-1600x1200" })
+    public String fixture;
+
+    private LumaFrame frame;
+    private ZxingDecoderBackend liveBackend;
+    private ZxingDecoderBackend stillBackend;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.Image image = BenchmarkFixtures.load(fixture);
+        byte[] plane = new byte[image.argb.length];
+        ImageKernels.lumaPlane(image.argb, plane, plane.length);
+        frame = new LumaFrame(ByteBuffer.wrap(plane), image.width, image.height, image.width, 0, 0L, null);
+
+        liveBackend = new ZxingDecoderBackend(false);
+        stillBackend = new ZxingDecoderBackend(true);
+    }
+
+    @Benchmark
+    public DecodeResult<DecodedBarcode> live() {
+        return liveBackend.decode(frame);
+    }
+
+    @Benchmark
+    public DecodeResult<DecodedBarcode> still() {
+        return stillBackend.decode(frame);
+    }
+}
@@ -0,0 +1,62 @@
+package com.bakai.plugin;
+
+/**
+ * Closed-loop auto-zoom driven by the detected barcode's size in the frame.
+ * Zoom scales the code linearly, so one proportional step lands close to the target fill; a clipped code is zoomed
+ * out instead. Remembers the zoom it started from so it can be restored after a decode.
+ */
+final class AutoZoomController {
+
+    // preferred share of the frame for the code's longer side
+    static final float TARGET_FILL = 0.45f;
+    // relative changes smaller than this are not worth a zoom step
+    private static final float DEADBAND = 0.2f;
+    private static final float CLIPPED_ZOOM_OUT = 0.6f;
+    private static final float EDGE_MARGIN = 0.02f;
+
+    private float baseZoom = Float.NaN;
+
+    /**
+     * Computes the zoom for a candidate of the given fill (0..1 of the frame).
+     * Returns {@link Float#NaN} if the current zoom is close enough.
+     */
+    synchronized float onCandidate(float fill, boolean clipped, float current, float minZoom, float maxZoom) {
+        if (current <= 0f) return Float.NaN;
+
+        float target;
+        if (clipped) {
+            target = current * CLIPPED_ZOOM_OUT;
+        } else if (fill > 0f) {
+            target = current * (TARGET_FILL / fill);
+        } else {
+            return Float.NaN;
+        }
+
+        target = FrameGeometry.clamp(target, minZoom, maxZoom);
+        if (Math.abs(target - current) / current < DEADBAND) return Float.NaN;
+
+        if (Float.isNaN(baseZoom)) baseZoom = current;
+        return target;
+    }
+
+    /** The blind step fallback is about to move the zoom away from {@code current}. */
+    synchronized void onStep(float current) {
+        if (Float.isNaN(baseZoom)) baseZoom = current;
+    }
+
+    /** Returns the zoom to restore after a decode, or {@link Float#NaN} if auto-zoom never moved it. */
+    synchronized float onDecoded() {
+        final float base = baseZoom;
+        baseZoom = Float.NaN;
+        return base;
+    }
+
+    synchronized void reset() {
+        baseZoom = Float.NaN;
+    }
+
+    /** True if a normalized box touches the frame edge, i.e. the code is probably cut off. */
+    static boolean isClipped(float left, float top, float right, float bottom) {
+        return left <= EDGE_MARGIN || top <= EDGE_MARGIN || right >= (1f - EDGE_MARGIN) || bottom >= (1f - EDGE_MARGIN);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bakai.plugin;
+
+/** Axis-aligned bounding box of a detected barcode in upright frame pixels. */
+final class BarcodeBox {
+
+    final int left;
+    final int top;
+    final int right;
+    final int bottom;
+
+    BarcodeBox(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    int width() {
+        return right - left;
+    }
+
+    int height() {
+        return bottom - top;
+    }
+
+    boolean isEmpty() {
+        return right <= left || bottom <= top;
+    }
+
+    long area() {
+        return isEmpty() ? 0L : (long) width() * height();
+    }
+
+    float centerX() {
+        return (left + right) * 0.5f;
+    }
+
+    float centerY() {
+        return (top + bottom) * 0.5f;
+    }
+
+    BarcodeBox offset(int dx, int dy) {
+        return dx == 0 && dy == 0 ? this : new BarcodeBox(left + dx, top + dy, right + dx, bottom + dy);
+    }
+
+    /** Smallest box holding both; either side may be null. */
+    static BarcodeBox union(BarcodeBox a, BarcodeBox b) {
+        if (a == null || a.isEmpty()) return b;
+        if (b == null || b.isEmpty()) return a;
+        return new BarcodeBox(Math.min(a.left, b.left), Math.min(a.top, b.top), Math.max(a.right, b.right), Math.max(a.bottom, b.bottom));
+    }
+}
@@ -0,0 +1,66 @@
+package com.bakai.plugin;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The decoder-independent part of barcode serialization: the fields every result has.
+ * Only org.json types, so it runs the same on a desktop JVM.
+ */
+final class BarcodeJson {
+
+    private BarcodeJson() {}
+
+    /**
+     * Writes payload, format and geometry. {@code corners} holds x/y pairs and is written only if present;
+     * raw bytes are written as unsigned ints.
+     */
+    static void putCore(
+        JSONObject o,
+        String displayValue,
+        String rawValue,
+        String format,
+        String valueType,
+        byte[] rawBytes,
+        int[] corners
+    ) {
+        try {
+            o.put("displayValue", safe(displayValue));
+            o.put("rawValue", safe(rawValue));
+            o.put("format", format);
+            o.put("valueType", valueType);
+
+            if (rawBytes != null && rawBytes.length > 0) {
+                o.put("bytes", bytes(rawBytes));
+            }
+
+            if (corners != null && corners.length >= 2) {
+                o.put("cornerPoints", points(corners));
+            }
+        } catch (JSONException ignored) {}
+    }
+
+    static JSONArray bytes(byte[] rawBytes) {
+        JSONArray bytes = new JSONArray();
+        for (byte b : rawBytes) {
+            bytes.put(((int) b) & 0xff);
+        }
+        return bytes;
+    }
+
+    static JSONArray points(int[] xy) {
+        JSONArray points = new JSONArray();
+        for (int i = 0; i + 1 < xy.length; i += 2) {
+            JSONArray point = new JSONArray();
+            point.put(xy[i]);
+            point.put(xy[i + 1]);
+            points.put(point);
+        }
+        return points;
+    }
+
+    static String safe(String v) {
+        return v == null ? "" : v;
+    }
+}
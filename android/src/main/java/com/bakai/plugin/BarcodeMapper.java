@@ -1,6 +1,7 @@
 package com.bakai.plugin;
 
 import android.graphics.Point;
+import android.graphics.Rect;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.google.mlkit.vision.barcode.common.Barcode;
@@ -8,6 +9,18 @@ import java.util.List;
 
 public final class BarcodeMapper {
 
+    static final Payloads.Accessor<Barcode> PAYLOAD = new Payloads.Accessor<Barcode>() {
+        @Override
+        public String rawValue(Barcode item) {
+            return item.getRawValue();
+        }
+
+        @Override
+        public String displayValue(Barcode item) {
+            return item.getDisplayValue();
+        }
+    };
+
     private BarcodeMapper() {}
 
     public static JSObject toJS(List<Barcode> barcodes) {
@@ -23,36 +36,81 @@ public final class BarcodeMapper {
         return result;
     }
 
-    public static JSObject toJS(Barcode b) {
-        JSObject o = new JSObject();
-        if (b == null) return o;
-
-        o.put("displayValue", safe(b.getDisplayValue()));
-        o.put("rawValue", safe(b.getRawValue()));
-        o.put("format", mapFormat(b.getFormat()));
-        o.put("valueType", mapValueType(b.getValueType()));
+    /** Serializes results from any decoder backend; ML Kit results keep their typed fields. */
+    static JSObject decodedToJS(List<DecodedBarcode> barcodes) {
+        return decodedToJS(barcodes, null);
+    }
 
-        byte[] rawBytes = b.getRawBytes();
-        if (rawBytes != null && rawBytes.length > 0) {
-            JSArray bytes = new JSArray();
-            for (byte byt : rawBytes) {
-                bytes.put(((int) byt) & 0xff);
+    /** As {@link #decodedToJS(List)}, each read classified against {@code expected} when there is one. */
+    static JSObject decodedToJS(List<DecodedBarcode> barcodes, ExpectedCodes expected) {
+        JSArray array = new JSArray();
+        if (barcodes != null) {
+            for (DecodedBarcode barcode : barcodes) {
+                if (barcode == null) continue;
+                JSObject o = toJS(barcode);
+                String key = Payloads.payloadKey(barcode.rawValue, barcode.displayValue);
+                if (expected != null && key != null) o.put("expectation", expected.classify(key).name());
+                array.put(o);
             }
-            o.put("bytes", bytes);
         }
 
-        Point[] points = b.getCornerPoints();
-        if (points != null && points.length == 4) {
-            JSArray corners = new JSArray();
-            for (Point p : points) {
-                if (p == null) continue;
-                JSArray point = new JSArray();
-                point.put(p.x);
-                point.put(p.y);
-                corners.put(point);
+        JSObject result = new JSObject();
+        result.put("barcodes", array);
+        return result;
+    }
+
+    static JSObject toJS(DecodedBarcode b) {
+        if (b.source instanceof Barcode) {
+            // ML Kit saw a crop; the mapped corners are in full-frame pixels
+            JSObject o = toJS((Barcode) b.source);
+            if (b.corners != null && b.corners.length >= 2) o.put("cornerPoints", BarcodeJson.points(b.corners));
+            return o;
+        }
+
+        JSObject o = new JSObject();
+        BarcodeJson.putCore(o, b.displayValue, b.rawValue, b.format, b.valueType, b.rawBytes, b.corners);
+        return o;
+    }
+
+    static DecodedBarcode toDecoded(Barcode b) {
+        return toDecoded(b, 0, 0);
+    }
+
+    /** As {@link #toDecoded(Barcode)}, with geometry moved by ({@code dx}, {@code dy}) for results from a crop. */
+    static DecodedBarcode toDecoded(Barcode b, int dx, int dy) {
+        Rect box = b.getBoundingBox();
+        int[] corners = cornersOf(b.getCornerPoints());
+        if (corners != null) {
+            for (int i = 0; i + 1 < corners.length; i += 2) {
+                corners[i] += dx;
+                corners[i + 1] += dy;
             }
-            o.put("cornerPoints", corners);
         }
+        return new DecodedBarcode(
+            b.getRawValue(),
+            b.getDisplayValue(),
+            mapFormat(b.getFormat()),
+            mapValueType(b.getValueType()),
+            b.getRawBytes(),
+            corners,
+            box != null ? new BarcodeBox(box.left + dx, box.top + dy, box.right + dx, box.bottom + dy) : null,
+            b
+        );
+    }
+
+    public static JSObject toJS(Barcode b) {
+        JSObject o = new JSObject();
+        if (b == null) return o;
+
+        BarcodeJson.putCore(
+            o,
+            b.getDisplayValue(),
+            b.getRawValue(),
+            mapFormat(b.getFormat()),
+            mapValueType(b.getValueType()),
+            b.getRawBytes(),
+            cornersOf(b.getCornerPoints())
+        );
 
         switch (b.getValueType()) {
             case Barcode.TYPE_URL:
@@ -113,6 +171,24 @@ public final class BarcodeMapper {
         return o;
     }
 
+    /** Corner points as x/y pairs, skipping nulls; null unless ML Kit gave all four. */
+    private static int[] cornersOf(Point[] points) {
+        if (points == null || points.length != 4) return null;
+
+        int count = 0;
+        int[] xy = new int[8];
+        for (Point p : points) {
+            if (p == null) continue;
+            xy[count++] = p.x;
+            xy[count++] = p.y;
+        }
+        if (count == xy.length) return xy;
+
+        int[] partial = new int[count];
+        System.arraycopy(xy, 0, partial, 0, count);
+        return partial;
+    }
+
     private static String mapFormat(int f) {
         switch (f) {
             case Barcode.FORMAT_QR_CODE:
@@ -206,6 +282,6 @@ public final class BarcodeMapper {
     }
 
     private static String safe(String v) {
-        return v == null ? "" : v;
+        return BarcodeJson.safe(v);
     }
 }
@@ -0,0 +1,179 @@
+package com.bakai.plugin;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+/**
+ * What each camera reported in earlier sessions, kept across launches: zoom bounds, flash, the analysis size granted
+ * per resolution tier and the last zoom the app set. Lets a new session answer zoom and torch queries and apply a
+ * requested zoom before CameraX has published its state. Entries are keyed by device and camera ID, and all of them
+ * are dropped when the OS build or the app changes, since either can change what the camera reports.
+ */
+final class CameraConfigCache {
+
+    /** Key-value storage; SharedPreferences on device, a map in tests. */
+    interface Store {
+        String get(String key);
+
+        void put(String key, String value);
+
+        void clear();
+    }
+
+    /** One camera's cached configuration. Unknown values are NaN, null or 0. */
+    static final class Entry {
+
+        float minZoom = Float.NaN;
+        float maxZoom = Float.NaN;
+        Boolean hasFlash = null;
+        // granted analysis width and height per resolution tier (0..2)
+        final int[] analysisSizes = new int[3 * 2];
+        float lastZoom = Float.NaN;
+
+        boolean hasZoomBounds() {
+            return !Float.isNaN(minZoom) && !Float.isNaN(maxZoom) && maxZoom >= minZoom;
+        }
+
+        /** Granted analysis size of {@code tier} as {width, height}, or null if not seen yet. */
+        int[] analysisSize(int tier) {
+            if (tier < 0 || tier > 2 || analysisSizes[tier * 2] <= 0) return null;
+            return new int[] { analysisSizes[tier * 2], analysisSizes[tier * 2 + 1] };
+        }
+
+        float clampZoom(float ratio) {
+            return Math.max(minZoom, Math.min(maxZoom, ratio));
+        }
+
+        String serialize() {
+            final StringBuilder sizes = new StringBuilder();
+            for (int i = 0; i < analysisSizes.length; i += 2) {
+                if (i > 0) sizes.append(',');
+                sizes.append(analysisSizes[i]).append('x').append(analysisSizes[i + 1]);
+            }
+            return FORMAT + ";" + minZoom + ";" + maxZoom + ";" + (hasFlash == null ? "" : hasFlash) + ";" + sizes + ";" + lastZoom;
+        }
+
+        /** Null if {@code value} is missing or written by another format. */
+        static Entry parse(String value) {
+            if (value == null) return null;
+            final String[] f = value.split(";", -1);
+            if (f.length != 6 || !FORMAT.equals(f[0])) return null;
+            try {
+                final Entry e = new Entry();
+                e.minZoom = Float.parseFloat(f[1]);
+                e.maxZoom = Float.parseFloat(f[2]);
+                e.hasFlash = f[3].isEmpty() ? null : Boolean.valueOf(f[3]);
+                final String[] sizes = f[4].split(",");
+                for (int i = 0; i < sizes.length && i * 2 < e.analysisSizes.length; i++) {
+                    final String[] wh = sizes[i].split("x");
+                    e.analysisSizes[i * 2] = Integer.parseInt(wh[0]);
+                    e.analysisSizes[i * 2 + 1] = Integer.parseInt(wh[1]);
+                }
+                e.lastZoom = Float.parseFloat(f[5]);
+                return e;
+            } catch (RuntimeException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static final String PREFERENCES = "bakai_qr_camera_config";
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String FORMAT = "1";
+
+    private final Store store;
+    private final String device;
+
+    /** {@code fingerprint} identifies the OS build and app version; a different one than stored clears the cache. */
+    CameraConfigCache(Store store, String fingerprint, String device) {
+        this.store = store;
+        this.device = device;
+        if (!fingerprint.equals(store.get(FINGERPRINT_KEY))) {
+            store.clear();
+            store.put(FINGERPRINT_KEY, fingerprint);
+        }
+    }
+
+    static CameraConfigCache forDevice(Context context) {
+        return new CameraConfigCache(preferences(context), fingerprint(context), Build.MANUFACTURER + "/" + Build.MODEL);
+    }
+
+    /** A copy of the entry for {@code cameraId}, or null if the camera was not seen since the last update. */
+    synchronized Entry get(String cameraId) {
+        return cameraId != null ? Entry.parse(store.get(key(cameraId))) : null;
+    }
+
+    synchronized void putZoomBounds(String cameraId, float min, float max) {
+        final Entry e = load(cameraId);
+        if (e == null || (e.minZoom == min && e.maxZoom == max)) return;
+        e.minZoom = min;
+        e.maxZoom = max;
+        save(cameraId, e);
+    }
+
+    synchronized void putFlash(String cameraId, boolean hasFlash) {
+        final Entry e = load(cameraId);
+        if (e == null || Boolean.valueOf(hasFlash).equals(e.hasFlash)) return;
+        e.hasFlash = hasFlash;
+        save(cameraId, e);
+    }
+
+    synchronized void putAnalysisSize(String cameraId, int tier, int width, int height) {
+        final Entry e = load(cameraId);
+        if (e == null || tier < 0 || tier > 2) return;
+        if (e.analysisSizes[tier * 2] == width && e.analysisSizes[tier * 2 + 1] == height) return;
+        e.analysisSizes[tier * 2] = width;
+        e.analysisSizes[tier * 2 + 1] = height;
+        save(cameraId, e);
+    }
+
+    synchronized void putLastZoom(String cameraId, float ratio) {
+        final Entry e = load(cameraId);
+        if (e == null || e.lastZoom == ratio) return;
+        e.lastZoom = ratio;
+        save(cameraId, e);
+    }
+
+    private Entry load(String cameraId) {
+        if (cameraId == null) return null;
+        final Entry e = Entry.parse(store.get(key(cameraId)));
+        return e != null ? e : new Entry();
+    }
+
+    private void save(String cameraId, Entry e) {
+        store.put(key(cameraId), e.serialize());
+    }
+
+    private String key(String cameraId) {
+        return "camera:" + device + "/" + cameraId;
+    }
+
+    private static String fingerprint(Context context) {
+        long appUpdatedAt = 0L;
+        try {
+            appUpdatedAt = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (Exception ignored) {}
+        return Build.FINGERPRINT + "|" + appUpdatedAt;
+    }
+
+    private static Store preferences(Context context) {
+        final SharedPreferences prefs = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        return new Store() {
+            @Override
+            public String get(String key) {
+                return prefs.getString(key, null);
+            }
+
+            @Override
+            public void put(String key, String value) {
+                prefs.edit().putString(key, value).apply();
+            }
+
+            @Override
+            public void clear() {
+                prefs.edit().clear().apply();
+            }
+        };
+    }
+}
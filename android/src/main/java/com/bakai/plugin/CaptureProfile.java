@@ -0,0 +1,100 @@
+package com.bakai.plugin;
+
+import android.annotation.SuppressLint;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CaptureRequest;
+import android.util.Range;
+import androidx.camera.camera2.interop.Camera2CameraInfo;
+import androidx.camera.camera2.interop.Camera2Interop;
+import androidx.camera.core.CameraInfo;
+import androidx.camera.core.ExtendableBuilder;
+
+/**
+ * Capture request settings for barcodes, applied to preview and analysis through Camera2Interop.
+ * A high fixed fps range caps the exposure time, which is what keeps moving codes sharp; fast noise reduction and
+ * edge modes skip the smoothing that softens module edges and adds per-frame latency.
+ * Only values the camera lists as available are set; anything it does not report is left at the default.
+ */
+final class CaptureProfile {
+
+    static final String DEFAULT = "DEFAULT";
+    static final String BARCODE = "BARCODE";
+
+    // above this the extra frames only cost power; KEEP_ONLY_LATEST drops them anyway
+    static final int MAX_FPS = 60;
+    // a floor below this lets exposure grow long enough to blur
+    static final int MIN_FPS_FLOOR = 24;
+
+    // null = leave at default
+    final int[] fpsRange;
+    final Integer noiseReductionMode;
+    final Integer edgeMode;
+
+    CaptureProfile(int[] fpsRange, Integer noiseReductionMode, Integer edgeMode) {
+        this.fpsRange = fpsRange;
+        this.noiseReductionMode = noiseReductionMode;
+        this.edgeMode = edgeMode;
+    }
+
+    boolean isEmpty() {
+        return fpsRange == null && noiseReductionMode == null && edgeMode == null;
+    }
+
+    /** The barcode profile for {@code camera}, or null if its characteristics cannot be read. */
+    @SuppressLint("UnsafeOptInUsageError")
+    static CaptureProfile barcodeFor(CameraInfo camera) {
+        if (camera == null) return null;
+        try {
+            final Camera2CameraInfo info = Camera2CameraInfo.from(camera);
+
+            final Range<Integer>[] ranges = info.getCameraCharacteristic(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+            int[][] pairs = null;
+            if (ranges != null) {
+                pairs = new int[ranges.length][];
+                for (int i = 0; i < ranges.length; i++) pairs[i] = new int[] { ranges[i].getLower(), ranges[i].getUpper() };
+            }
+            final int[] noiseModes = info.getCameraCharacteristic(CameraCharacteristics.NOISE_REDUCTION_AVAILABLE_NOISE_REDUCTION_MODES);
+            final int[] edgeModes = info.getCameraCharacteristic(CameraCharacteristics.EDGE_AVAILABLE_EDGE_MODES);
+
+            return new CaptureProfile(
+                pickFpsRange(pairs),
+                pickMode(noiseModes, CaptureRequest.NOISE_REDUCTION_MODE_FAST),
+                pickMode(edgeModes, CaptureRequest.EDGE_MODE_FAST)
+            );
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Sets the profile's request options on a use case builder. */
+    @SuppressLint("UnsafeOptInUsageError")
+    <T> void applyTo(ExtendableBuilder<T> builder) {
+        final Camera2Interop.Extender<T> extender = new Camera2Interop.Extender<>(builder);
+        if (fpsRange != null) extender.setCaptureRequestOption(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, new Range<>(fpsRange[0], fpsRange[1]));
+        if (noiseReductionMode != null) extender.setCaptureRequestOption(CaptureRequest.NOISE_REDUCTION_MODE, noiseReductionMode);
+        if (edgeMode != null) extender.setCaptureRequestOption(CaptureRequest.EDGE_MODE, edgeMode);
+    }
+
+    /**
+     * The range with the highest floor up to {@link #MAX_FPS}, the narrower one on a tie; null if no range keeps the
+     * floor at {@link #MIN_FPS_FLOOR} or more. Ranges are {lower, upper} pairs.
+     */
+    static int[] pickFpsRange(int[][] ranges) {
+        if (ranges == null) return null;
+        int[] best = null;
+        for (int[] r : ranges) {
+            if (r == null || r.length < 2 || r[1] > MAX_FPS || r[0] < MIN_FPS_FLOOR) continue;
+            if (best == null || r[0] > best[0] || (r[0] == best[0] && r[1] < best[1])) best = r;
+        }
+        return best;
+    }
+
+    /** {@code wanted} if the camera lists it, else null. */
+    static Integer pickMode(int[] available, int wanted) {
+        if (available == null) return null;
+        for (int mode : available) {
+            if (mode == wanted) return mode;
+        }
+        return null;
+    }
+}
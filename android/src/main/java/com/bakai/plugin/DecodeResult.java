@@ -0,0 +1,41 @@
+package com.bakai.plugin;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a decoder found in one frame: results with a payload, plus how many candidates it saw in total
+ * (decoded or not) and where the largest one is. Boxes are in upright pixels of the full frame, also when the
+ * decoder was given a crop.
+ */
+final class DecodeResult<T> {
+
+    final List<T> decoded;
+    final int candidateCount;
+    final BarcodeBox largestCandidate;
+    // bounds of the decoded results, or null if the decoder does not report geometry
+    final BarcodeBox decodedBounds;
+
+    DecodeResult(List<T> decoded, int candidateCount, BarcodeBox largestCandidate) {
+        this(decoded, candidateCount, largestCandidate, null);
+    }
+
+    DecodeResult(List<T> decoded, int candidateCount, BarcodeBox largestCandidate, BarcodeBox decodedBounds) {
+        this.decoded = decoded != null ? decoded : Collections.<T>emptyList();
+        this.candidateCount = Math.max(candidateCount, this.decoded.size());
+        this.largestCandidate = largestCandidate;
+        this.decodedBounds = this.decoded.isEmpty() ? null : decodedBounds;
+    }
+
+    static <T> DecodeResult<T> empty() {
+        return new DecodeResult<>(null, 0, null);
+    }
+
+    boolean hasDecoded() {
+        return !decoded.isEmpty();
+    }
+
+    boolean hasCandidates() {
+        return candidateCount > 0;
+    }
+}
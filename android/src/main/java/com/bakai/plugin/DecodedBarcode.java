@@ -0,0 +1,71 @@
+package com.bakai.plugin;
+
+/**
+ * A decoded barcode, independent of the backend that read it.
+ * Format and value type use the JS enum names. {@code source} keeps the backend's own result (an ML Kit
+ * {@code Barcode}) when it has more to serialize than these fields.
+ */
+final class DecodedBarcode {
+
+    static final Payloads.Accessor<DecodedBarcode> PAYLOAD = new Payloads.Accessor<DecodedBarcode>() {
+        @Override
+        public String rawValue(DecodedBarcode item) {
+            return item.rawValue;
+        }
+
+        @Override
+        public String displayValue(DecodedBarcode item) {
+            return item.displayValue;
+        }
+    };
+
+    final String rawValue;
+    final String displayValue;
+    final String format;
+    final String valueType;
+    final byte[] rawBytes;
+    // x/y pairs in upright frame pixels, or null
+    final int[] corners;
+    final BarcodeBox box;
+    final Object source;
+    // QR structured append: symbol sequence byte (position << 4 | count - 1) and parity; -1 if not part of a set
+    final int appendSequence;
+    final int appendParity;
+
+    DecodedBarcode(
+        String rawValue,
+        String displayValue,
+        String format,
+        String valueType,
+        byte[] rawBytes,
+        int[] corners,
+        BarcodeBox box,
+        Object source
+    ) {
+        this(rawValue, displayValue, format, valueType, rawBytes, corners, box, source, -1, -1);
+    }
+
+    DecodedBarcode(
+        String rawValue,
+        String displayValue,
+        String format,
+        String valueType,
+        byte[] rawBytes,
+        int[] corners,
+        BarcodeBox box,
+        Object source,
+        int appendSequence,
+        int appendParity
+    ) {
+        this.rawValue = rawValue;
+        this.displayValue = displayValue;
+        this.format = format;
+        this.valueType = valueType;
+        this.rawBytes = rawBytes;
+        this.corners = corners;
+        this.box = box;
+        this.source = source;
+        this.appendSequence = appendSequence;
+        this.appendParity = appendParity;
+    }
+}
@@ -0,0 +1,13 @@
+package com.bakai.plugin;
+
+/**
+ * A barcode engine behind the live analyzer: takes a luma plane plus metadata and reports decoded barcodes.
+ * Selected per scan through the {@code decoder} option.
+ */
+interface DecoderBackend extends FrameDecoder<DecodedBarcode> {
+    String MLKIT = "MLKIT";
+    String ZXING = "ZXING";
+
+    /** {@link #MLKIT} or {@link #ZXING}, as used in the {@code decoder} option and metrics. */
+    String name();
+}
@@ -0,0 +1,200 @@
+package com.bakai.plugin;
+
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Stocktake index: the codes a scan is checked against, with running tallies. Codes are kept as a sorted array of
+ * 64-bit hashes of their UTF-8 bytes (8 bytes per code, no strings), looked up by binary search, plus one seen bit
+ * per code. Two codes sharing a hash would be confused, which at a million codes is about a 1 in 10^13 chance per read.
+ * The file holds one code per line, exactly as scanned; LF or CRLF endings and a UTF-8 BOM are fine.
+ */
+final class ExpectedCodes {
+
+    enum Status {
+        // in the list, first read
+        EXPECTED,
+        UNEXPECTED,
+        // read before in this index's lifetime, expected or not
+        ALREADY_SEEN
+    }
+
+    // 16 MB of hashes; twice that while loading
+    static final int MAX_CODES = 2_000_000;
+    // distinct unexpected codes remembered as seen; past this each read counts as unexpected
+    static final int MAX_UNEXPECTED_TRACKED = 65_536;
+
+    private static final int CHUNK = 64 * 1024;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // sorted, distinct
+    private final long[] hashes;
+    private final long[] seen;
+    private final Set<Long> unexpectedSeen = new HashSet<>();
+    // lines repeating an earlier code
+    final int fileDuplicates;
+
+    private int found = 0;
+    private int unexpected = 0;
+    private int alreadySeen = 0;
+
+    private ExpectedCodes(long[] hashes, int fileDuplicates) {
+        this.hashes = hashes;
+        this.seen = new long[(hashes.length + 63) >>> 6];
+        this.fileDuplicates = fileDuplicates;
+    }
+
+    /** Reads {@code file} through a read-only mapping, so the list is never held as strings or copied whole. */
+    static ExpectedCodes map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final Loader loader = new Loader();
+            final byte[] chunk = new byte[CHUNK];
+            while (mapped.hasRemaining()) {
+                final int n = Math.min(chunk.length, mapped.remaining());
+                mapped.get(chunk, 0, n);
+                loader.feed(chunk, n);
+            }
+            return loader.finish();
+        }
+    }
+
+    /** For content URIs and other sources that cannot be mapped. */
+    static ExpectedCodes read(InputStream in) throws IOException {
+        final Loader loader = new Loader();
+        final byte[] chunk = new byte[CHUNK];
+        int n;
+        while ((n = in.read(chunk)) != -1) loader.feed(chunk, n);
+        return loader.finish();
+    }
+
+    int size() {
+        return hashes.length;
+    }
+
+    /** Classifies a read and updates the tallies. Called once per reported read. */
+    synchronized Status classify(String payload) {
+        final long hash = hash(payload);
+        final int i = Arrays.binarySearch(hashes, hash);
+        if (i >= 0) {
+            final long bit = 1L << (i & 63);
+            if ((seen[i >>> 6] & bit) != 0) {
+                alreadySeen++;
+                return Status.ALREADY_SEEN;
+            }
+            seen[i >>> 6] |= bit;
+            found++;
+            return Status.EXPECTED;
+        }
+        if (unexpectedSeen.contains(hash)) {
+            alreadySeen++;
+            return Status.ALREADY_SEEN;
+        }
+        if (unexpectedSeen.size() < MAX_UNEXPECTED_TRACKED) unexpectedSeen.add(hash);
+        unexpected++;
+        return Status.UNEXPECTED;
+    }
+
+    /** Distinct expected codes read so far. */
+    synchronized int found() {
+        return found;
+    }
+
+    /** Distinct codes read that are not in the list. */
+    synchronized int unexpected() {
+        return unexpected;
+    }
+
+    /** Repeat reads of a code already counted. */
+    synchronized int alreadySeen() {
+        return alreadySeen;
+    }
+
+    synchronized JSObject toJS() {
+        JSObject o = new JSObject();
+        o.put("total", hashes.length);
+        o.put("found", found);
+        o.put("remaining", hashes.length - found);
+        o.put("unexpected", unexpected);
+        o.put("alreadySeen", alreadySeen);
+        return o;
+    }
+
+    static long hash(String code) {
+        final byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        long h = FNV_OFFSET;
+        for (byte b : bytes) h = (h ^ (b & 0xff)) * FNV_PRIME;
+        return mix(h);
+    }
+
+    /** Spreads FNV's weak low bits (MurmurHash3 finalizer). */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Hashes lines as the bytes stream past, so no line is ever materialized. */
+    private static final class Loader {
+
+        private long[] out = new long[1024];
+        private int count = 0;
+        private long hash = FNV_OFFSET;
+        private int length = 0;
+        private boolean started = false;
+
+        void feed(byte[] chunk, int n) {
+            int i = 0;
+            if (!started) {
+                started = true;
+                if (n >= 3 && chunk[0] == (byte) 0xef && chunk[1] == (byte) 0xbb && chunk[2] == (byte) 0xbf) i = 3;
+            }
+            long h = hash;
+            int len = length;
+            for (; i < n; i++) {
+                final byte b = chunk[i];
+                if (b == '\n') {
+                    if (len > 0) add(mix(h));
+                    h = FNV_OFFSET;
+                    len = 0;
+                } else if (b != '\r') {
+                    h = (h ^ (b & 0xff)) * FNV_PRIME;
+                    len++;
+                }
+            }
+            hash = h;
+            length = len;
+        }
+
+        ExpectedCodes finish() {
+            if (length > 0) add(mix(hash));
+            Arrays.sort(out, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || out[i] != out[distinct - 1]) out[distinct++] = out[i];
+            }
+            return new ExpectedCodes(Arrays.copyOf(out, distinct), count - distinct);
+        }
+
+        private void add(long h) {
+            if (count == out.length) {
+                if (count >= MAX_CODES) throw new IllegalArgumentException("More than " + MAX_CODES + " expected codes");
+                out = Arrays.copyOf(out, Math.min(MAX_CODES, count * 2));
+            }
+            out[count++] = h;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bakai.plugin;
+
+/**
+ * Decides when to point AF/AE at an undecoded barcode candidate.
+ * Works on normalized upright coordinates; the scanner turns the decisions into CameraX focus/metering actions.
+ */
+final class FocusRegionController {
+
+    enum Decision {
+        NONE,
+        FOCUS,
+        CANCEL
+    }
+
+    // never issue actions faster than AF can settle
+    private static final long MIN_INTERVAL_MS = 700L;
+    // re-trigger on the same region when a code still does not decode
+    private static final long REFRESH_MS = 2500L;
+    // candidate centre may drift this far before we treat it as a new region
+    private static final float MOVE_TOLERANCE = 0.12f;
+    // without candidates for this long the region is dropped and continuous AF restored
+    private static final long LOST_MS = 1200L;
+
+    private boolean active = false;
+    private float centerX;
+    private float centerY;
+    private long lastActionAtMs = 0L;
+    private long lastSeenAtMs = 0L;
+
+    /** Centre of the last focused region, valid after a {@link Decision#FOCUS}. */
+    synchronized float centerX() {
+        return centerX;
+    }
+
+    synchronized float centerY() {
+        return centerY;
+    }
+
+    synchronized void reset() {
+        active = false;
+        lastActionAtMs = 0L;
+        lastSeenAtMs = 0L;
+    }
+
+    /** A candidate is visible at the given normalized centre. */
+    synchronized Decision onCandidate(long nowMs, float cx, float cy) {
+        lastSeenAtMs = nowMs;
+        if ((nowMs - lastActionAtMs) < MIN_INTERVAL_MS) return Decision.NONE;
+
+        final boolean sameRegion = active && Math.abs(cx - centerX) <= MOVE_TOLERANCE && Math.abs(cy - centerY) <= MOVE_TOLERANCE;
+        if (sameRegion && (nowMs - lastActionAtMs) < REFRESH_MS) return Decision.NONE;
+
+        active = true;
+        centerX = cx;
+        centerY = cy;
+        lastActionAtMs = nowMs;
+        return Decision.FOCUS;
+    }
+
+    /** Nothing was detected in this frame. */
+    synchronized Decision onNoCandidate(long nowMs) {
+        if (!active) return Decision.NONE;
+        if ((nowMs - lastSeenAtMs) < LOST_MS) return Decision.NONE;
+
+        active = false;
+        lastActionAtMs = nowMs;
+        return Decision.CANCEL;
+    }
+
+    /** A code decoded; the region has done its job. */
+    synchronized Decision onDecoded() {
+        if (!active) return Decision.NONE;
+        active = false;
+        return Decision.CANCEL;
+    }
+
+    synchronized boolean isActive() {
+        return active;
+    }
+}
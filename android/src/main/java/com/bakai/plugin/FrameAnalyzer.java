@@ -0,0 +1,664 @@
+package com.bakai.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The scanning pipeline between the camera and the decoder, without the camera.
+ * Owns the frame gating (pause, cooldown, throttle, busy, low-power idle, thermal tiers) and the per-result feedback loops
+ * (progressive resolution, region focus, region tracking, auto-zoom), and reports camera-side actions through {@link CameraControls}.
+ * {@link QrCodeScanner} feeds it live frames; replay tests feed it recorded ones with their own clock and decoder.
+ */
+final class FrameAnalyzer<T> {
+
+    /** Why a frame was closed without being decoded. */
+    enum DropReason {
+        PAUSED,
+        COOLDOWN,
+        THROTTLED,
+        BUSY,
+        IDLE,
+        BLURRY,
+        STATIC
+    }
+
+    interface Listener<T> {
+        void onBarcodes(List<T> barcodes);
+
+        void onError(String message);
+
+        /** The miss streak reached {@link #DIAGNOSTIC_MISS_STREAK}; reported once per streak. */
+        void onMissStreak(int misses);
+    }
+
+    /** Decides which decoded reads the app wants; the rest are dropped before they count as a success. */
+    interface ReadFilter<T> {
+        boolean accepts(T read);
+    }
+
+    /** Camera-side effects of the analyzer. Called from the analysis thread and decoder callbacks. */
+    interface CameraControls {
+        /** {@link #desiredResolution()} changed; the analysis stream should be rebound. */
+        void onResolutionChanged();
+
+        /** Focus and meter on a normalized point of the sensor buffer. */
+        void startFocus(float x, float y, float size);
+
+        void cancelFocus();
+
+        /** Fills {@code out} with {current, min, max} zoom ratio. Returns false if zoom is not known yet. */
+        boolean readZoom(float[] out);
+
+        /** True while the app has set an explicit zoom; auto-zoom stays off. */
+        boolean isZoomUserControlled();
+
+        void setZoom(float ratio);
+
+        /** Sensor exposure time of the latest capture, or 0 if unknown. */
+        long exposureTimeNs();
+
+        /** The thermal tier changed; the overlay animation should follow {@link ThermalController.Tier#animateOverlay}. */
+        void onThermalTierChanged(ThermalController.Tier tier);
+    }
+
+    // ~4 s of undecoded frames at the normal rate
+    static final int DIAGNOSTIC_MISS_STREAK = 40;
+
+    private static final long ANALYZE_INTERVAL_MS = 70L;
+    private static final long SUCCESS_COOLDOWN_MS = 350L;
+
+    // adaptive zoom for difficult/blurred QRs
+    private static final int AUTO_ZOOM_MISS_THRESHOLD = 8;
+    private static final long AUTO_ZOOM_INTERVAL_MS = 500L;
+    private static final float AUTO_ZOOM_STEP = 0.18f;
+    private static final float AUTO_ZOOM_SOFT_MAX = 3.0f;
+    // size-driven zoom once a candidate has stayed undecoded for a few frames
+    private static final int SIZE_ZOOM_MISS_THRESHOLD = 3;
+
+    // low-power idle mode: VGA, motion check at ~8 fps, decode at ~2 fps
+    private static final int IDLE_RESOLUTION = 0;
+    private static final long IDLE_ANALYZE_INTERVAL_MS = 120L;
+    private static final long IDLE_DECODE_INTERVAL_MS = 500L;
+    private static final int IDLE_MOTION_THRESHOLD = 10;
+
+    // static scene: skip frames that look like the last miss, but decode one every so often anyway
+    private static final int STATIC_CELL_THRESHOLD = 16;
+    private static final long STATIC_RECHECK_MS = 2000L;
+
+    // multi-frame fusion once single frames keep failing
+    static final int FUSION_MISS_THRESHOLD = 5;
+
+    private static final float FOCUS_MIN_POINT_SIZE = 0.1f;
+    private static final float FOCUS_MAX_POINT_SIZE = 0.4f;
+
+    private final FrameDecoder<T> decoder;
+    private final ScanClock clock;
+    private final ScanMetrics metrics;
+    private final CameraControls camera;
+    private final Listener<T> listener;
+
+    private final int maxResolution;
+    private final PowerModeController powerController;
+    private final ResolutionLadder resolutionLadder;
+    private final FocusRegionController focusController;
+    private final AutoZoomController autoZoom = new AutoZoomController();
+
+    private volatile boolean paused = false;
+    // decoder guard
+    private volatile boolean processing = false;
+
+    private volatile long lastAnalyzeAtMs = 0L;
+    private volatile long lastDecodeAtMs = 0L;
+    private volatile long cooldownUntilMs = 0L;
+
+    private volatile int consecutiveDecodeMisses = 0;
+    private volatile long lastAutoZoomAtMs = 0L;
+
+    private final LumaSignature frameSignature = new LumaSignature();
+    private final LumaSignature previousSignature = new LumaSignature();
+    private final float[] focusPoint = new float[2];
+    private final float[] zoom = new float[3];
+
+    // diagnostics ring; null when off
+    private volatile FrameRingRecorder recorder = null;
+    private final float[] recordZoom = new float[3];
+
+    // static scene skip; signatures of the frame in flight and of the last missed one
+    private volatile boolean staticSceneSkip = false;
+    private final LumaSignature sceneSignature = new LumaSignature();
+    private final LumaSignature inFlightSignature = new LumaSignature();
+    private final LumaSignature missSignature = new LumaSignature();
+
+    // blur check before the decoder; null when off
+    private volatile SharpnessGate sharpnessGate = null;
+
+    // multi-frame fusion; null when off
+    private volatile FrameFusion fusion = null;
+
+    // thermal caps on resolution and rate; null when off
+    private volatile ThermalController thermal = null;
+
+    // region tracking after a decode; null when off
+    private volatile RegionTracker tracker = null;
+
+    // app-side payload rules; null when every read counts
+    private volatile ReadFilter<T> readFilter = null;
+
+    // startup phase stamps; null when not timed
+    private volatile StartupTimings.Session startup = null;
+
+    // decoder racing on miss streaks; null when off
+    private volatile FrameDecoder<T> racer = null;
+    private volatile int raceAfterMisses = 0;
+
+    /**
+     * @param power low-power idle controller, or null
+     * @param ladder progressive resolution ladder, or null
+     * @param focus region focus controller, or null
+     */
+    FrameAnalyzer(
+        FrameDecoder<T> decoder,
+        ScanClock clock,
+        ScanMetrics metrics,
+        CameraControls camera,
+        Listener<T> listener,
+        int maxResolution,
+        PowerModeController power,
+        ResolutionLadder ladder,
+        FocusRegionController focus
+    ) {
+        this.decoder = decoder;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.camera = camera;
+        this.listener = listener;
+        this.maxResolution = maxResolution;
+        this.powerController = power;
+        this.resolutionLadder = ladder;
+        this.focusController = focus;
+
+        final long now = clock.nowMs();
+        if (power != null) {
+            power.reset(now);
+            metrics.powerState = power.state().name();
+        }
+        if (ladder != null) ladder.reset(now);
+    }
+
+    /** Analysis resolution tier the camera should deliver right now. */
+    int desiredResolution() {
+        final PowerModeController power = powerController;
+        if (power != null && power.isIdle()) return Math.min(IDLE_RESOLUTION, maxResolution);
+
+        final ResolutionLadder ladder = resolutionLadder;
+        final int tier = ladder != null ? ladder.tier() : maxResolution;
+        final ThermalController heat = thermal;
+        return heat != null ? Math.min(tier, heat.tier().maxResolution) : tier;
+    }
+
+    /** Keeps the luma planes of analyzed frames in {@code recorder}; null turns recording off. */
+    void setRecorder(FrameRingRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Drops frames that look the same as the last one that decoded nothing, until the scene changes or
+     * {@link #STATIC_RECHECK_MS} has passed since the last decode. Fixed kiosk scanners pointed at an empty counter
+     * otherwise run the decoder on the same image all day.
+     */
+    void setStaticSceneSkip(boolean enabled) {
+        staticSceneSkip = enabled;
+        if (!enabled) missSignature.invalidate();
+    }
+
+    /**
+     * Drops motion-blurred frames before the decoder (see {@link SharpnessGate}). They neither count as misses nor
+     * reset the analysis interval, so the next sharp frame is decoded right away. Null turns the gate off.
+     */
+    void setSharpnessGate(SharpnessGate gate) {
+        this.sharpnessGate = gate;
+    }
+
+    /**
+     * From {@link #FUSION_MISS_THRESHOLD} misses in a row on, collects every frame that is not paused or in cooldown
+     * into {@code fusion} and decodes the fused plane instead of the single frame. Null turns fusion off.
+     */
+    void setFusion(FrameFusion fusion) {
+        this.fusion = fusion;
+    }
+
+    /**
+     * Caps resolution and analysis rate by {@code thermal}'s tier; feed it with {@link #onThermalStatus}.
+     * Null turns the caps off.
+     */
+    void setThermal(ThermalController thermal) {
+        this.thermal = thermal;
+        metrics.thermalTier = thermal != null ? thermal.tier().name() : ThermalController.Tier.NOMINAL.name();
+    }
+
+    /** A new platform thermal status; any thread. */
+    void onThermalStatus(int status) {
+        final ThermalController heat = thermal;
+        if (heat != null && heat.onStatus(status, clock.nowMs())) onThermalTierChanged(heat);
+    }
+
+    /**
+     * After a decode, decodes a crop around where the code is expected next instead of the full frame
+     * (see {@link RegionTracker}). Fused planes are always searched in full. Null turns tracking off.
+     */
+    void setRegionTracker(RegionTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * Reads the filter rejects are neither reported nor count as a success (no cooldown). A frame with only rejected
+     * reads is not a miss either: the code was readable, so zoom and resolution stay as they are. Null accepts all.
+     */
+    void setReadFilter(ReadFilter<T> filter) {
+        this.readFilter = filter;
+    }
+
+    /** Stamps the first analyzed frame, decoder result and decode of this session. */
+    void setStartupTimings(StartupTimings.Session startup) {
+        this.startup = startup;
+    }
+
+    /**
+     * Once {@code afterMisses} frames in a row went undecoded, sends frames to {@code racer} instead of the
+     * decoder until the next decode. Null turns racing off.
+     */
+    void setRacer(FrameDecoder<T> racer, int afterMisses) {
+        this.raceAfterMisses = Math.max(1, afterMisses);
+        this.racer = racer;
+    }
+
+    int consecutiveDecodeMisses() {
+        return consecutiveDecodeMisses;
+    }
+
+    void pause() {
+        paused = true;
+        processing = false;
+        consecutiveDecodeMisses = 0;
+    }
+
+    void resume() {
+        paused = false;
+        missSignature.invalidate();
+        final RegionTracker track = tracker;
+        if (track != null) track.reset();
+        consecutiveDecodeMisses = 0;
+        lastAutoZoomAtMs = 0L;
+    }
+
+    /**
+     * Takes ownership of a frame: either hands it to the decoder (returns true) or drops and closes it.
+     * Must be called from a single thread.
+     */
+    boolean onFrame(final LumaFrame frame) {
+        metrics.framesReceived.incrementAndGet();
+        try {
+            if (paused) return drop(frame, DropReason.PAUSED);
+
+            final long now = clock.nowMs();
+            if (now < cooldownUntilMs) return drop(frame, DropReason.COOLDOWN);
+
+            // throttled and busy frames still feed the fusion window
+            final FrameFusion fuse = fusion;
+            final boolean fusing = fuse != null && consecutiveDecodeMisses >= FUSION_MISS_THRESHOLD;
+            if (fusing) {
+                fuse.push(frame);
+            } else if (fuse != null && fuse.size() > 0) {
+                fuse.reset();
+            }
+
+            final ThermalController heat = thermal;
+            if (heat != null && heat.onTick(now)) onThermalTierChanged(heat);
+
+            final PowerModeController power = powerController;
+            long interval = power != null && power.isIdle() ? IDLE_ANALYZE_INTERVAL_MS : ANALYZE_INTERVAL_MS;
+            if (heat != null) interval = Math.max(interval, heat.tier().minIntervalMs);
+            if (interval > 0 && (now - lastAnalyzeAtMs) < interval) return drop(frame, DropReason.THROTTLED);
+
+            if (processing) return drop(frame, DropReason.BUSY);
+
+            if (power != null && !checkPowerMode(power, frame, now)) {
+                lastAnalyzeAtMs = now;
+                return drop(frame, DropReason.IDLE);
+            }
+
+            // a fused plane improves with every frame, so a still scene is exactly what fusion wants
+            if (staticSceneSkip && !fusing) {
+                sceneSignature.compute(frame.luma, frame.width, frame.height, frame.rowStride);
+                final boolean unchanged = sceneSignature.changedCells(missSignature, STATIC_CELL_THRESHOLD) == 0;
+                if (unchanged && (now - lastDecodeAtMs) < STATIC_RECHECK_MS) return drop(frame, DropReason.STATIC);
+                inFlightSignature.copyFrom(sceneSignature);
+            } else {
+                inFlightSignature.invalidate();
+            }
+
+            final SharpnessGate sharpness = sharpnessGate;
+            if (sharpness != null && !sharpness.accept(frame.luma, frame.width, frame.height, frame.rowStride)) {
+                return drop(frame, DropReason.BLURRY);
+            }
+
+            processing = true;
+            lastAnalyzeAtMs = now;
+            lastDecodeAtMs = now;
+            metrics.framesAnalyzed.incrementAndGet();
+            markStartup(StartupTimings.Phase.FIRST_ANALYZED_FRAME);
+
+            // before the decoder starts reading the plane
+            final FrameRingRecorder rec = recorder;
+            if (rec != null) rec.record(frame, camera.readZoom(recordZoom) ? recordZoom[0] : 0f, camera.exposureTimeNs());
+
+            // the fused plane is a copy: the camera frame goes back now, so the next ones keep feeding the window
+            LumaFrame input = fusing && fuse.size() >= 2 ? fuse.fuse(frame.rotationDegrees) : frame;
+            final boolean fused = input != frame;
+            if (fused) {
+                metrics.framesFused.incrementAndGet();
+                frame.close();
+            }
+
+            // a crop is a view into the camera frame, which stays open until the decoder is done
+            final RegionTracker track = tracker;
+            BarcodeBox crop = !fused && track != null ? track.nextCrop(now, frame.uprightWidth(), frame.uprightHeight()) : null;
+            if (crop != null) {
+                final LumaFrame view = frame.crop(crop);
+                if (view != null) {
+                    input = view;
+                    metrics.trackedDecodes.incrementAndGet();
+                } else {
+                    crop = null;
+                }
+            }
+            final BarcodeBox region = crop;
+            final LumaFrame owner = fused ? input : frame;
+
+            final FrameDecoder<T> race = racer;
+            final FrameDecoder<T> engine = race != null && consecutiveDecodeMisses >= raceAfterMisses ? race : decoder;
+            engine.decode(
+                input,
+                new FrameDecoder.Callback<T>() {
+                    @Override
+                    public void onResult(DecodeResult<T> result) {
+                        try {
+                            markStartup(StartupTimings.Phase.FIRST_DECODER_RESULT);
+                            if (fused && result != null && result.hasDecoded()) metrics.fusedDecodes.incrementAndGet();
+                            handleResult(frame, region, result);
+                        } finally {
+                            complete(owner);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(String message) {
+                        try {
+                            markStartup(StartupTimings.Phase.FIRST_DECODER_RESULT);
+                            countMiss();
+                            metrics.decodeErrors.incrementAndGet();
+                            updateTracker(region, null);
+                            maybeAutoZoom();
+                            listener.onError(message != null ? message : "Unknown error");
+                        } finally {
+                            complete(owner);
+                        }
+                    }
+                }
+            );
+            return true;
+        } catch (Exception e) {
+            frame.close();
+            processing = false;
+            listener.onError(e.getMessage() != null ? e.getMessage() : "Unknown error");
+            return false;
+        }
+    }
+
+    private boolean drop(LumaFrame frame, DropReason reason) {
+        metrics.framesDropped.incrementAndGet(reason.ordinal());
+        frame.close();
+        return false;
+    }
+
+    private void complete(LumaFrame frame) {
+        frame.close();
+        processing = false;
+    }
+
+    /** {@code crop} is the region that was decoded, or null for the full frame. */
+    private void handleResult(LumaFrame frame, BarcodeBox crop, DecodeResult<T> result) {
+        if (result == null) result = DecodeResult.empty();
+        final boolean readable = result.hasDecoded();
+        result = filterReads(result);
+        updateTracker(crop, result.decodedBounds);
+        if (crop != null && result.hasDecoded()) metrics.trackedHits.incrementAndGet();
+
+        final PowerModeController power = powerController;
+        if (result.hasCandidates() && power != null && power.onActivity(clock.nowMs())) {
+            onPowerStateChanged(power);
+        }
+
+        updateResolutionLadder(result.hasCandidates(), readable);
+
+        if (result.hasDecoded()) {
+            missSignature.invalidate();
+            consecutiveDecodeMisses = 0;
+            cooldownUntilMs = clock.nowMs() + SUCCESS_COOLDOWN_MS;
+            metrics.decodeSuccesses.incrementAndGet();
+            markStartup(StartupTimings.Phase.FIRST_DECODE);
+            releaseRegionFocus();
+            restoreAutoZoom();
+            listener.onBarcodes(result.decoded);
+            return;
+        }
+        if (readable) {
+            // only unwanted codes in view: a still scene would read the same ones again
+            missSignature.copyFrom(inFlightSignature);
+            return;
+        }
+
+        countMiss();
+        metrics.decodeMisses.incrementAndGet();
+        // read on the analysis thread only once processing is cleared after this callback
+        missSignature.copyFrom(inFlightSignature);
+
+        final int frameWidth = frame.uprightWidth();
+        final int frameHeight = frame.uprightHeight();
+        final BarcodeBox box = result.largestCandidate;
+        updateRegionFocus(box, frameWidth, frameHeight, frame.rotationDegrees);
+        if (box != null && !box.isEmpty()) {
+            maybeSizeDrivenZoom(box, frameWidth, frameHeight);
+        } else {
+            maybeAutoZoom();
+        }
+    }
+
+    private DecodeResult<T> filterReads(DecodeResult<T> result) {
+        final ReadFilter<T> filter = readFilter;
+        if (filter == null || !result.hasDecoded()) return result;
+
+        final List<T> accepted = new ArrayList<>(result.decoded.size());
+        for (T read : result.decoded) {
+            if (filter.accepts(read)) accepted.add(read);
+        }
+        metrics.readsAccepted.addAndGet(accepted.size());
+        metrics.readsRejected.addAndGet(result.decoded.size() - accepted.size());
+        if (accepted.size() == result.decoded.size()) return result;
+        // the bounds may still include rejected reads; good enough for the tracker
+        return new DecodeResult<>(accepted, result.candidateCount, result.largestCandidate, result.decodedBounds);
+    }
+
+    private void markStartup(StartupTimings.Phase phase) {
+        final StartupTimings.Session session = startup;
+        if (session != null) session.mark(phase, clock.nowMs());
+    }
+
+    private void countMiss() {
+        final int misses = ++consecutiveDecodeMisses;
+        if (misses == DIAGNOSTIC_MISS_STREAK) listener.onMissStreak(misses);
+    }
+
+    // ===== Region tracking =====
+
+    private void updateTracker(BarcodeBox crop, BarcodeBox decodedBounds) {
+        final RegionTracker track = tracker;
+        if (track != null && track.onResult(crop, decodedBounds, clock.nowMs())) metrics.trackingLost.incrementAndGet();
+    }
+
+    // ===== Low-power idle =====
+
+    /** Cheap motion check on the luma plane. Returns false if the frame should be skipped without decoding. */
+    private boolean checkPowerMode(PowerModeController power, LumaFrame frame, long now) {
+        frameSignature.compute(frame.luma, frame.width, frame.height, frame.rowStride);
+        final boolean moved = frameSignature.distance(previousSignature) > IDLE_MOTION_THRESHOLD;
+        previousSignature.copyFrom(frameSignature);
+
+        if (moved) {
+            if (power.onActivity(now)) onPowerStateChanged(power);
+        } else if (power.onTick(now)) {
+            onPowerStateChanged(power);
+        }
+
+        return !power.isIdle() || (now - lastDecodeAtMs) >= IDLE_DECODE_INTERVAL_MS;
+    }
+
+    private void onPowerStateChanged(PowerModeController power) {
+        if (power.isIdle()) {
+            metrics.powerDeescalations.incrementAndGet();
+            final ResolutionLadder ladder = resolutionLadder;
+            if (ladder != null) ladder.reset(clock.nowMs());
+        } else {
+            metrics.powerEscalations.incrementAndGet();
+        }
+        metrics.powerState = power.state().name();
+        camera.onResolutionChanged();
+    }
+
+    // ===== Thermal tiers =====
+
+    private void onThermalTierChanged(ThermalController heat) {
+        final ThermalController.Tier tier = heat.tier();
+        metrics.thermalTier = tier.name();
+        metrics.thermalTierChanges.incrementAndGet();
+        camera.onThermalTierChanged(tier);
+        camera.onResolutionChanged();
+    }
+
+    // ===== Progressive resolution =====
+
+    private void updateResolutionLadder(boolean hasCandidates, boolean hasDecoded) {
+        final ResolutionLadder ladder = resolutionLadder;
+        if (ladder == null) return;
+
+        final long now = clock.nowMs();
+        if (hasDecoded) {
+            ladder.onDecoded(now);
+        } else if (hasCandidates) {
+            if (ladder.onUndecodedCandidates(now)) {
+                metrics.resolutionEscalations.incrementAndGet();
+                camera.onResolutionChanged();
+            }
+        } else if (ladder.onNoCandidates(now)) {
+            metrics.resolutionRelaxations.incrementAndGet();
+            camera.onResolutionChanged();
+        }
+    }
+
+    // ===== Region focus =====
+
+    /** Feeds the largest undecoded candidate (or its absence) to the focus controller. */
+    private void updateRegionFocus(BarcodeBox box, int frameWidth, int frameHeight, int rotationDegrees) {
+        final FocusRegionController focus = focusController;
+        if (focus == null) return;
+
+        final long now = clock.nowMs();
+        if (box == null || box.isEmpty() || frameWidth <= 0 || frameHeight <= 0) {
+            if (focus.onNoCandidate(now) == FocusRegionController.Decision.CANCEL) {
+                camera.cancelFocus();
+                metrics.focusCancels.incrementAndGet();
+            }
+            return;
+        }
+
+        final float cx = FrameGeometry.clamp(box.centerX() / frameWidth, 0f, 1f);
+        final float cy = FrameGeometry.clamp(box.centerY() / frameHeight, 0f, 1f);
+        if (focus.onCandidate(now, cx, cy) == FocusRegionController.Decision.FOCUS) {
+            final float size = Math.max(box.width() / (float) frameWidth, box.height() / (float) frameHeight);
+            FrameGeometry.uprightToBuffer(cx, cy, rotationDegrees, focusPoint);
+            camera.startFocus(focusPoint[0], focusPoint[1], FrameGeometry.clamp(size, FOCUS_MIN_POINT_SIZE, FOCUS_MAX_POINT_SIZE));
+            metrics.focusRequests.incrementAndGet();
+        }
+    }
+
+    private void releaseRegionFocus() {
+        final FocusRegionController focus = focusController;
+        if (focus != null && focus.onDecoded() == FocusRegionController.Decision.CANCEL) {
+            camera.cancelFocus();
+            metrics.focusCancels.incrementAndGet();
+        }
+    }
+
+    // ===== Auto-zoom =====
+
+    private void maybeAutoZoom() {
+        if (camera.isZoomUserControlled()) return; // user-controlled zoom has priority
+        if (consecutiveDecodeMisses < AUTO_ZOOM_MISS_THRESHOLD) return;
+
+        final long now = clock.nowMs();
+        if ((now - lastAutoZoomAtMs) < AUTO_ZOOM_INTERVAL_MS) return;
+        if (!camera.readZoom(zoom)) return;
+
+        final float current = zoom[0];
+        final float maxAllowed = Math.min(zoom[2], AUTO_ZOOM_SOFT_MAX);
+        if (current >= (maxAllowed - 0.01f)) return;
+
+        autoZoom.onStep(current);
+        camera.setZoom(Math.min(maxAllowed, current + AUTO_ZOOM_STEP));
+        lastAutoZoomAtMs = now;
+        metrics.autoZoomSteps.incrementAndGet();
+    }
+
+    /** Zooms so the candidate fills {@link AutoZoomController#TARGET_FILL} of the frame, or out if it is clipped. */
+    private void maybeSizeDrivenZoom(BarcodeBox box, int frameWidth, int frameHeight) {
+        if (camera.isZoomUserControlled()) return; // user-controlled zoom has priority
+        if (consecutiveDecodeMisses < SIZE_ZOOM_MISS_THRESHOLD) return;
+        if (frameWidth <= 0 || frameHeight <= 0) return;
+
+        final long now = clock.nowMs();
+        if ((now - lastAutoZoomAtMs) < AUTO_ZOOM_INTERVAL_MS) return;
+        if (!camera.readZoom(zoom)) return;
+
+        final float fw = frameWidth;
+        final float fh = frameHeight;
+        final float fill = Math.max(box.width() / fw, box.height() / fh);
+        final boolean clipped = AutoZoomController.isClipped(box.left / fw, box.top / fh, box.right / fw, box.bottom / fh);
+
+        // do not drop onto an ultra-wide lens unless we are already below 1x
+        final float current = zoom[0];
+        final float minAllowed = Math.min(current, Math.max(zoom[1], 1f));
+        final float maxAllowed = Math.max(current, Math.min(zoom[2], AUTO_ZOOM_SOFT_MAX));
+
+        final float target = autoZoom.onCandidate(fill, clipped, current, minAllowed, maxAllowed);
+        if (Float.isNaN(target)) return;
+
+        camera.setZoom(target);
+        lastAutoZoomAtMs = now;
+        if (target < current) {
+            metrics.autoZoomOuts.incrementAndGet();
+        } else {
+            metrics.autoZoomIns.incrementAndGet();
+        }
+    }
+
+    /** After a decode, goes back to the zoom auto-zoom started from. */
+    private void restoreAutoZoom() {
+        final float base = autoZoom.onDecoded();
+        if (Float.isNaN(base)) return;
+        if (camera.isZoomUserControlled()) return;
+
+        camera.setZoom(base);
+        lastAutoZoomAtMs = clock.nowMs();
+        metrics.autoZoomResets.incrementAndGet();
+    }
+}
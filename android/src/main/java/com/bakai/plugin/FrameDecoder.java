@@ -0,0 +1,18 @@
+package com.bakai.plugin;
+
+/** Asynchronous decoder behind the analyzer. ML Kit on device, scripted stand-ins in replay tests. */
+interface FrameDecoder<T> {
+    interface Callback<T> {
+        void onResult(DecodeResult<T> result);
+
+        void onFailure(String message);
+    }
+
+    /**
+     * Decodes one frame and reports exactly once through {@code callback}, on any thread.
+     * The frame stays open until then; the decoder must not close it.
+     */
+    void decode(LumaFrame frame, Callback<T> callback);
+
+    void close();
+}
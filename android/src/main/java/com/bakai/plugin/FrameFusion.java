@@ -0,0 +1,253 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Averages a short window of consecutive luma planes into one, so sensor noise in low light drops by roughly
+ * the square root of the window size.
+ * Frames are aligned on the newest with a translation-only coarse-to-fine search over 1/8 and 1/4 downsamples,
+ * finished on sparse full-resolution samples. Frames that do not line up (scene change, zoom step) are left out.
+ * Buffers are allocated once per frame size and reused. Not thread-safe; the analyzer calls it from one thread.
+ */
+final class FrameFusion {
+
+    static final int DEFAULT_WINDOW = 4;
+
+    // pyramid: full, 1/4, 1/8
+    private static final int COARSE_SCALE = 4;
+    // +-2 px at 1/8 = about +-20 px of hand shake between the oldest and newest frame
+    private static final int MAX_TINY_SHIFT = 2;
+    private static final int REFINE_RADIUS = 2;
+    // odd, so a grid of modules cannot alias with the sample grid
+    private static final int REFINE_STEP = 7;
+    // mean absolute difference per pixel after alignment; above it the frame shows something else
+    static final int MAX_ALIGNED_DIFF = 24;
+
+    private final int window;
+    private final byte[][] planes;
+    private final byte[][] coarse;
+    private final byte[][] tiny;
+    private final long[] timestamps;
+    private final int[] shiftX;
+    private final int[] shiftY;
+
+    private int width = 0;
+    private int height = 0;
+    private int coarseWidth = 0;
+    private int coarseHeight = 0;
+    private int tinyWidth = 0;
+    private int tinyHeight = 0;
+    // ring: newest at head - 1
+    private int head = 0;
+    private int count = 0;
+
+    // slots that line up with the newest, and a row of running sums
+    private final int[] aligned;
+    private int[] rowSums = new int[0];
+    private byte[] fused = new byte[0];
+    private int lastFusedCount = 0;
+
+    FrameFusion(int window) {
+        this.window = Math.max(2, window);
+        this.planes = new byte[this.window][];
+        this.coarse = new byte[this.window][];
+        this.tiny = new byte[this.window][];
+        this.timestamps = new long[this.window];
+        this.shiftX = new int[this.window];
+        this.shiftY = new int[this.window];
+        this.aligned = new int[this.window];
+    }
+
+    void reset() {
+        head = 0;
+        count = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Frames that went into the last {@link #fuse} result, the newest included. */
+    int lastFusedCount() {
+        return lastFusedCount;
+    }
+
+    /** Copies the plane into the window, evicting the oldest. A different frame size starts a new window. */
+    void push(LumaFrame frame) {
+        final int w = frame.width;
+        final int h = frame.height;
+        final int min = 2 * COARSE_SCALE * (2 * MAX_TINY_SHIFT + 2);
+        if (w < min || h < min) return;
+        if (w != width || h != height) resize(w, h);
+
+        final int slot = head;
+        final byte[] plane = planes[slot];
+        final ByteBuffer src = frame.luma.duplicate();
+        for (int y = 0; y < h; y++) {
+            src.position(y * frame.rowStride);
+            src.get(plane, y * w, w);
+        }
+        downsample(plane, width, coarse[slot], coarseWidth, coarseHeight, COARSE_SCALE);
+        downsample(coarse[slot], coarseWidth, tiny[slot], tinyWidth, tinyHeight, 2);
+        timestamps[slot] = frame.timestampMs;
+
+        head = (head + 1) % window;
+        if (count < window) count++;
+    }
+
+    /**
+     * Aligns the window on the newest frame and averages it. Returns a packed frame over an internal buffer that
+     * stays valid until the next call, or null if the window is empty.
+     */
+    LumaFrame fuse(int rotationDegrees) {
+        lastFusedCount = 0;
+        if (count == 0) return null;
+
+        final int ref = (head - 1 + window) % window;
+        shiftX[ref] = 0;
+        shiftY[ref] = 0;
+        aligned[0] = ref;
+        int used = 1;
+        for (int k = 1; k < count; k++) {
+            final int slot = (ref - k + window) % window;
+            if (align(ref, slot)) aligned[used++] = slot;
+        }
+
+        // row by row, so the running sums stay in cache; fixed-point reciprocal instead of a division per pixel
+        final int scale = (1 << 16) / used + 1;
+        final int half = used / 2;
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(rowSums, half);
+            for (int i = 0; i < used; i++) accumulateRow(aligned[i], y);
+            final int row = y * width;
+            for (int x = 0; x < width; x++) fused[row + x] = (byte) ((rowSums[x] * scale) >>> 16);
+        }
+        lastFusedCount = used;
+        final int n = width * height;
+        return new LumaFrame(ByteBuffer.wrap(fused, 0, n), width, height, width, rotationDegrees, timestamps[ref], null);
+    }
+
+    /**
+     * Shift found by the last {@link #fuse} for the frame {@code age} frames older than the newest:
+     * newest(x, y) ~ older(x + dx, y + dy).
+     */
+    int shiftX(int age) {
+        return shiftX[(head - 1 - age + 2 * window) % window];
+    }
+
+    int shiftY(int age) {
+        return shiftY[(head - 1 - age + 2 * window) % window];
+    }
+
+    private void resize(int w, int h) {
+        width = w;
+        height = h;
+        coarseWidth = w / COARSE_SCALE;
+        coarseHeight = h / COARSE_SCALE;
+        tinyWidth = coarseWidth / 2;
+        tinyHeight = coarseHeight / 2;
+        for (int i = 0; i < window; i++) {
+            planes[i] = new byte[w * h];
+            coarse[i] = new byte[coarseWidth * coarseHeight];
+            tiny[i] = new byte[tinyWidth * tinyHeight];
+        }
+        rowSums = new int[w];
+        fused = new byte[w * h];
+        reset();
+    }
+
+    /** Box-filters {@code src} down by {@code scale} into an {@code outWidth x outHeight} plane. */
+    private static void downsample(byte[] src, int srcWidth, byte[] out, int outWidth, int outHeight, int scale) {
+        final int area = scale * scale;
+        for (int oy = 0; oy < outHeight; oy++) {
+            for (int ox = 0; ox < outWidth; ox++) {
+                int sum = 0;
+                int base = oy * scale * srcWidth + ox * scale;
+                for (int dy = 0; dy < scale; dy++, base += srcWidth) {
+                    for (int dx = 0; dx < scale; dx++) sum += src[base + dx] & 0xFF;
+                }
+                out[oy * outWidth + ox] = (byte) (sum / area);
+            }
+        }
+    }
+
+    /** Finds the shift of {@code slot} against {@code ref}. Returns false if the best match is still too different. */
+    private boolean align(int ref, int slot) {
+        // 1/8: every shift within range
+        final int m = MAX_TINY_SHIFT;
+        long best = Long.MAX_VALUE;
+        int bx = 0;
+        int by = 0;
+        for (int dy = -m; dy <= m; dy++) {
+            for (int dx = -m; dx <= m; dx++) {
+                final long sad = sad(tiny[ref], tiny[slot], tinyWidth, tinyHeight, dx, dy, m, 1);
+                if (sad < best) {
+                    best = sad;
+                    bx = dx;
+                    by = dy;
+                }
+            }
+        }
+
+        // 1/4: one pixel around the doubled estimate
+        final int cm = 2 * m + 1;
+        best = Long.MAX_VALUE;
+        int cx = 2 * bx;
+        int cy = 2 * by;
+        for (int dy = 2 * by - 1; dy <= 2 * by + 1; dy++) {
+            for (int dx = 2 * bx - 1; dx <= 2 * bx + 1; dx++) {
+                final long sad = sad(coarse[ref], coarse[slot], coarseWidth, coarseHeight, dx, dy, cm, 1);
+                if (sad < best) {
+                    best = sad;
+                    cx = dx;
+                    cy = dy;
+                }
+            }
+        }
+
+        // full resolution: sparse samples around the coarse estimate
+        final int fm = cm * COARSE_SCALE + REFINE_RADIUS;
+        best = Long.MAX_VALUE;
+        for (int dy = cy * COARSE_SCALE - REFINE_RADIUS; dy <= cy * COARSE_SCALE + REFINE_RADIUS; dy++) {
+            for (int dx = cx * COARSE_SCALE - REFINE_RADIUS; dx <= cx * COARSE_SCALE + REFINE_RADIUS; dx++) {
+                final long sad = sad(planes[ref], planes[slot], width, height, dx, dy, fm, REFINE_STEP);
+                if (sad < best) {
+                    best = sad;
+                    shiftX[slot] = dx;
+                    shiftY[slot] = dy;
+                }
+            }
+        }
+
+        final long rows = (height - 2 * fm + REFINE_STEP - 1) / REFINE_STEP;
+        final long samples = rows * ((width - 2 * fm + REFINE_STEP - 1) / REFINE_STEP);
+        return samples > 0 && best <= samples * MAX_ALIGNED_DIFF;
+    }
+
+    /** Sum of absolute differences between a(x, y) and b(x + dx, y + dy) over the interior, every {@code step} pixels. */
+    private static long sad(byte[] a, byte[] b, int w, int h, int dx, int dy, int margin, int step) {
+        long sum = 0;
+        for (int y = margin; y < h - margin; y += step) {
+            final int rowA = y * w;
+            final int rowB = (y + dy) * w + dx;
+            for (int x = margin; x < w - margin; x += step) {
+                sum += Math.abs((a[rowA + x] & 0xFF) - (b[rowB + x] & 0xFF));
+            }
+        }
+        return sum;
+    }
+
+    /** Adds row {@code y} of {@code slot}, shifted by its alignment; pixels shifted in from outside repeat the edge. */
+    private void accumulateRow(int slot, int y) {
+        final byte[] plane = planes[slot];
+        final int dx = shiftX[slot];
+        final int srcRow = Math.min(height - 1, Math.max(0, y + shiftY[slot])) * width;
+        final int x0 = Math.max(0, -dx);
+        final int x1 = Math.min(width, width - dx);
+        final int[] sums = rowSums;
+        for (int x = 0; x < x0; x++) sums[x] += plane[srcRow] & 0xFF;
+        for (int x = x0; x < x1; x++) sums[x] += plane[srcRow + x + dx] & 0xFF;
+        for (int x = x1; x < width; x++) sums[x] += plane[srcRow + width - 1] & 0xFF;
+    }
+}
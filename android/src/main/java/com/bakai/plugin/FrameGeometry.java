@@ -0,0 +1,78 @@
+package com.bakai.plugin;
+
+/**
+ * Coordinate helpers between the upright image ML Kit reports in and the unrotated analysis buffer.
+ * All points are normalized to 0..1.
+ */
+final class FrameGeometry {
+
+    private FrameGeometry() {}
+
+    /** Upright width for a buffer of {@code width x height} shown with {@code rotationDegrees}. */
+    static int uprightWidth(int width, int height, int rotationDegrees) {
+        return isSideways(rotationDegrees) ? height : width;
+    }
+
+    static int uprightHeight(int width, int height, int rotationDegrees) {
+        return isSideways(rotationDegrees) ? width : height;
+    }
+
+    /**
+     * Maps a normalized point of the upright image back to the unrotated buffer.
+     * {@code out[0]}/{@code out[1]} receive x/y.
+     */
+    static void uprightToBuffer(float ux, float uy, int rotationDegrees, float[] out) {
+        switch (normalizeRotation(rotationDegrees)) {
+            case 90:
+                out[0] = uy;
+                out[1] = 1f - ux;
+                break;
+            case 180:
+                out[0] = 1f - ux;
+                out[1] = 1f - uy;
+                break;
+            case 270:
+                out[0] = 1f - uy;
+                out[1] = ux;
+                break;
+            default:
+                out[0] = ux;
+                out[1] = uy;
+        }
+    }
+
+    /** Inverse of {@link #uprightToBuffer}: maps a normalized buffer point into the upright image. */
+    static void bufferToUpright(float bx, float by, int rotationDegrees, float[] out) {
+        switch (normalizeRotation(rotationDegrees)) {
+            case 90:
+                out[0] = 1f - by;
+                out[1] = bx;
+                break;
+            case 180:
+                out[0] = 1f - bx;
+                out[1] = 1f - by;
+                break;
+            case 270:
+                out[0] = by;
+                out[1] = 1f - bx;
+                break;
+            default:
+                out[0] = bx;
+                out[1] = by;
+        }
+    }
+
+    static boolean isSideways(int rotationDegrees) {
+        int r = normalizeRotation(rotationDegrees);
+        return r == 90 || r == 270;
+    }
+
+    static int normalizeRotation(int rotationDegrees) {
+        int r = rotationDegrees % 360;
+        return r < 0 ? r + 360 : r;
+    }
+
+    static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,107 @@
+package com.bakai.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * On-disk format for recorded luma frames. {@link FrameRingRecorder} dumps are written in it and the replay
+ * harness reads it back.
+ * Big-endian: a file header (magic, version), then per frame a fixed-size header followed by a tightly packed
+ * {@code width * height} Y plane.
+ */
+final class FrameRecording {
+
+    static final int MAGIC = 0x51524652; // "QRFR"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 8;
+    // timestamp, width, height, rotation, zoom, exposure
+    static final int FRAME_HEADER_BYTES = 8 + 4 + 4 + 4 + 4 + 8;
+
+    private FrameRecording() {}
+
+    /** Reads frames back in recording order. Zoom and exposure are informational and not replayed. */
+    static final class Reader implements FrameSource {
+
+        private final DataInputStream in;
+
+        Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC) throw new IOException("Not a frame recording: " + file);
+                final int version = in.readInt();
+                if (version != VERSION) throw new IOException("Unsupported frame recording version " + version);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public LumaFrame next() throws IOException {
+            final long timestampMs;
+            try {
+                timestampMs = in.readLong();
+            } catch (EOFException end) {
+                return null;
+            }
+
+            final int width = in.readInt();
+            final int height = in.readInt();
+            final int rotation = in.readInt();
+            in.readFloat(); // zoom
+            in.readLong(); // exposure
+            if (width <= 0 || height <= 0) throw new IOException("Bad frame size " + width + "x" + height);
+
+            final byte[] plane = new byte[width * height];
+            in.readFully(plane);
+            return new LumaFrame(ByteBuffer.wrap(plane), width, height, width, rotation, timestampMs, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Streams frames to a new recording, packing rows that have padding. */
+    static final class Writer implements AutoCloseable {
+
+        private final DataOutputStream out;
+
+        Writer(File file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        void write(LumaFrame frame, float zoomRatio, long exposureNs) throws IOException {
+            out.writeLong(frame.timestampMs);
+            out.writeInt(frame.width);
+            out.writeInt(frame.height);
+            out.writeInt(frame.rotationDegrees);
+            out.writeFloat(zoomRatio);
+            out.writeLong(exposureNs);
+
+            final ByteBuffer plane = frame.luma.duplicate();
+            final byte[] row = new byte[frame.width];
+            for (int y = 0; y < frame.height; y++) {
+                plane.position(y * frame.rowStride);
+                plane.get(row);
+                out.write(row);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.bakai.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps the luma planes of the last N analyzed frames in buffers allocated up front, for failed-scan diagnostics.
+ * N is also capped by a byte budget, since at 1080p each slot is 2-3 MB. Recording copies rows into the next slot;
+ * the only per-frame allocation is a buffer view for camera planes that expose no array. A dump freezes the ring,
+ * writes it oldest first as a {@link FrameRecording} through a memory-mapped file, and unfreezes it; frames arriving
+ * meanwhile are skipped.
+ */
+final class FrameRingRecorder {
+
+    static final int DEFAULT_CAPACITY = 8;
+    static final int MAX_CAPACITY = 30;
+    // ring size limit whatever the heap
+    static final long MAX_BUDGET_BYTES = 32L << 20;
+
+    private final int requested;
+    private final byte[][] planes;
+    private final long[] timestamps;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[] rotations;
+    private final float[] zooms;
+    private final long[] exposures;
+
+    private int next = 0;
+    private int count = 0;
+    private boolean frozen = false;
+    private long skipped = 0L;
+
+    /**
+     * @param maxFrameBytes largest Y plane (width * height) a slot can hold; larger frames are skipped
+     * @param budgetBytes most the slots may take together; at least one slot is always kept
+     */
+    FrameRingRecorder(int capacity, int maxFrameBytes, long budgetBytes) {
+        requested = Math.max(1, Math.min(capacity, MAX_CAPACITY));
+        final int n = capacityFor(requested, maxFrameBytes, budgetBytes);
+        planes = new byte[n][maxFrameBytes];
+        timestamps = new long[n];
+        widths = new int[n];
+        heights = new int[n];
+        rotations = new int[n];
+        zooms = new float[n];
+        exposures = new long[n];
+    }
+
+    /** Slots that fit {@code budgetBytes}, between 1 and {@code requested}. */
+    static int capacityFor(int requested, int maxFrameBytes, long budgetBytes) {
+        final long fit = maxFrameBytes > 0 ? budgetBytes / maxFrameBytes : requested;
+        return (int) Math.max(1L, Math.min(requested, fit));
+    }
+
+    /** An eighth of the heap, at most {@link #MAX_BUDGET_BYTES}. */
+    static long budgetFor(long maxHeapBytes) {
+        return Math.min(MAX_BUDGET_BYTES, maxHeapBytes / 8);
+    }
+
+    int capacity() {
+        return planes.length;
+    }
+
+    /** Frames asked for, before the budget clamp. */
+    int requested() {
+        return requested;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /** Frames that did not fit a slot or arrived during a dump. */
+    synchronized long skipped() {
+        return skipped;
+    }
+
+    /** Copies the frame's Y plane into the ring. */
+    synchronized void record(LumaFrame frame, float zoomRatio, long exposureNs) {
+        final int w = frame.width;
+        final int h = frame.height;
+        if (frozen || w <= 0 || h <= 0 || (long) w * h > planes[next].length) {
+            skipped++;
+            return;
+        }
+
+        try {
+            final byte[] slot = planes[next];
+            if (frame.luma.hasArray()) {
+                final byte[] src = frame.luma.array();
+                final int base = frame.luma.arrayOffset();
+                for (int y = 0; y < h; y++) System.arraycopy(src, base + y * frame.rowStride, slot, y * w, w);
+            } else {
+                final ByteBuffer plane = frame.luma.duplicate();
+                for (int y = 0; y < h; y++) {
+                    plane.position(y * frame.rowStride);
+                    plane.get(slot, y * w, w);
+                }
+            }
+        } catch (RuntimeException e) {
+            skipped++;
+            return;
+        }
+
+        timestamps[next] = frame.timestampMs;
+        widths[next] = w;
+        heights[next] = h;
+        rotations[next] = frame.rotationDegrees;
+        zooms[next] = zoomRatio;
+        exposures[next] = exposureNs;
+
+        next = (next + 1) % planes.length;
+        if (count < planes.length) count++;
+    }
+
+    /** Writes the ring to {@code file}, oldest frame first. Returns the number of frames written. */
+    int dump(File file) throws IOException {
+        final int first;
+        final int frames;
+        synchronized (this) {
+            if (frozen) throw new IOException("Dump already in progress");
+            frozen = true;
+            frames = count;
+            first = (next - count + planes.length) % planes.length;
+        }
+
+        try {
+            long size = FrameRecording.FILE_HEADER_BYTES;
+            for (int i = 0; i < frames; i++) {
+                final int slot = (first + i) % planes.length;
+                size += FrameRecording.FRAME_HEADER_BYTES + (long) widths[slot] * heights[slot];
+            }
+
+            final File dir = file.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+                raf.setLength(size);
+                final MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                out.putInt(FrameRecording.MAGIC);
+                out.putInt(FrameRecording.VERSION);
+                for (int i = 0; i < frames; i++) {
+                    final int slot = (first + i) % planes.length;
+                    out.putLong(timestamps[slot]);
+                    out.putInt(widths[slot]);
+                    out.putInt(heights[slot]);
+                    out.putInt(rotations[slot]);
+                    out.putFloat(zooms[slot]);
+                    out.putLong(exposures[slot]);
+                    out.put(planes[slot], 0, widths[slot] * heights[slot]);
+                }
+                out.force();
+            }
+            return frames;
+        } finally {
+            synchronized (this) {
+                frozen = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.bakai.plugin;
+
+import java.io.IOException;
+
+/** Pull-based supply of frames, for driving the analyzer without a camera. */
+interface FrameSource extends AutoCloseable {
+    /** Next frame, or null at the end. */
+    LumaFrame next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
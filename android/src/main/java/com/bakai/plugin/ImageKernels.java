@@ -0,0 +1,164 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pixel kernels behind the {@code readBarcodesFromImage} fallback candidates and the paused-scan freeze frame.
+ * Plain int[] ARGB and ByteBuffer planes, no android.graphics, so they can be benchmarked on a desktop JVM.
+ */
+final class ImageKernels {
+
+    static final int WHITE = 0xffffffff;
+    static final int BLACK = 0xff000000;
+
+    static final float HIGH_CONTRAST = 1.55f;
+    private static final float HIGH_CONTRAST_TRANSLATE = (-0.5f * HIGH_CONTRAST + 0.5f) * 255f;
+
+    private static final int BINARY_THRESHOLD_MIN = 80;
+    private static final int BINARY_THRESHOLD_MAX = 190;
+
+    private ImageKernels() {}
+
+    /** BT.601 luma of one ARGB pixel. */
+    static int luminance(int argb) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        return (int) (0.299f * r + 0.587f * g + 0.114f * b);
+    }
+
+    /** Writes the luma of {@code count} pixels into {@code out} and returns their sum. */
+    static long luminance(int[] argb, int[] out, int count) {
+        long sum = 0L;
+        for (int i = 0; i < count; i++) {
+            int luma = luminance(argb[i]);
+            out[i] = luma;
+            sum += luma;
+        }
+        return sum;
+    }
+
+    /** Packs the luma of {@code count} pixels into a Y plane. */
+    static void lumaPlane(int[] argb, byte[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = (byte) luminance(argb[i]);
+        }
+    }
+
+    /** Mean-luma threshold, clamped so mostly-white or mostly-black images still split. */
+    static int binaryThreshold(long lumaSum, int count) {
+        if (count <= 0) return BINARY_THRESHOLD_MIN;
+        int threshold = (int) (lumaSum / count);
+        return Math.max(BINARY_THRESHOLD_MIN, Math.min(BINARY_THRESHOLD_MAX, threshold));
+    }
+
+    /** Global-threshold binarization in place. Luma is computed once and parked in the same array. */
+    static void binarize(int[] pixels, int count) {
+        long sum = luminance(pixels, pixels, count);
+        int threshold = binaryThreshold(sum, count);
+
+        for (int i = 0; i < count; i++) {
+            pixels[i] = pixels[i] >= threshold ? WHITE : BLACK;
+        }
+    }
+
+    /**
+     * Desaturate and stretch contrast around mid-grey in place.
+     * Same result as a saturation-0 ColorMatrix followed by a 1.55 contrast matrix; alpha is kept.
+     */
+    static void highContrast(int[] pixels, int count) {
+        for (int i = 0; i < count; i++) {
+            int c = pixels[i];
+            int r = (c >> 16) & 0xff;
+            int g = (c >> 8) & 0xff;
+            int b = c & 0xff;
+
+            float grey = 0.213f * r + 0.715f * g + 0.072f * b;
+            int v = (int) (HIGH_CONTRAST * grey + HIGH_CONTRAST_TRANSLATE);
+            v = v < 0 ? 0 : (v > 255 ? 255 : v);
+
+            pixels[i] = (c & 0xff000000) | (v << 16) | (v << 8) | v;
+        }
+    }
+
+    /**
+     * Converts a YUV_420_888 image to ARGB (full-range BT.601, as camera frames are), taking every {@code step}-th
+     * pixel of every {@code step}-th row. {@code out} holds {@code (width / step) * (height / step)} pixels.
+     * Planes are read with absolute gets, so their positions are left alone.
+     */
+    static void yuvToArgb(
+        ByteBuffer y,
+        int yRowStride,
+        ByteBuffer u,
+        ByteBuffer v,
+        int uvRowStride,
+        int uvPixelStride,
+        int width,
+        int height,
+        int step,
+        int[] out
+    ) {
+        final int outWidth = width / step;
+        final int outHeight = height / step;
+        int o = 0;
+        for (int row = 0; row < outHeight; row++) {
+            final int sy = row * step;
+            final int yRow = sy * yRowStride;
+            final int uvRow = (sy >> 1) * uvRowStride;
+            for (int col = 0; col < outWidth; col++) {
+                final int sx = col * step;
+                final int uvIndex = uvRow + (sx >> 1) * uvPixelStride;
+                final int l = y.get(yRow + sx) & 0xff;
+                final int cb = (u.get(uvIndex) & 0xff) - 128;
+                final int cr = (v.get(uvIndex) & 0xff) - 128;
+
+                // 16.16 fixed point: 1.402, 0.344, 0.714, 1.772
+                int r = l + ((91881 * cr) >> 16);
+                int g = l - ((22554 * cb + 46802 * cr) >> 16);
+                int b = l + ((116130 * cb) >> 16);
+                r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                b = b < 0 ? 0 : (b > 255 ? 255 : b);
+                out[o++] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /**
+     * Scale that brings the longer side under {@code maxSide}, or the shorter side up to {@code minSide}.
+     * Returns 1 when the image is already in range.
+     */
+    static float decodeScale(int width, int height, int minSide, int maxSide) {
+        if (width <= 0 || height <= 0) return 1f;
+
+        int shorter = Math.min(width, height);
+        int longer = Math.max(width, height);
+
+        float scale = 1f;
+        if (longer > maxSide) {
+            scale = maxSide / (float) longer;
+        } else if (shorter < minSide) {
+            scale = minSide / (float) shorter;
+        }
+        return Math.abs(scale - 1f) < 0.01f ? 1f : scale;
+    }
+
+    static int scaledSide(int side, float scale) {
+        return Math.max(1, Math.round(side * scale));
+    }
+
+    /**
+     * Centred square covering {@code ratio} of the shorter side, as {left, top, side}.
+     * Returns null if the ratio is invalid or the square would not crop anything.
+     */
+    static int[] centeredSquare(int width, int height, float ratio) {
+        if (ratio <= 0f || ratio > 1f) return null;
+
+        int side = Math.max(1, Math.round(Math.min(width, height) * ratio));
+        if (side >= width && side >= height) return null;
+
+        int left = Math.max(0, (width - side) / 2);
+        int top = Math.max(0, (height - side) / 2);
+        return new int[] { left, top, side };
+    }
+}
@@ -0,0 +1,111 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One analysis frame as seen by the analyzer: a view of the luminance (Y) plane plus metadata.
+ * On device the buffer is a read-only view of the camera's own plane and {@link #source()} is the ImageProxy that
+ * owns it; replayed frames have no source. Closing the frame releases the source.
+ * Every stage reads the same plane: take a {@link ByteBuffer#duplicate()} or use absolute gets, never move
+ * {@link #luma}'s position, and copy only where a consumer needs its own array.
+ * A {@link #crop} is a view into part of another frame; {@link #originX}/{@link #originY} place its upright image
+ * in the upright image of the full frame, and decoders add them to everything they report.
+ */
+final class LumaFrame implements AutoCloseable {
+
+    final ByteBuffer luma;
+    final int width;
+    final int height;
+    final int rowStride;
+    final int rotationDegrees;
+    final long timestampMs;
+    final int originX;
+    final int originY;
+
+    private final AutoCloseable source;
+
+    LumaFrame(ByteBuffer luma, int width, int height, int rowStride, int rotationDegrees, long timestampMs, AutoCloseable source) {
+        this(luma, width, height, rowStride, rotationDegrees, timestampMs, source, 0, 0);
+    }
+
+    private LumaFrame(
+        ByteBuffer luma,
+        int width,
+        int height,
+        int rowStride,
+        int rotationDegrees,
+        long timestampMs,
+        AutoCloseable source,
+        int originX,
+        int originY
+    ) {
+        this.luma = luma;
+        this.width = width;
+        this.height = height;
+        this.rowStride = rowStride;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampMs = timestampMs;
+        this.source = source;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    /** A frame over other pixels with the same metadata and origin, e.g. a packed copy of this one. */
+    LumaFrame withPlane(ByteBuffer plane, int stride) {
+        return new LumaFrame(plane, width, height, stride, rotationDegrees, timestampMs, null, originX, originY);
+    }
+
+    /**
+     * Zero-copy view of the part of this frame under {@code upright}, a box in upright pixels. The view has no source:
+     * it must not outlive this frame, and closing it does nothing. Returns null if the box misses the frame.
+     */
+    LumaFrame crop(BarcodeBox upright) {
+        final int uw = uprightWidth();
+        final int uh = uprightHeight();
+        final int left = Math.max(0, upright.left);
+        final int top = Math.max(0, upright.top);
+        final int right = Math.min(uw, upright.right);
+        final int bottom = Math.min(uh, upright.bottom);
+        if (right - left < 2 || bottom - top < 2) return null;
+
+        // rotation maps the upright box onto a buffer rectangle; its corners give the buffer bounds
+        final float[] a = new float[2];
+        final float[] b = new float[2];
+        FrameGeometry.uprightToBuffer(left / (float) uw, top / (float) uh, rotationDegrees, a);
+        FrameGeometry.uprightToBuffer(right / (float) uw, bottom / (float) uh, rotationDegrees, b);
+        final int bl = Math.round(Math.min(a[0], b[0]) * width);
+        final int bt = Math.round(Math.min(a[1], b[1]) * height);
+        final int br = Math.round(Math.max(a[0], b[0]) * width);
+        final int bb = Math.round(Math.max(a[1], b[1]) * height);
+
+        // and back, so the origin matches the rounded buffer rectangle exactly
+        FrameGeometry.bufferToUpright(bl / (float) width, bt / (float) height, rotationDegrees, a);
+        FrameGeometry.bufferToUpright(br / (float) width, bb / (float) height, rotationDegrees, b);
+        final int ox = Math.round(Math.min(a[0], b[0]) * uw);
+        final int oy = Math.round(Math.min(a[1], b[1]) * uh);
+
+        final ByteBuffer view = luma.duplicate();
+        view.position(bt * rowStride + bl);
+        return new LumaFrame(view.slice(), br - bl, bb - bt, rowStride, rotationDegrees, timestampMs, null, originX + ox, originY + oy);
+    }
+
+    AutoCloseable source() {
+        return source;
+    }
+
+    int uprightWidth() {
+        return FrameGeometry.uprightWidth(width, height, rotationDegrees);
+    }
+
+    int uprightHeight() {
+        return FrameGeometry.uprightHeight(width, height, rotationDegrees);
+    }
+
+    @Override
+    public void close() {
+        if (source == null) return;
+        try {
+            source.close();
+        } catch (Exception ignored) {}
+    }
+}
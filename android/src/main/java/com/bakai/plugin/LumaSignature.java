@@ -0,0 +1,98 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tiny downsampled fingerprint of a luminance (Y) plane.
+ * A fixed grid of cells, each the mean of every other pixel on {@link #SAMPLE_ROWS} rows spread over the cell, so a
+ * small code appearing in one cell moves its mean wherever its modules fall; comparing two frames costs a few hundred
+ * reads.
+ */
+final class LumaSignature {
+
+    static final int COLS = 16;
+    static final int ROWS = 12;
+    // rows averaged per cell; about 1/20 of the pixels at 1080p
+    static final int SAMPLE_ROWS = 8;
+
+    private final int[] cells = new int[COLS * ROWS];
+    private boolean valid = false;
+
+    /** Samples the plane into this signature. Does not move the buffer position and does not allocate. */
+    void compute(ByteBuffer plane, int width, int height, int rowStride) {
+        if (plane == null || width < COLS * 2 || height < ROWS * 2 || rowStride < width) {
+            valid = false;
+            return;
+        }
+
+        final int cellW = width / COLS;
+        final int cellH = height / ROWS;
+        final int rowStep = Math.max(1, cellH / SAMPLE_ROWS);
+        final int perRow = (cellW + 1) / 2;
+        final int limit = plane.limit();
+
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLS; col++) cells[row * COLS + col] = 0;
+
+            int rows = 0;
+            for (int y = row * cellH + rowStep / 2; y < (row + 1) * cellH; y += rowStep) {
+                final int base = y * rowStride;
+                for (int col = 0; col < COLS; col++) {
+                    int sum = 0;
+                    for (int x = col * cellW; x < (col + 1) * cellW; x += 2) sum += sample(plane, limit, base + x);
+                    cells[row * COLS + col] += sum;
+                }
+                rows++;
+            }
+            for (int col = 0; col < COLS; col++) cells[row * COLS + col] /= rows * perRow;
+        }
+        valid = true;
+    }
+
+    void copyFrom(LumaSignature other) {
+        if (other == null || !other.valid) {
+            valid = false;
+            return;
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        valid = true;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    /** Mean absolute per-cell difference in luma levels (0..255), or {@link Integer#MAX_VALUE} if either side is empty. */
+    int distance(LumaSignature other) {
+        if (other == null || !valid || !other.valid) return Integer.MAX_VALUE;
+
+        int total = 0;
+        for (int i = 0; i < cells.length; i++) {
+            total += Math.abs(cells[i] - other.cells[i]);
+        }
+        return total / cells.length;
+    }
+
+    /**
+     * Number of cells that differ by more than {@code cellThreshold} luma levels, or {@link #COLS} * {@link #ROWS}
+     * if either side is empty. Catches a small local change that the mean in {@link #distance} would average away.
+     */
+    int changedCells(LumaSignature other, int cellThreshold) {
+        if (other == null || !valid || !other.valid) return cells.length;
+
+        int changed = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (Math.abs(cells[i] - other.cells[i]) > cellThreshold) changed++;
+        }
+        return changed;
+    }
+
+    private static int sample(ByteBuffer plane, int limit, int index) {
+        if (index < 0 || index >= limit) return 0;
+        return plane.get(index) & 0xff;
+    }
+}
@@ -0,0 +1,151 @@
+package com.bakai.plugin;
+
+import android.annotation.SuppressLint;
+import android.graphics.Rect;
+import androidx.camera.core.ImageProxy;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DecoderBackend} on top of ML Kit. Whole camera frames go in as media images, which ML Kit reads in place;
+ * crops, fused, raced and replayed frames as NV21 with grey chroma, staged in one reused direct buffer.
+ * Reports undecoded candidates too, which drive region focus, auto-zoom and the resolution ladder.
+ */
+final class MlKitDecoderBackend implements DecoderBackend {
+
+    private final BarcodeScanner scanner;
+
+    // NV21 staging buffer; held by the decode in flight, a second concurrent decode gets its own
+    private ByteBuffer nv21 = null;
+    private int nv21Width = 0;
+    private int nv21Height = 0;
+    private boolean nv21Busy = false;
+
+    MlKitDecoderBackend() {
+        BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
+            .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
+            .enableAllPotentialBarcodes()
+            .build();
+
+        scanner = BarcodeScanning.getClient(options);
+    }
+
+    @Override
+    public String name() {
+        return MLKIT;
+    }
+
+    @Override
+    @SuppressLint("UnsafeOptInUsageError")
+    public void decode(LumaFrame frame, final Callback<DecodedBarcode> callback) {
+        final InputImage image;
+        final ByteBuffer staged;
+        final AutoCloseable source = frame.source();
+        if (source instanceof ImageProxy && ((ImageProxy) source).getImage() != null) {
+            image = InputImage.fromMediaImage(((ImageProxy) source).getImage(), frame.rotationDegrees);
+            staged = null;
+        } else {
+            staged = stageNv21(frame);
+            image = InputImage.fromByteBuffer(staged, frame.width, frame.height, frame.rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+        }
+
+        scanner
+            .process(image)
+            .addOnSuccessListener((barcodes) -> callback.onResult(toResult(barcodes, frame.originX, frame.originY)))
+            .addOnFailureListener((e) -> callback.onFailure(e != null ? String.valueOf(e.getMessage()) : "Unknown error"))
+            .addOnCanceledListener(() -> callback.onFailure("Decode cancelled"))
+            .addOnCompleteListener((task) -> releaseNv21(staged));
+    }
+
+    @Override
+    public void close() {
+        try {
+            scanner.close();
+        } catch (Exception ignored) {}
+    }
+
+    /** Maps ML Kit's results into full-frame coordinates; {@code dx}/{@code dy} are the origin of a cropped frame. */
+    private static DecodeResult<DecodedBarcode> toResult(List<Barcode> barcodes, int dx, int dy) {
+        final List<Barcode> decoded = Payloads.filterDecoded(barcodes, BarcodeMapper.PAYLOAD);
+        final List<DecodedBarcode> mapped = new ArrayList<>(decoded.size());
+        BarcodeBox bounds = null;
+        for (Barcode barcode : decoded) {
+            final DecodedBarcode d = BarcodeMapper.toDecoded(barcode, dx, dy);
+            mapped.add(d);
+            bounds = BarcodeBox.union(bounds, d.box);
+        }
+        final BarcodeBox largest = largestBoundingBox(barcodes);
+        return new DecodeResult<>(mapped, barcodes != null ? barcodes.size() : 0, largest != null ? largest.offset(dx, dy) : null, bounds);
+    }
+
+    static BarcodeBox largestBoundingBox(List<Barcode> barcodes) {
+        if (barcodes == null || barcodes.isEmpty()) return null;
+
+        Rect best = null;
+        long bestArea = 0L;
+        for (Barcode barcode : barcodes) {
+            if (barcode == null) continue;
+            Rect box = barcode.getBoundingBox();
+            if (box == null || box.isEmpty()) continue;
+
+            long area = (long) box.width() * box.height();
+            if (area > bestArea) {
+                best = box;
+                bestArea = area;
+            }
+        }
+        return best != null ? new BarcodeBox(best.left, best.top, best.right, best.bottom) : null;
+    }
+
+    /**
+     * Packs the Y plane into an NV21 buffer with neutral chroma; only used for frames without a camera image.
+     * The chroma half is only written when the frame size changes.
+     */
+    private synchronized ByteBuffer stageNv21(LumaFrame frame) {
+        final int w = frame.width;
+        final int h = frame.height;
+        final int size = w * h + 2 * ((w + 1) / 2) * ((h + 1) / 2);
+
+        final ByteBuffer out;
+        if (nv21Busy) {
+            out = ByteBuffer.allocateDirect(size);
+            fillChroma(out, w * h, size);
+        } else {
+            if (nv21 == null || nv21.capacity() < size) nv21 = ByteBuffer.allocateDirect(size);
+            if (nv21Width != w || nv21Height != h) {
+                fillChroma(nv21, w * h, size);
+                nv21Width = w;
+                nv21Height = h;
+            }
+            nv21Busy = true;
+            out = nv21;
+        }
+
+        out.clear();
+        final ByteBuffer plane = frame.luma.duplicate();
+        for (int y = 0; y < h; y++) {
+            plane.limit(Math.min(plane.capacity(), y * frame.rowStride + w));
+            plane.position(y * frame.rowStride);
+            out.position(y * w);
+            out.put(plane);
+        }
+        out.position(0);
+        out.limit(size);
+        return out;
+    }
+
+    private synchronized void releaseNv21(ByteBuffer staged) {
+        if (staged != null && staged == nv21) nv21Busy = false;
+    }
+
+    private static void fillChroma(ByteBuffer out, int from, int to) {
+        out.clear();
+        for (int i = from; i < to; i++) out.put(i, (byte) 128);
+    }
+}
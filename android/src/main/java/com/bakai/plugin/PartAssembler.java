@@ -0,0 +1,185 @@
+package com.bakai.plugin;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the parts of payloads split across several symbols and reports each set once it is complete.
+ * Two schemes are recognized: QR structured append (sequence and parity from the decoder) and an app-level
+ * header such as {@code "2/5:"}, {@code "part 2 of 5|"} or {@code "2/5#INV-7:"}, where the optional id keeps
+ * documents with the same part count apart. Sets that get no new part within {@link #SET_TIMEOUT_MS} are
+ * dropped, and at most {@link #MAX_SETS} are kept, so stray parts cannot pile up. Thread-safe.
+ */
+final class PartAssembler {
+
+    static final int MAX_SETS = 8;
+    // structured append allows 16 symbols; app headers are capped the same
+    static final int MAX_PARTS = 16;
+    static final int MAX_SET_CHARS = 64 * 1024;
+    static final long SET_TIMEOUT_MS = 10_000L;
+
+    private static final Pattern HEADER = Pattern.compile(
+        "^\\s*(?:part\\s*)?(\\d{1,2})\\s*(?:/|of)\\s*(\\d{1,2})(?:\\s*#\\s*([\\w.-]{1,32}))?\\s*[:|]\\s?",
+        Pattern.CASE_INSENSITIVE
+    );
+
+    /** One symbol's share of a set. */
+    static final class Part {
+
+        final String key;
+        final int index;
+        final int total;
+        final String data;
+        final String format;
+
+        Part(String key, int index, int total, String data, String format) {
+            this.key = key;
+            this.index = index;
+            this.total = total;
+            this.data = data;
+            this.format = format;
+        }
+
+        /** The part {@code b} carries, or null if it is a complete payload of its own. */
+        static Part of(DecodedBarcode b) {
+            final String raw = b.rawValue != null ? b.rawValue : b.displayValue;
+            if (raw == null) return null;
+
+            if (b.appendSequence >= 0) {
+                final int index = (b.appendSequence >> 4) & 0x0F;
+                final int total = (b.appendSequence & 0x0F) + 1;
+                // the parity is the same in every symbol of a set, and differs between sets
+                return total > 1 && index < total ? new Part("SA:" + b.appendParity + ":" + total, index, total, raw, b.format) : null;
+            }
+
+            final Matcher m = HEADER.matcher(raw);
+            if (!m.find()) return null;
+            final int index = Integer.parseInt(m.group(1)) - 1;
+            final int total = Integer.parseInt(m.group(2));
+            if (total < 2 || total > MAX_PARTS || index < 0 || index >= total) return null;
+            final String id = m.group(3) != null ? m.group(3) : "";
+            return new Part(id + "/" + total, index, total, raw.substring(m.end()), b.format);
+        }
+    }
+
+    /** What changed in a set: progress, and the joined payload once the last part came in. */
+    static final class Update {
+
+        final String key;
+        final int total;
+        final int received;
+        final int[] missing;
+        final String format;
+        // null until complete
+        final String payload;
+
+        Update(String key, int total, int received, int[] missing, String format, String payload) {
+            this.key = key;
+            this.total = total;
+            this.received = received;
+            this.missing = missing;
+            this.format = format;
+            this.payload = payload;
+        }
+
+        boolean isComplete() {
+            return payload != null;
+        }
+    }
+
+    private static final class PartSet {
+
+        final String[] parts;
+        int received = 0;
+        int chars = 0;
+        long updatedAtMs;
+
+        PartSet(int total, long now) {
+            parts = new String[total];
+            updatedAtMs = now;
+        }
+    }
+
+    // access order, so the first entry is the one touched longest ago
+    private final LinkedHashMap<String, PartSet> sets = new LinkedHashMap<>(MAX_SETS, 0.75f, true);
+    private long evicted = 0;
+
+    /** Sets dropped incomplete, by timeout or to make room. */
+    synchronized long evicted() {
+        return evicted;
+    }
+
+    synchronized int pendingSets() {
+        return sets.size();
+    }
+
+    synchronized void reset() {
+        sets.clear();
+    }
+
+    /**
+     * Adds {@code part}. Returns an update if the part was new, or null if it was seen before or does not fit
+     * its set. A completed set is forgotten, so scanning the same document again starts over.
+     */
+    synchronized Update add(Part part, long now) {
+        expire(now);
+
+        PartSet set = sets.get(part.key);
+        if (set == null) {
+            if (sets.size() >= MAX_SETS) evictOldest();
+            set = new PartSet(part.total, now);
+            sets.put(part.key, set);
+        }
+        if (set.parts[part.index] != null) return null;
+        if (set.chars + part.data.length() > MAX_SET_CHARS) {
+            sets.remove(part.key);
+            evicted++;
+            return null;
+        }
+
+        set.parts[part.index] = part.data;
+        set.received++;
+        set.chars += part.data.length();
+        set.updatedAtMs = now;
+
+        if (set.received < set.parts.length) {
+            return new Update(part.key, part.total, set.received, missing(set), part.format, null);
+        }
+
+        sets.remove(part.key);
+        final StringBuilder joined = new StringBuilder(set.chars);
+        for (String s : set.parts) joined.append(s);
+        return new Update(part.key, part.total, set.received, new int[0], part.format, joined.toString());
+    }
+
+    private void expire(long now) {
+        final Iterator<Map.Entry<String, PartSet>> it = sets.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().updatedAtMs > SET_TIMEOUT_MS) {
+                it.remove();
+                evicted++;
+            }
+        }
+    }
+
+    private void evictOldest() {
+        final Iterator<String> it = sets.keySet().iterator();
+        if (!it.hasNext()) return;
+        it.next();
+        it.remove();
+        evicted++;
+    }
+
+    /** 1-based numbers of the parts still missing, as shown on the labels. */
+    private static int[] missing(PartSet set) {
+        final int[] out = new int[set.parts.length - set.received];
+        int n = 0;
+        for (int i = 0; i < set.parts.length && n < out.length; i++) {
+            if (set.parts[i] == null) out[n++] = i + 1;
+        }
+        return out;
+    }
+}
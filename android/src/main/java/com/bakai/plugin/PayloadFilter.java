@@ -0,0 +1,173 @@
+package com.bakai.plugin;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Declarative payload filters from {@code startScan}, compiled once and checked in the analyzer before a read counts
+ * as a success. A read passes if any rule accepts it; within a rule every condition that is set must hold.
+ * Payload is the raw value, or the display value if there is none.
+ */
+final class PayloadFilter implements FrameAnalyzer.ReadFilter<DecodedBarcode> {
+
+    /** One rule; unset conditions accept anything. */
+    static final class Rule {
+
+        // any of these
+        final String[] prefixes;
+        // found anywhere; anchor with ^ and $ for a full match
+        final Pattern pattern;
+        final int minLength;
+        final int maxLength;
+        final boolean gs1CheckDigit;
+        // JS value type names
+        final Set<String> valueTypes;
+
+        Rule(String[] prefixes, Pattern pattern, int minLength, int maxLength, boolean gs1CheckDigit, Set<String> valueTypes) {
+            this.prefixes = prefixes;
+            this.pattern = pattern;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.gs1CheckDigit = gs1CheckDigit;
+            this.valueTypes = valueTypes;
+        }
+
+        boolean accepts(String payload, String valueType) {
+            final int length = payload.length();
+            if (length < minLength || length > maxLength) return false;
+            if (valueTypes != null && (valueType == null || !valueTypes.contains(valueType))) return false;
+            if (prefixes != null && !startsWithAny(payload, prefixes)) return false;
+            if (gs1CheckDigit && !hasValidGs1CheckDigit(payload)) return false;
+            return pattern == null || pattern.matcher(payload).find();
+        }
+    }
+
+    private final Rule[] rules;
+
+    PayloadFilter(Rule... rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public boolean accepts(DecodedBarcode read) {
+        final String payload = Payloads.payloadKey(read.rawValue, read.displayValue);
+        if (payload == null) return false;
+        for (Rule rule : rules) {
+            if (rule.accepts(payload, read.valueType)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compiles the {@code payloadFilters} option. Returns null for a missing or empty list.
+     * Throws IllegalArgumentException for a rule that cannot match anything as written, such as a bad pattern.
+     */
+    static PayloadFilter compile(JSONArray specs) {
+        if (specs == null || specs.length() == 0) return null;
+        final Rule[] rules = new Rule[specs.length()];
+        for (int i = 0; i < rules.length; i++) {
+            final JSONObject spec = specs.optJSONObject(i);
+            if (spec == null) throw new IllegalArgumentException("payloadFilters[" + i + "] is not an object");
+            rules[i] = rule(spec, i);
+        }
+        return new PayloadFilter(rules);
+    }
+
+    private static Rule rule(JSONObject spec, int index) {
+        String[] prefixes = null;
+        final Object prefix = spec.opt("prefix");
+        if (prefix instanceof JSONArray) {
+            final JSONArray list = (JSONArray) prefix;
+            prefixes = new String[list.length()];
+            for (int i = 0; i < prefixes.length; i++) prefixes[i] = list.optString(i, "");
+        } else if (prefix instanceof String) {
+            prefixes = new String[] { (String) prefix };
+        }
+
+        Pattern pattern = null;
+        final String regex = spec.optString("pattern", "");
+        if (!regex.isEmpty()) {
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("payloadFilters[" + index + "].pattern: " + e.getDescription());
+            }
+        }
+
+        final int minLength = Math.max(0, spec.optInt("minLength", 0));
+        final int maxLength = spec.optInt("maxLength", Integer.MAX_VALUE);
+        if (maxLength < minLength) throw new IllegalArgumentException("payloadFilters[" + index + "]: maxLength < minLength");
+
+        Set<String> valueTypes = null;
+        final JSONArray types = spec.optJSONArray("valueTypes");
+        if (types != null) {
+            valueTypes = new HashSet<>();
+            for (int i = 0; i < types.length(); i++) valueTypes.add(types.optString(i, ""));
+        }
+
+        return new Rule(prefixes, pattern, minLength, maxLength, spec.optBoolean("gs1CheckDigit", false), valueTypes);
+    }
+
+    private static boolean startsWithAny(String payload, String[] prefixes) {
+        for (String p : prefixes) {
+            if (payload.startsWith(p)) return true;
+        }
+        return false;
+    }
+
+    // ===== GS1 =====
+
+    /**
+     * True if the payload carries a GS1 key with a valid mod-10 check digit: a bare GTIN-8/12/13/14 or SSCC, or an
+     * element string starting with AI (01) GTIN or (00) SSCC, with or without parentheses, symbology identifier or
+     * leading FNC1.
+     */
+    static boolean hasValidGs1CheckDigit(String payload) {
+        String s = payload;
+        if (s.length() >= 3 && s.charAt(0) == ']') s = s.substring(3);
+        if (!s.isEmpty() && s.charAt(0) == '\u001d') s = s.substring(1);
+
+        if (isDigits(s, 0, s.length())) {
+            final int n = s.length();
+            if (n == 8 || n == 12 || n == 13 || n == 14 || n == 18) return mod10(s, 0, n);
+        }
+
+        final boolean bracketed = s.startsWith("(");
+        final int dataAt = bracketed ? 4 : 2;
+        String ai = "";
+        if (bracketed) {
+            if (s.length() >= 4 && s.charAt(3) == ')') ai = s.substring(1, 3);
+        } else if (s.length() >= 2) {
+            ai = s.substring(0, 2);
+        }
+        final int keyLength = "01".equals(ai) ? 14 : "00".equals(ai) ? 18 : 0;
+        if (keyLength == 0 || s.length() < dataAt + keyLength || !isDigits(s, dataAt, dataAt + keyLength)) return false;
+        return mod10(s, dataAt, dataAt + keyLength);
+    }
+
+    /** GS1 mod-10 over {@code s[from, to)}, the last digit being the check digit. */
+    private static boolean mod10(String s, int from, int to) {
+        int sum = 0;
+        // weights 3,1,3,... from the digit left of the check digit
+        boolean three = true;
+        for (int i = to - 2; i >= from; i--) {
+            final int d = s.charAt(i) - '0';
+            sum += three ? 3 * d : d;
+            three = !three;
+        }
+        return (10 - sum % 10) % 10 == s.charAt(to - 1) - '0';
+    }
+
+    private static boolean isDigits(String s, int from, int to) {
+        if (to <= from) return false;
+        for (int i = from; i < to; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package com.bakai.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Payload checks shared by the live scanner and image decoding, independent of the decoder's result type. */
+final class Payloads {
+
+    interface Accessor<T> {
+        String rawValue(T item);
+
+        String displayValue(T item);
+    }
+
+    private Payloads() {}
+
+    static boolean hasPayload(String rawValue, String displayValue) {
+        return !isBlank(rawValue) || !isBlank(displayValue);
+    }
+
+    /**
+     * Keeps items with a non-blank payload, dropping repeats of the same payload within the list.
+     * ML Kit can report one symbol twice in a frame; emitting it twice only costs bridge traffic.
+     * Lists are a handful of items, so repeats are found by a linear scan rather than a set.
+     */
+    static <T> List<T> filterDecoded(List<T> items, Accessor<T> accessor) {
+        List<T> decoded = new ArrayList<>();
+        if (items == null || items.isEmpty()) return decoded;
+
+        for (T item : items) {
+            if (item == null) continue;
+
+            String key = payloadKey(accessor.rawValue(item), accessor.displayValue(item));
+            if (key == null) continue;
+            if (containsPayload(decoded, accessor, key)) continue;
+            decoded.add(item);
+        }
+        return decoded;
+    }
+
+    /** Raw value if present, else display value, else null. */
+    static String payloadKey(String rawValue, String displayValue) {
+        if (!isBlank(rawValue)) return rawValue;
+        if (!isBlank(displayValue)) return displayValue;
+        return null;
+    }
+
+    private static <T> boolean containsPayload(List<T> items, Accessor<T> accessor, String key) {
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (key.equals(payloadKey(accessor.rawValue(item), accessor.displayValue(item)))) return true;
+        }
+        return false;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,60 @@
+package com.bakai.plugin;
+
+/**
+ * Idle/active state machine for the low-power scanning mode.
+ * Starts ACTIVE, drops to IDLE after a quiet period with no motion and no barcode candidates,
+ * and goes back to ACTIVE as soon as either shows up. Fed from both the analysis thread and ML Kit callbacks.
+ */
+final class PowerModeController {
+
+    enum State {
+        ACTIVE,
+        IDLE
+    }
+
+    static final long DEFAULT_QUIET_PERIOD_MS = 4000L;
+
+    private final long quietPeriodMs;
+
+    private State state = State.ACTIVE;
+    private long lastActivityAtMs = 0L;
+
+    PowerModeController(long quietPeriodMs) {
+        this.quietPeriodMs = quietPeriodMs > 0 ? quietPeriodMs : DEFAULT_QUIET_PERIOD_MS;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized boolean isIdle() {
+        return state == State.IDLE;
+    }
+
+    /** Resets to ACTIVE, counting {@code nowMs} as the last activity. */
+    synchronized void reset(long nowMs) {
+        state = State.ACTIVE;
+        lastActivityAtMs = nowMs;
+    }
+
+    /**
+     * Reports something worth scanning for: scene motion, a potential barcode or a decode.
+     * Returns true if this escalated IDLE to ACTIVE.
+     */
+    synchronized boolean onActivity(long nowMs) {
+        lastActivityAtMs = nowMs;
+        if (state == State.ACTIVE) return false;
+
+        state = State.ACTIVE;
+        return true;
+    }
+
+    /** Re-evaluates the quiet period. Returns true if this de-escalated ACTIVE to IDLE. */
+    synchronized boolean onTick(long nowMs) {
+        if (state == State.IDLE) return false;
+        if ((nowMs - lastActivityAtMs) < quietPeriodMs) return false;
+
+        state = State.IDLE;
+        return true;
+    }
+}
@@ -2,39 +2,51 @@ package com.bakai.plugin;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.PowerManager;
 import android.os.SystemClock;
 import android.util.Size;
 import android.view.Surface;
+import androidx.camera.camera2.interop.Camera2CameraInfo;
+import androidx.camera.camera2.interop.Camera2Interop;
 import androidx.camera.core.Camera;
+import androidx.camera.core.CameraInfo;
 import androidx.camera.core.CameraSelector;
+import androidx.camera.core.CameraState;
+import androidx.camera.core.FocusMeteringAction;
 import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.MeteringPoint;
 import androidx.camera.core.Preview;
+import androidx.camera.core.SurfaceOrientedMeteringPointFactory;
 import androidx.camera.core.TorchState;
 import androidx.camera.core.ZoomState;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
-import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.common.InputImage;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class QrCodeScanner {
 
     private final Context context;
-    private final BarcodeScanner scanner;
 
     private ExecutorService cameraExecutor;
     private final Executor mainExecutor;
@@ -43,33 +55,116 @@ public class QrCodeScanner {
     private Camera camera;
     private ImageAnalysis analysis;
     private Preview preview;
+    private CameraSelector selector;
+    private boolean frontCamera = false;
+    private int targetRotation = Surface.ROTATION_0;
+
+    // analysis resolution: requested ceiling and the one currently bound
+    private int maxResolution = 2;
+    private int boundResolution = -1;
 
     private volatile boolean paused = false;
 
+    private final ScanMetrics metrics = new ScanMetrics();
+    // analysis, decode and background threads; restarted the same way on every start
+    private final ScanThreads threads = new ScanThreads(ScanThreads.ANDROID, metrics);
+    // decoder engine, chosen before start
+    private String decoderName = DecoderBackend.MLKIT;
+    private volatile DecoderBackend decoder = null;
+
+    // skip frames that look like the last miss (fixed kiosk scanners)
+    private boolean staticSceneSkip = false;
+
+    // skip motion-blurred frames before the decoder
+    private boolean sharpnessGate = true;
+
+    // multi-frame fusion for noisy low-light frames
+    private boolean frameFusion = false;
+
+    // step resolution and rate down as the device heats up (API 29+)
+    private boolean thermalThrottling = true;
+    // PowerManager.OnThermalStatusChangedListener; Object so older runtimes never resolve the type
+    private Object thermalListener = null;
+
+    // join multi-symbol payloads natively; null when off
+    private boolean assembleParts = false;
+    private volatile PartAssembler partAssembler = null;
+
+    // decode a crop around the last decoded code
+    private boolean regionTracking = false;
+
+    // app-side payload rules; null = every read is reported
+    private PayloadFilter payloadFilter = null;
+
+    // durable copy of every reported read; null when off
+    private ScanJournal journal = null;
+    private String journalSessionId = null;
+
+    // startup phase stamps for this session; null when not timed
+    private StartupTimings.Session startupTimings = null;
+
+    // capture request settings for preview and analysis; null = camera defaults
+    private String captureProfileName = CaptureProfile.DEFAULT;
+    private CaptureProfile captureProfile = null;
+    // CameraX applies the profile's request options on its own thread, after bindToLifecycle has returned; a camera
+    // that rejects them reports ERROR_STREAM_CONFIG or never delivers a frame, so the first frame is awaited
+    private static final long PROFILE_FIRST_FRAME_TIMEOUT_MS = 4000L;
+    private volatile boolean frameSinceBind = false;
+    private Observer<CameraState> profileStateObserver = null;
+    private PreviewView boundPreviewView = null;
+    private final Runnable profileWatchdog = this::onProfileFirstFrameTimeout;
+
+    // decoder racing: after this many misses in a row both engines get the frame; 0 = off
+    private int raceAfterMisses = 0;
+    // the race's own engines; the analysis path's decoder is never shared with a lane
+    private volatile DecoderBackend racePrimary = null;
+    private volatile DecoderBackend raceDecoder = null;
+    private volatile FrameAnalyzer<DecodedBarcode> frameAnalyzer = null;
+
     // zoom
     private volatile Float pendingZoomRatio = null;
     private volatile Float lastRequestedZoomRatio = null;
+    // start at the zoom last set on this camera
+    private boolean restoreZoom = false;
+
+    // what this device's cameras reported in earlier sessions; answers zoom/torch queries before CameraX does
+    private final CameraConfigCache cameraCache;
+    private volatile String cameraId = null;
+    private volatile CameraConfigCache.Entry cachedConfig = null;
+    // record the size the next analysis frame arrives in
+    private volatile boolean analysisSizePending = false;
 
     // analyzer
     private ImageAnalysis.Analyzer analyzer;
     private boolean analyzerAttached = false;
 
-    // MLKit guard
-    private volatile boolean processing = false;
+    // low-power idle mode
+    private PowerModeController powerController = null;
+
+    // progressive resolution: VGA first, step up while candidates stay undecoded
+    private boolean progressiveResolution = false;
+
+    // AF/AE on undecoded candidates; step auto-zoom stays the fallback when nothing is detected
+    private boolean regionFocus = true;
+    private static final long FOCUS_AUTO_CANCEL_MS = 3000L;
 
-    // perf throttle
-    private volatile long lastAnalyzeAtMs = 0L;
-    private volatile long cooldownUntilMs = 0L;
-    private static final long ANALYZE_INTERVAL_MS = 70L;
-    private static final long SUCCESS_COOLDOWN_MS = 350L;
+    // failed-scan diagnostics: ring of recent luma planes, dumped on a miss streak or on request
+    private int diagnosticFrames = 0;
+    private volatile FrameRingRecorder frameRecorder = null;
+    private volatile long lastExposureNs = 0L;
+    private static final String DIAGNOSTICS_DIR = "qr-diagnostics";
 
-    // adaptive zoom for difficult/blurred QRs
-    private volatile int consecutiveDecodeMisses = 0;
-    private volatile long lastAutoZoomAtMs = 0L;
-    private static final int AUTO_ZOOM_MISS_THRESHOLD = 8;
-    private static final long AUTO_ZOOM_INTERVAL_MS = 500L;
-    private static final float AUTO_ZOOM_STEP = 0.18f;
-    private static final float AUTO_ZOOM_SOFT_MAX = 3.0f;
+    // paused-scan freeze frame taken from the next analysis frame (SurfaceView preview has no cheap bitmap)
+    private final AtomicReference<FreezeFrameCallback> pendingFreezeFrame = new AtomicReference<>();
+    private static final int FREEZE_FRAME_MAX_SIDE = 1280;
+
+    private final CameraCaptureSession.CaptureCallback exposureCallback = new CameraCaptureSession.CaptureCallback() {
+        @Override
+        public void onCaptureCompleted(CameraCaptureSession session, CaptureRequest request, TotalCaptureResult result) {
+            Long exposure = result.get(CaptureResult.SENSOR_EXPOSURE_TIME);
+            if (exposure != null) lastExposureNs = exposure;
+        }
+    };
 
     // zoom observer
     private LifecycleOwner lastOwner = null;
@@ -104,40 +199,231 @@ public class QrCodeScanner {
         }
     };
 
+    private final FrameAnalyzer.CameraControls cameraControls = new FrameAnalyzer.CameraControls() {
+        @Override
+        public void onResolutionChanged() {
+            mainExecutor.execute(QrCodeScanner.this::rebindAnalysis);
+        }
+
+        @Override
+        public void startFocus(float x, float y, float size) {
+            startRegionFocus(x, y, size);
+        }
+
+        @Override
+        public void cancelFocus() {
+            final Camera cam = camera;
+            if (cam == null) return;
+
+            try {
+                cam.getCameraControl().cancelFocusAndMetering();
+            } catch (Exception ignored) {}
+        }
+
+        @Override
+        public boolean readZoom(float[] out) {
+            final Camera cam = camera;
+            if (cam == null) return false;
+
+            try {
+                ZoomState zs = cam.getCameraInfo().getZoomState().getValue();
+                if (zs == null) return false;
+                out[0] = zs.getZoomRatio();
+                out[1] = zs.getMinZoomRatio();
+                out[2] = zs.getMaxZoomRatio();
+                return true;
+            } catch (Exception ignored) {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean isZoomUserControlled() {
+            return lastRequestedZoomRatio != null;
+        }
+
+        @Override
+        public void setZoom(float ratio) {
+            final Camera cam = camera;
+            if (cam == null) return;
+
+            try {
+                cam.getCameraControl().setZoomRatio(ratio);
+            } catch (Exception ignored) {}
+        }
+
+        @Override
+        public long exposureTimeNs() {
+            return lastExposureNs;
+        }
+
+        @Override
+        public void onThermalTierChanged(ThermalController.Tier tier) {
+            final Callback cb = lastCallback;
+            if (cb != null) mainExecutor.execute(() -> cb.onThermalTierChanged(tier.name(), tier.animateOverlay));
+        }
+    };
+
     public interface Callback {
-        void onBarcodes(List<Barcode> barcodes);
+        void onBarcodes(List<DecodedBarcode> barcodes);
         void onError(String message);
         void onZoomReady(float minRatio, float maxRatio, float currentRatio);
+        void onDiagnosticFramesSaved(String path, int frames);
+        void onPartProgress(PartAssembler.Update update);
+        void onPartsAssembled(PartAssembler.Update update);
+        void onThermalTierChanged(String tier, boolean animateOverlay);
+        /** The first decode of the session came in; every phase this session will reach is stamped. */
+        void onStartupTimings(StartupTimings.Session timings);
+    }
+
+    public interface DiagnosticsCallback {
+        void onSaved(String path, int frames);
+        void onError(String message);
+    }
+
+    /** Main thread; only called while the scan is still paused. */
+    public interface FreezeFrameCallback {
+        void onFrame(Bitmap frame);
     }
 
     public QrCodeScanner(Context context) {
         this.context = context.getApplicationContext();
+        mainExecutor = ContextCompat.getMainExecutor(this.context);
+        cameraCache = CameraConfigCache.forDevice(this.context);
+    }
 
-        BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
-            .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
-            .enableAllPotentialBarcodes()
-            .build();
+    /**
+     * Enables the low-power idle mode: after {@code quietPeriodMs} without motion or barcode candidates the analysis
+     * drops to low resolution and rate, and escalates back on the next sign of activity. Call before {@link #start}.
+     */
+    public void setLowPowerIdle(boolean enabled, long quietPeriodMs) {
+        powerController = enabled ? new PowerModeController(quietPeriodMs) : null;
+    }
 
-        scanner = BarcodeScanning.getClient(options);
+    /**
+     * Starts analysis at 640x480 and steps up towards the requested resolution only while ML Kit keeps reporting
+     * barcodes it cannot decode. Call before {@link #start}.
+     */
+    public void setProgressiveResolution(boolean enabled) {
+        progressiveResolution = enabled;
+    }
 
-        cameraExecutor = Executors.newSingleThreadExecutor(
-            new ThreadFactory() {
-                @Override
-                public Thread newThread(Runnable r) {
-                    return new Thread(
-                        () -> {
-                            try {
-                                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
-                            } catch (Exception ignored) {}
-                            r.run();
-                        },
-                        "QrCodeScannerAnalysis"
-                    );
-                }
-            }
-        );
+    /** Points focus and metering at barcodes ML Kit finds but cannot decode. On by default. Call before {@link #start}. */
+    public void setRegionFocus(boolean enabled) {
+        regionFocus = enabled;
+    }
 
-        mainExecutor = ContextCompat.getMainExecutor(this.context);
+    /**
+     * Keeps the luma planes of the last {@code frames} analyzed frames for {@link #exportDiagnosticFrames}; they are
+     * also dumped automatically on a long miss streak. 0 (default) turns recording off. Call before {@link #start}.
+     */
+    public void setDiagnosticFrames(int frames) {
+        diagnosticFrames = Math.max(0, Math.min(frames, FrameRingRecorder.MAX_CAPACITY));
+    }
+
+    /** {@link DecoderBackend#MLKIT} (default) or {@link DecoderBackend#ZXING}. Call before {@link #start}. */
+    public void setDecoder(String name) {
+        decoderName = DecoderBackend.ZXING.equals(name) ? DecoderBackend.ZXING : DecoderBackend.MLKIT;
+    }
+
+    /** Skips frames that show the same scene as the last undecoded one. Off by default. Call before {@link #start}. */
+    public void setStaticSceneSkip(boolean enabled) {
+        staticSceneSkip = enabled;
+    }
+
+    /** Skips motion-blurred frames instead of decoding them. On by default. Call before {@link #start}. */
+    public void setSharpnessGate(boolean enabled) {
+        sharpnessGate = enabled;
+    }
+
+    /**
+     * Once single frames keep failing, averages a few aligned consecutive frames into one less noisy plane and decodes
+     * that instead. Off by default. Call before {@link #start}.
+     */
+    public void setFrameFusion(boolean enabled) {
+        frameFusion = enabled;
+    }
+
+    /**
+     * Linux nice value (-8 to 19) for the scanner's threads of {@code role}, applied from the next {@link #start}.
+     * Defaults: analysis -1, decode 0, background 10.
+     */
+    public void setThreadPriority(String role, int priority) {
+        for (ScanThreads.Role r : ScanThreads.Role.values()) {
+            if (r.name().equalsIgnoreCase(role)) threads.setPriority(r, priority);
+        }
+    }
+
+    /**
+     * Follows the platform thermal status (Android 10+): steps analysis resolution and rate down and pauses the
+     * overlay animation as the device heats up, and back once it has cooled. On by default. Call before {@link #start}.
+     */
+    public void setThermalThrottling(boolean enabled) {
+        thermalThrottling = enabled;
+    }
+
+    /**
+     * Collects parts of multi-symbol payloads (QR structured append, or "i/n:" headers) and reports them as progress
+     * and one assembled payload instead of as single barcodes. Off by default. Call before {@link #start}.
+     */
+    public void setAssembleParts(boolean enabled) {
+        assembleParts = enabled;
+    }
+
+    /** Starts at the zoom the app last set on this camera, in an earlier session too. Off by default. Call before {@link #start}. */
+    public void setRestoreZoom(boolean enabled) {
+        restoreZoom = enabled;
+    }
+
+    /**
+     * Drops reads the app does not want before they are reported; they do not start the success cooldown either.
+     * Null reports every read. Call before {@link #start}.
+     */
+    public void setPayloadFilter(PayloadFilter filter) {
+        payloadFilter = filter;
+    }
+
+    /**
+     * Queues every reported read into {@code journal} under {@code sessionId} before the callback sees it.
+     * Null turns journaling off. Call before {@link #start}.
+     */
+    public void setJournal(ScanJournal journal, String sessionId) {
+        this.journal = journal;
+        this.journalSessionId = sessionId;
+    }
+
+    /** Stamps camera and pipeline startup phases into {@code timings}. Call before {@link #start}. */
+    public void setStartupTimings(StartupTimings.Session timings) {
+        startupTimings = timings;
+    }
+
+    /**
+     * Capture settings for the session: {@code "BARCODE"} asks for a high fixed frame rate (shorter exposure, less
+     * motion blur) and fast noise reduction and edge modes, where the camera supports them; {@code "DEFAULT"} leaves
+     * the camera's own. Falls back to the defaults if the camera refuses the settings. Call before {@link #start}.
+     */
+    public void setCaptureProfile(String profile) {
+        captureProfileName = CaptureProfile.BARCODE.equalsIgnoreCase(profile) ? CaptureProfile.BARCODE : CaptureProfile.DEFAULT;
+    }
+
+    /**
+     * After a decode, decodes only a crop around where the code is expected in the next frames, with a full-frame
+     * search every few frames and whenever the code is lost. Off by default. Call before {@link #start}.
+     */
+    public void setRegionTracking(boolean enabled) {
+        regionTracking = enabled;
+    }
+
+    /**
+     * After {@code misses} undecoded frames in a row, sends each frame to both engines at once and takes whichever
+     * decodes first, until the next decode. 0 (default) turns racing off. Call before {@link #start}.
+     */
+    public void setRaceAfterMisses(int misses) {
+        raceAfterMisses = Math.max(0, misses);
+    }
+
+    ScanMetrics getMetrics() {
+        return metrics;
     }
 
     @SuppressLint("UnsafeOptInUsageError")
@@ -147,9 +433,7 @@ public class QrCodeScanner {
         lastOwner = owner;
         lastCallback = callback;
 
-        if (cameraExecutor == null || cameraExecutor.isShutdown()) {
-            cameraExecutor = Executors.newSingleThreadExecutor();
-        }
+        cameraExecutor = threads.executor(ScanThreads.Role.ANALYSIS, null);
 
         final ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(context);
 
@@ -157,106 +441,141 @@ public class QrCodeScanner {
             () -> {
                 try {
                     provider = future.get();
+                    markStartup(StartupTimings.Phase.CAMERA_PROVIDER);
 
-                    Size targetSize;
-                    switch (resolution) {
-                        case 0:
-                            targetSize = new Size(640, 480);
-                            break;
-                        case 2:
-                            targetSize = new Size(1920, 1080);
-                            break;
-                        default:
-                            targetSize = new Size(1280, 720);
-                    }
-
-                    CameraSelector selector = "FRONT".equals(lensFacing)
+                    frontCamera = "FRONT".equals(lensFacing);
+                    selector = frontCamera
                         ? CameraSelector.DEFAULT_FRONT_CAMERA
                         : CameraSelector.DEFAULT_BACK_CAMERA;
 
-                    preview = new Preview.Builder().build();
+                    final CameraInfo selectedCamera = selectedCameraInfo(provider, selector);
+                    cameraId = cameraIdOf(selectedCamera);
+                    cachedConfig = cameraCache.get(cameraId);
+
+                    captureProfile = CaptureProfile.BARCODE.equals(captureProfileName) ? CaptureProfile.barcodeFor(selectedCamera) : null;
+                    if (captureProfile != null && captureProfile.isEmpty()) captureProfile = null;
+                    metrics.captureProfile = captureProfile != null ? CaptureProfile.BARCODE : CaptureProfile.DEFAULT;
+
+                    preview = buildPreview();
                     preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-                    int rotation = Surface.ROTATION_0;
+                    targetRotation = Surface.ROTATION_0;
                     try {
-                        if (previewView.getDisplay() != null) rotation = previewView.getDisplay().getRotation();
+                        if (previewView.getDisplay() != null) targetRotation = previewView.getDisplay().getRotation();
                     } catch (Exception ignored) {}
 
-                    analysis = new ImageAnalysis.Builder()
-                        .setTargetResolution(targetSize)
-                        .setTargetRotation(rotation)
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .setImageQueueDepth(1)
-                        .build();
+                    maxResolution = resolution;
+                    partAssembler = assembleParts ? new PartAssembler() : null;
+                    final DecoderBackend backend = createDecoder(decoderName);
+                    decoder = backend;
+                    metrics.decoder = backend.name();
+
+                    final FrameAnalyzer<DecodedBarcode> pipeline = new FrameAnalyzer<>(
+                        backend,
+                        SystemClock::elapsedRealtime,
+                        metrics,
+                        cameraControls,
+                        new FrameAnalyzer.Listener<DecodedBarcode>() {
+                            @Override
+                            public void onBarcodes(List<DecodedBarcode> barcodes) {
+                                final List<DecodedBarcode> whole = assembleParts(barcodes, callback);
+                                journal(whole);
+                                if (!whole.isEmpty()) callback.onBarcodes(whole);
+
+                                final StartupTimings.Session timings = startupTimings;
+                                if (timings != null && timings.elapsed(StartupTimings.Phase.FIRST_DECODE) >= 0 && timings.finish()) {
+                                    callback.onStartupTimings(timings);
+                                }
+                            }
 
-                    processing = false;
-                    lastAnalyzeAtMs = 0L;
-                    cooldownUntilMs = 0L;
-                    consecutiveDecodeMisses = 0;
-                    lastAutoZoomAtMs = 0L;
+                            @Override
+                            public void onError(String message) {
+                                callback.onError(message);
+                            }
+
+                            @Override
+                            public void onMissStreak(int misses) {
+                                if (frameRecorder == null) return;
+                                dumpDiagnostics(
+                                    "miss-streak",
+                                    new DiagnosticsCallback() {
+                                        @Override
+                                        public void onSaved(String path, int frames) {
+                                            callback.onDiagnosticFramesSaved(path, frames);
+                                        }
+
+                                        @Override
+                                        public void onError(String message) {}
+                                    }
+                                );
+                            }
+                        },
+                        resolution,
+                        powerController,
+                        progressiveResolution ? new ResolutionLadder(Math.min(resolution, 2)) : null,
+                        regionFocus ? new FocusRegionController() : null
+                    );
+                    if (paused) pipeline.pause();
+                    final FrameRingRecorder recorder = createRecorder(resolution);
+                    frameRecorder = recorder;
+                    pipeline.setRecorder(recorder);
+                    pipeline.setStaticSceneSkip(staticSceneSkip);
+                    if (sharpnessGate) pipeline.setSharpnessGate(new SharpnessGate());
+                    if (frameFusion) pipeline.setFusion(new FrameFusion(FrameFusion.DEFAULT_WINDOW));
+                    if (regionTracking) pipeline.setRegionTracker(new RegionTracker());
+                    pipeline.setStartupTimings(startupTimings);
+                    pipeline.setReadFilter(payloadFilter);
+                    if (raceAfterMisses > 0) pipeline.setRacer(createRacer(backend), raceAfterMisses);
+                    if (thermalThrottling && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                        pipeline.setThermal(new ThermalController());
+                        registerThermalListener(pipeline);
+                    }
+                    frameAnalyzer = pipeline;
+
+                    boundResolution = desiredResolution();
+                    analysis = buildAnalysis(boundResolution);
+                    metrics.analysisResolution = boundResolution;
 
                     analyzer = (imageProxy) -> {
                         try {
-                            if (paused || imageProxy.getImage() == null) {
+                            if (imageProxy.getImage() == null) {
                                 imageProxy.close();
                                 return;
                             }
 
-                            final long now = SystemClock.elapsedRealtime();
-
-                            if (now < cooldownUntilMs) {
-                                imageProxy.close();
-                                return;
+                            if (!frameSinceBind) {
+                                frameSinceBind = true;
+                                mainHandler.post(this::stopWatchingCaptureProfile);
                             }
 
-                            if (ANALYZE_INTERVAL_MS > 0 && (now - lastAnalyzeAtMs) < ANALYZE_INTERVAL_MS) {
-                                imageProxy.close();
-                                return;
+                            if (analysisSizePending) {
+                                analysisSizePending = false;
+                                cameraCache.putAnalysisSize(cameraId, boundResolution, imageProxy.getWidth(), imageProxy.getHeight());
                             }
 
-                            if (processing) {
-                                imageProxy.close();
+                            final FreezeFrameCallback freezeFrame = pendingFreezeFrame.getAndSet(null);
+                            if (freezeFrame != null) {
+                                deliverFreezeFrame(imageProxy, freezeFrame);
                                 return;
                             }
 
-                            processing = true;
-                            lastAnalyzeAtMs = now;
-
-                            InputImage inputImage = InputImage.fromMediaImage(
-                                imageProxy.getImage(),
-                                imageProxy.getImageInfo().getRotationDegrees()
+                            // gate, tracker, recorder and decoders all read this one plane in place
+                            final ImageProxy.PlaneProxy luma = imageProxy.getPlanes()[0];
+                            pipeline.onFrame(
+                                new LumaFrame(
+                                    luma.getBuffer().asReadOnlyBuffer(),
+                                    imageProxy.getWidth(),
+                                    imageProxy.getHeight(),
+                                    luma.getRowStride(),
+                                    imageProxy.getImageInfo().getRotationDegrees(),
+                                    SystemClock.elapsedRealtime(),
+                                    imageProxy
+                                )
                             );
-
-                            scanner
-                                .process(inputImage)
-                                .addOnSuccessListener((barcodes) -> {
-                                    List<Barcode> decoded = filterDecodedBarcodes(barcodes);
-                                    if (!decoded.isEmpty()) {
-                                        consecutiveDecodeMisses = 0;
-                                        cooldownUntilMs = SystemClock.elapsedRealtime() + SUCCESS_COOLDOWN_MS;
-                                        callback.onBarcodes(decoded);
-                                        return;
-                                    }
-
-                                    consecutiveDecodeMisses++;
-                                    maybeAutoZoom();
-                                })
-                                .addOnFailureListener((e) -> {
-                                    consecutiveDecodeMisses++;
-                                    maybeAutoZoom();
-                                    callback.onError(e != null ? String.valueOf(e.getMessage()) : "Unknown error");
-                                })
-                                .addOnCompleteListener((t) -> {
-                                    try {
-                                        imageProxy.close();
-                                    } catch (Exception ignored) {}
-                                    processing = false;
-                                });
                         } catch (Exception e) {
                             try {
                                 imageProxy.close();
                             } catch (Exception ignored) {}
-                            processing = false;
                             callback.onError(e.getMessage() != null ? e.getMessage() : "Unknown error");
                         }
                     };
@@ -265,13 +584,31 @@ public class QrCodeScanner {
                     analyzerAttached = true;
 
                     provider.unbindAll();
-                    camera = provider.bindToLifecycle(owner, selector, preview, analysis);
+                    boundPreviewView = previewView;
+                    frameSinceBind = false;
+                    try {
+                        camera = provider.bindToLifecycle(owner, selector, preview, analysis);
+                    } catch (Exception e) {
+                        // rare: a rejected profile usually surfaces later, see watchCaptureProfile
+                        if (captureProfile == null) throw e;
+                        rebindWithoutProfile();
+                    }
+                    watchCaptureProfile(owner);
+                    markStartup(StartupTimings.Phase.CAMERA_BOUND);
+                    observeFirstPreviewFrame(owner, previewView);
+                    analysisSizePending = true;
+                    cameraCache.putFlash(cameraId, camera.getCameraInfo().hasFlashUnit());
 
                     observeZoomState(owner, callback);
 
-                    // ✅ если zoom уже просили раньше — попробуем применить сразу
-                    if (pendingZoomRatio != null) {
-                        tryApplyPendingZoomNow();
+                    final CameraConfigCache.Entry cached = cachedConfig;
+                    if (pendingZoomRatio == null && restoreZoom && cached != null && !Float.isNaN(cached.lastZoom)) {
+                        lastRequestedZoomRatio = cached.lastZoom;
+                        pendingZoomRatio = cached.lastZoom;
+                    }
+
+                    // ✅ если zoom уже просили раньше — попробуем применить сразу (с границами из кэша — без ожидания ZoomState)
+                    if (pendingZoomRatio != null && !tryApplyPendingZoomNow()) {
                         scheduleZoomRetry();
                     }
                 } catch (Exception e) {
@@ -282,6 +619,265 @@ public class QrCodeScanner {
         );
     }
 
+    private static DecoderBackend createDecoder(String name) {
+        if (DecoderBackend.ZXING.equals(name)) return new ZxingDecoderBackend(false);
+        return new MlKitDecoderBackend();
+    }
+
+    /**
+     * Races the selected engine against the other one, each on its own thread and its own instance: a losing ZXing
+     * lane can still be decoding after the race settles, and the analysis thread must not queue behind it.
+     */
+    private RacingDecoder<DecodedBarcode> createRacer(DecoderBackend selected) {
+        final String otherName = DecoderBackend.ZXING.equals(selected.name()) ? DecoderBackend.MLKIT : DecoderBackend.ZXING;
+        final DecoderBackend primary = createDecoder(selected.name());
+        final DecoderBackend other = createDecoder(otherName);
+        racePrimary = primary;
+        raceDecoder = other;
+        return new RacingDecoder<>(
+            new RacingDecoder.Entrant<DecodedBarcode>(primary.name(), primary, threads.executor(ScanThreads.Role.DECODE, primary.name())),
+            new RacingDecoder.Entrant<DecodedBarcode>(other.name(), other, threads.executor(ScanThreads.Role.DECODE, other.name())),
+            metrics
+        );
+    }
+
+    private Preview buildPreview() {
+        Preview.Builder builder = new Preview.Builder();
+        if (captureProfile != null) captureProfile.applyTo(builder);
+        return builder.build();
+    }
+
+    @SuppressLint("UnsafeOptInUsageError")
+    private ImageAnalysis buildAnalysis(int resolution) {
+        ImageAnalysis.Builder builder = new ImageAnalysis.Builder()
+            .setTargetResolution(resolutionSize(resolution))
+            .setTargetRotation(targetRotation)
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+            .setImageQueueDepth(1);
+
+        // exposure time for the diagnostics frame headers
+        if (frameRecorder != null) new Camera2Interop.Extender<>(builder).setSessionCaptureCallback(exposureCallback);
+        // same request options as the preview, so the two streams do not ask for different fps ranges
+        if (captureProfile != null) captureProfile.applyTo(builder);
+        return builder.build();
+    }
+
+    /** The diagnostics ring, held to a share of the heap; null when off or when even that does not fit. */
+    private FrameRingRecorder createRecorder(int resolution) {
+        metrics.diagnosticFrameCapacity = 0;
+        if (diagnosticFrames <= 0) return null;
+        try {
+            final FrameRingRecorder recorder = new FrameRingRecorder(
+                diagnosticFrames,
+                recorderFrameBytes(resolution),
+                FrameRingRecorder.budgetFor(Runtime.getRuntime().maxMemory())
+            );
+            metrics.diagnosticFrameCapacity = recorder.capacity();
+            return recorder;
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    /** The size this camera granted for the tier before, else the worst case. */
+    private int recorderFrameBytes(int resolution) {
+        final CameraConfigCache.Entry cached = cachedConfig;
+        final int[] size = cached != null ? cached.analysisSize(resolution) : null;
+        return size != null ? size[0] * size[1] : maxFrameBytes(resolution);
+    }
+
+    /** Largest Y plane a tier can deliver; CameraX may pick a 4:3 size around the 16:9 target. */
+    private static int maxFrameBytes(int resolution) {
+        Size size = resolutionSize(resolution);
+        int side = Math.max(size.getWidth(), size.getHeight());
+        return side * side * 3 / 4;
+    }
+
+    private static Size resolutionSize(int resolution) {
+        switch (resolution) {
+            case 0:
+                return new Size(640, 480);
+            case 2:
+                return new Size(1920, 1080);
+            default:
+                return new Size(1280, 720);
+        }
+    }
+
+    /** Until the first frame, falls back to the camera defaults if the bound profile breaks the stream. Main thread. */
+    private void watchCaptureProfile(LifecycleOwner owner) {
+        if (captureProfile == null || camera == null) return;
+        profileStateObserver = (state) -> {
+            final CameraState.StateError error = state != null ? state.getError() : null;
+            if (error != null && error.getCode() == CameraState.ERROR_STREAM_CONFIG) fallBackToDefaultProfile();
+        };
+        camera.getCameraInfo().getCameraState().observe(owner, profileStateObserver);
+        mainHandler.postDelayed(profileWatchdog, PROFILE_FIRST_FRAME_TIMEOUT_MS);
+    }
+
+    private void stopWatchingCaptureProfile() {
+        mainHandler.removeCallbacks(profileWatchdog);
+        final Camera cam = camera;
+        try {
+            if (cam != null && profileStateObserver != null) cam.getCameraInfo().getCameraState().removeObserver(profileStateObserver);
+        } catch (Exception ignored) {}
+        profileStateObserver = null;
+    }
+
+    private void onProfileFirstFrameTimeout() {
+        // a detached analyzer (paused scan) gets no frames whatever the profile
+        if (analyzerAttached && !frameSinceBind) fallBackToDefaultProfile();
+    }
+
+    /** The camera accepted the profile at bind time but could not run it; once per session. Main thread. */
+    private void fallBackToDefaultProfile() {
+        if (captureProfile == null || provider == null || lastOwner == null || boundPreviewView == null) return;
+        try {
+            rebindWithoutProfile();
+        } catch (Exception e) {
+            if (lastCallback != null) lastCallback.onError(e.getMessage() != null ? e.getMessage() : "Failed to rebind camera");
+        }
+    }
+
+    /** Binds preview and analysis again with the camera's default request options. */
+    private void rebindWithoutProfile() {
+        stopWatchingCaptureProfile();
+        captureProfile = null;
+        metrics.captureProfile = CaptureProfile.DEFAULT;
+        metrics.captureProfileFallbacks.incrementAndGet();
+        provider.unbindAll();
+
+        preview = buildPreview();
+        preview.setSurfaceProvider(boundPreviewView.getSurfaceProvider());
+        analysis.clearAnalyzer();
+        analysis = buildAnalysis(boundResolution);
+        analysisSizePending = true;
+        if (analyzerAttached && analyzer != null) analysis.setAnalyzer(cameraExecutor, analyzer);
+        camera = provider.bindToLifecycle(lastOwner, selector, preview, analysis);
+    }
+
+    private int desiredResolution() {
+        final FrameAnalyzer<DecodedBarcode> pipeline = frameAnalyzer;
+        return pipeline != null ? pipeline.desiredResolution() : maxResolution;
+    }
+
+    /** Swaps the ImageAnalysis use case for one at the desired resolution. Preview stays bound. */
+    private void rebindAnalysis() {
+        final int resolution = desiredResolution();
+        if (resolution == boundResolution) return;
+        if (provider == null || lastOwner == null || selector == null || analysis == null) return;
+
+        try {
+            final ImageAnalysis previous = analysis;
+            try {
+                previous.clearAnalyzer();
+            } catch (Exception ignored) {}
+            provider.unbind(previous);
+
+            analysis = buildAnalysis(resolution);
+            boundResolution = resolution;
+            metrics.analysisResolution = resolution;
+            analysisSizePending = true;
+            if (analyzerAttached && analyzer != null && cameraExecutor != null) {
+                analysis.setAnalyzer(cameraExecutor, analyzer);
+            }
+
+            camera = provider.bindToLifecycle(lastOwner, selector, analysis);
+        } catch (Exception e) {
+            if (lastCallback != null) lastCallback.onError(e.getMessage() != null ? e.getMessage() : "Failed to rebind analysis");
+        }
+    }
+
+    private void startRegionFocus(float x, float y, float size) {
+        final Camera cam = camera;
+        final ImageAnalysis useCase = analysis;
+        if (cam == null || useCase == null) return;
+
+        try {
+            MeteringPoint point = new SurfaceOrientedMeteringPointFactory(1f, 1f, useCase).createPoint(x, y, size);
+            FocusMeteringAction action = new FocusMeteringAction.Builder(point, FocusMeteringAction.FLAG_AF | FocusMeteringAction.FLAG_AE)
+                .setAutoCancelDuration(FOCUS_AUTO_CANCEL_MS, TimeUnit.MILLISECONDS)
+                .build();
+            cam.getCameraControl().startFocusAndMetering(action);
+        } catch (Exception ignored) {}
+    }
+
+    // ===== Diagnostics =====
+
+    /** Dumps the diagnostic frame ring to app storage and reports the file path. */
+    public void exportDiagnosticFrames(DiagnosticsCallback callback) {
+        dumpDiagnostics("export", callback);
+    }
+
+    private void dumpDiagnostics(String name, DiagnosticsCallback callback) {
+        final FrameRingRecorder recorder = frameRecorder;
+        if (recorder == null) {
+            callback.onError("Diagnostic frames are not enabled");
+            return;
+        }
+
+        final File file = new File(new File(context.getFilesDir(), DIAGNOSTICS_DIR), name + ".qrfr");
+        threads.executor(ScanThreads.Role.BACKGROUND, null).execute(() -> {
+            try {
+                final int frames = recorder.dump(file);
+                metrics.diagnosticDumps.incrementAndGet();
+                mainExecutor.execute(() -> callback.onSaved(file.getAbsolutePath(), frames));
+            } catch (Exception e) {
+                final String message = e.getMessage() != null ? e.getMessage() : "Failed to save diagnostic frames";
+                mainExecutor.execute(() -> callback.onError(message));
+            }
+        });
+    }
+
+    /** The camera {@code selector} picks, known before binding; null if the provider does not list it. */
+    private static CameraInfo selectedCameraInfo(ProcessCameraProvider provider, CameraSelector selector) {
+        try {
+            final List<CameraInfo> cameras = selector.filter(provider.getAvailableCameraInfos());
+            return cameras != null && !cameras.isEmpty() ? cameras.get(0) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @SuppressLint("UnsafeOptInUsageError")
+    private static String cameraIdOf(CameraInfo camera) {
+        if (camera == null) return null;
+        try {
+            return Camera2CameraInfo.from(camera).getCameraId();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void journal(List<DecodedBarcode> reads) {
+        final ScanJournal j = journal;
+        if (j == null || reads.isEmpty()) return;
+        final long now = System.currentTimeMillis();
+        for (DecodedBarcode b : reads) j.append(journalSessionId, b.format, Payloads.payloadKey(b.rawValue, b.displayValue), now);
+    }
+
+    private void markStartup(StartupTimings.Phase phase) {
+        final StartupTimings.Session timings = startupTimings;
+        if (timings != null) timings.mark(phase, SystemClock.elapsedRealtime());
+    }
+
+    private void observeFirstPreviewFrame(LifecycleOwner owner, PreviewView previewView) {
+        if (startupTimings == null) return;
+
+        final LiveData<PreviewView.StreamState> state = previewView.getPreviewStreamState();
+        state.observe(
+            owner,
+            new Observer<PreviewView.StreamState>() {
+                @Override
+                public void onChanged(PreviewView.StreamState streamState) {
+                    if (streamState != PreviewView.StreamState.STREAMING) return;
+                    markStartup(StartupTimings.Phase.FIRST_PREVIEW_FRAME);
+                    state.removeObserver(this);
+                }
+            }
+        );
+    }
+
     private void observeZoomState(LifecycleOwner owner, Callback callback) {
         if (camera == null) return;
 
@@ -296,6 +892,7 @@ public class QrCodeScanner {
 
             // уведомление о границах/текущем
             callback.onZoomReady(zs.getMinZoomRatio(), zs.getMaxZoomRatio(), zs.getZoomRatio());
+            cameraCache.putZoomBounds(cameraId, zs.getMinZoomRatio(), zs.getMaxZoomRatio());
 
             // ✅ главное: как только ZoomState появился — применяем pending
             if (pendingZoomRatio != null) {
@@ -321,23 +918,85 @@ public class QrCodeScanner {
         final Float want = pendingZoomRatio;
         if (cam == null || want == null) return false;
 
-        ZoomState zs = cam.getCameraInfo().getZoomState().getValue();
-        if (zs == null) return false;
+        // до первого ZoomState — границы из прошлой сессии
+        final ZoomState zs = cam.getCameraInfo().getZoomState().getValue();
+        final CameraConfigCache.Entry cached = cachedConfig;
+        final float clamped;
+        if (zs != null) {
+            clamped = Math.max(zs.getMinZoomRatio(), Math.min(zs.getMaxZoomRatio(), want));
+        } else if (cached != null && cached.hasZoomBounds()) {
+            clamped = cached.clampZoom(want);
+        } else {
+            return false;
+        }
 
-        float clamped = Math.max(zs.getMinZoomRatio(), Math.min(zs.getMaxZoomRatio(), want));
         try {
             cam.getCameraControl().setZoomRatio(clamped);
             pendingZoomRatio = null;
             zoomRetryStartMs = 0L;
+            cameraCache.putLastZoom(cameraId, clamped);
             return true;
         } catch (Exception ignored) {
             return false;
         }
     }
 
+    private void registerThermalListener(final FrameAnalyzer<DecodedBarcode> pipeline) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return;
+        unregisterThermalListener();
+        try {
+            final PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (pm == null) return;
+            final PowerManager.OnThermalStatusChangedListener listener = pipeline::onThermalStatus;
+            pipeline.onThermalStatus(pm.getCurrentThermalStatus());
+            pm.addThermalStatusListener(mainExecutor, listener);
+            thermalListener = listener;
+        } catch (Exception ignored) {}
+    }
+
+    private void unregisterThermalListener() {
+        final Object listener = thermalListener;
+        thermalListener = null;
+        if (listener == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return;
+        try {
+            final PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (pm != null) pm.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) listener);
+        } catch (Exception ignored) {}
+    }
+
+    /** Feeds parts to the assembler and reports them; returns the barcodes that are not parts. */
+    private List<DecodedBarcode> assembleParts(List<DecodedBarcode> barcodes, Callback callback) {
+        final PartAssembler assembler = partAssembler;
+        if (assembler == null) return barcodes;
+
+        final List<DecodedBarcode> whole = new ArrayList<>(barcodes.size());
+        for (DecodedBarcode barcode : barcodes) {
+            final PartAssembler.Part part = PartAssembler.Part.of(barcode);
+            if (part == null) {
+                whole.add(barcode);
+                continue;
+            }
+
+            final PartAssembler.Update update = assembler.add(part, SystemClock.elapsedRealtime());
+            metrics.partSetsEvicted.set(assembler.evicted());
+            if (update == null) continue;
+            metrics.partsCollected.incrementAndGet();
+            if (update.isComplete()) {
+                metrics.partsAssembled.incrementAndGet();
+                callback.onPartsAssembled(update);
+            } else {
+                callback.onPartProgress(update);
+            }
+        }
+        return whole;
+    }
+
     public void stop() {
         paused = true;
-        processing = false;
+        pendingFreezeFrame.set(null);
+        final FrameAnalyzer<DecodedBarcode> pipeline = frameAnalyzer;
+        if (pipeline != null) pipeline.pause();
+        unregisterThermalListener();
 
         // остановить zoom retry
         try {
@@ -354,6 +1013,7 @@ public class QrCodeScanner {
                     }
                 } catch (Exception ignored) {}
                 zoomObserver = null;
+                stopWatchingCaptureProfile();
 
                 if (analysis != null) {
                     try {
@@ -367,61 +1027,130 @@ public class QrCodeScanner {
             camera = null;
             analysis = null;
             preview = null;
+            selector = null;
+            captureProfile = null;
+            boundPreviewView = null;
+            boundResolution = -1;
+            frameAnalyzer = null;
+            frameRecorder = null;
+            partAssembler = null;
 
             analyzer = null;
             analyzerAttached = false;
 
             pendingZoomRatio = null;
             lastRequestedZoomRatio = null;
-            consecutiveDecodeMisses = 0;
-            lastAutoZoomAtMs = 0L;
 
             lastOwner = null;
             lastCallback = null;
-
-            lastAnalyzeAtMs = 0L;
-            cooldownUntilMs = 0L;
         });
 
-        try {
-            scanner.close();
-        } catch (Exception ignored) {}
-
-        if (cameraExecutor != null) {
-            cameraExecutor.shutdown();
-            cameraExecutor = null;
-        }
+        final DecoderBackend backend = decoder;
+        if (backend != null) backend.close();
+        final DecoderBackend racePrimaryBackend = racePrimary;
+        racePrimary = null;
+        if (racePrimaryBackend != null) racePrimaryBackend.close();
+        final DecoderBackend raceBackend = raceDecoder;
+        raceDecoder = null;
+        if (raceBackend != null) raceBackend.close();
+
+        // a dump already queued still finishes
+        threads.shutdown();
+        cameraExecutor = null;
     }
 
     /** PAUSE: останавливаем анализатор */
     public void pause() {
+        pause(null);
+    }
+
+    /**
+     * Pauses like {@link #pause()}; if {@code freezeFrame} is set, the analyzer stays attached for one more frame,
+     * which is converted to a bitmap for it instead of being analyzed.
+     */
+    public void pause(FreezeFrameCallback freezeFrame) {
         paused = true;
-        processing = false;
-        consecutiveDecodeMisses = 0;
+        final FrameAnalyzer<DecodedBarcode> pipeline = frameAnalyzer;
+        if (pipeline != null) pipeline.pause();
+
+        pendingFreezeFrame.set(freezeFrame);
+        if (freezeFrame == null || !analyzerAttached) detachAnalyzer();
+
+        // zoom retry не трогаем: можно оставить, но чтобы не крутился зря — остановим
+        try {
+            mainHandler.removeCallbacks(zoomRetryRunnable);
+        } catch (Exception ignored) {}
+        zoomRetryScheduled = false;
+        zoomRetryStartMs = 0L;
+    }
 
+    private void detachAnalyzer() {
         final ImageAnalysis localAnalysis = analysis;
         if (localAnalysis != null && analyzerAttached) {
             mainExecutor.execute(() -> {
+                // resumed before this ran
+                if (!paused) return;
                 try {
                     localAnalysis.clearAnalyzer();
                 } catch (Exception ignored) {}
                 analyzerAttached = false;
             });
         }
+    }
 
-        // zoom retry не трогаем: можно оставить, но чтобы не крутился зря — остановим
+    /** Analysis thread: turns the frame into an upright bitmap as the preview shows it, then detaches the analyzer. */
+    private void deliverFreezeFrame(ImageProxy imageProxy, FreezeFrameCallback callback) {
+        Bitmap frame = null;
         try {
-            mainHandler.removeCallbacks(zoomRetryRunnable);
-        } catch (Exception ignored) {}
-        zoomRetryScheduled = false;
-        zoomRetryStartMs = 0L;
+            final ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+            final int width = imageProxy.getWidth();
+            final int height = imageProxy.getHeight();
+            final int step = Math.max(1, (Math.max(width, height) + FREEZE_FRAME_MAX_SIDE - 1) / FREEZE_FRAME_MAX_SIDE);
+            final int outWidth = width / step;
+            final int outHeight = height / step;
+
+            final int[] argb = new int[outWidth * outHeight];
+            ImageKernels.yuvToArgb(
+                planes[0].getBuffer(),
+                planes[0].getRowStride(),
+                planes[1].getBuffer(),
+                planes[2].getBuffer(),
+                planes[1].getRowStride(),
+                planes[1].getPixelStride(),
+                width,
+                height,
+                step,
+                argb
+            );
+            frame = Bitmap.createBitmap(argb, outWidth, outHeight, Bitmap.Config.ARGB_8888);
+
+            final int rotation = imageProxy.getImageInfo().getRotationDegrees();
+            if (rotation != 0 || frontCamera) {
+                final Matrix matrix = new Matrix();
+                matrix.postRotate(rotation);
+                // the preview mirrors the front camera
+                if (frontCamera) matrix.postScale(-1f, 1f);
+                frame = Bitmap.createBitmap(frame, 0, 0, outWidth, outHeight, matrix, false);
+            }
+        } catch (Exception ignored) {
+        } finally {
+            imageProxy.close();
+        }
+
+        final Bitmap result = frame;
+        mainExecutor.execute(() -> {
+            if (!paused) return;
+            if (result != null) callback.onFrame(result);
+        });
+        if (paused) detachAnalyzer();
     }
 
     /** RESUME: возвращаем анализатор и перезапускаем применение zoom */
     public void resume() {
         paused = false;
-        consecutiveDecodeMisses = 0;
-        lastAutoZoomAtMs = 0L;
+        pendingFreezeFrame.set(null);
+        final FrameAnalyzer<DecodedBarcode> pipeline = frameAnalyzer;
+        if (pipeline != null) pipeline.resume();
 
         final ImageAnalysis localAnalysis = analysis;
         final ExecutorService localExecutor = cameraExecutor;
@@ -453,11 +1182,16 @@ public class QrCodeScanner {
     // ===== Torch =====
 
     public boolean isTorchAvailable() {
-        return camera != null && camera.getCameraInfo().hasFlashUnit();
+        if (camera != null) return camera.getCameraInfo().hasFlashUnit();
+        final CameraConfigCache.Entry cached = cachedConfig;
+        return cached != null && Boolean.TRUE.equals(cached.hasFlash);
     }
 
+    /** True once the zoom bounds are known, from CameraX or from an earlier session. */
     public boolean isZoomReady() {
-        return camera != null && camera.getCameraInfo().getZoomState().getValue() != null;
+        if (camera != null && camera.getCameraInfo().getZoomState().getValue() != null) return true;
+        final CameraConfigCache.Entry cached = cachedConfig;
+        return cached != null && cached.hasZoomBounds();
     }
 
     public boolean isTorchEnabled() {
@@ -496,15 +1230,17 @@ public class QrCodeScanner {
     }
 
     public float getMinZoomRatio() {
-        if (camera == null) return 1f;
-        ZoomState zs = camera.getCameraInfo().getZoomState().getValue();
-        return zs != null ? zs.getMinZoomRatio() : 1f;
+        ZoomState zs = camera != null ? camera.getCameraInfo().getZoomState().getValue() : null;
+        if (zs != null) return zs.getMinZoomRatio();
+        final CameraConfigCache.Entry cached = cachedConfig;
+        return cached != null && cached.hasZoomBounds() ? cached.minZoom : 1f;
     }
 
     public float getMaxZoomRatio() {
-        if (camera == null) return 1f;
-        ZoomState zs = camera.getCameraInfo().getZoomState().getValue();
-        return zs != null ? zs.getMaxZoomRatio() : 1f;
+        ZoomState zs = camera != null ? camera.getCameraInfo().getZoomState().getValue() : null;
+        if (zs != null) return zs.getMaxZoomRatio();
+        final CameraConfigCache.Entry cached = cachedConfig;
+        return cached != null && cached.hasZoomBounds() ? cached.maxZoom : 1f;
     }
 
     public void setZoomRatio(float ratio) {
@@ -519,54 +1255,4 @@ public class QrCodeScanner {
             scheduleZoomRetry();
         }
     }
-
-    private static List<Barcode> filterDecodedBarcodes(List<Barcode> barcodes) {
-        List<Barcode> decoded = new ArrayList<>();
-        if (barcodes == null || barcodes.isEmpty()) return decoded;
-
-        for (Barcode barcode : barcodes) {
-            if (barcode == null) continue;
-            if (!hasPayload(barcode)) continue;
-            decoded.add(barcode);
-        }
-        return decoded;
-    }
-
-    private static boolean hasPayload(Barcode barcode) {
-        if (barcode == null) return false;
-
-        String raw = barcode.getRawValue();
-        if (raw != null && !raw.trim().isEmpty()) return true;
-
-        String display = barcode.getDisplayValue();
-        return display != null && !display.trim().isEmpty();
-    }
-
-    private void maybeAutoZoom() {
-        if (lastRequestedZoomRatio != null) return; // user-controlled zoom has priority
-        if (consecutiveDecodeMisses < AUTO_ZOOM_MISS_THRESHOLD) return;
-        if (camera == null) return;
-
-        long now = SystemClock.elapsedRealtime();
-        if ((now - lastAutoZoomAtMs) < AUTO_ZOOM_INTERVAL_MS) return;
-
-        ZoomState zs;
-        try {
-            zs = camera.getCameraInfo().getZoomState().getValue();
-        } catch (Exception ignored) {
-            return;
-        }
-        if (zs == null) return;
-
-        float maxAllowed = Math.min(zs.getMaxZoomRatio(), AUTO_ZOOM_SOFT_MAX);
-        float current = zs.getZoomRatio();
-
-        if (current >= (maxAllowed - 0.01f)) return;
-
-        float target = Math.min(maxAllowed, current + AUTO_ZOOM_STEP);
-        try {
-            camera.getCameraControl().setZoomRatio(target);
-            lastAutoZoomAtMs = now;
-        } catch (Exception ignored) {}
-    }
 }
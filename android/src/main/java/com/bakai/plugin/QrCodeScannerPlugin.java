@@ -5,17 +5,16 @@ import android.content.ContentResolver;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
 import android.net.Uri;
+import android.os.Process;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.view.ViewParent;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 import androidx.camera.view.PreviewView;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.PermissionState;
 import com.getcapacitor.Plugin;
@@ -33,25 +32,56 @@ import com.google.mlkit.vision.codescanner.GmsBarcodeScannerOptions;
 import com.google.mlkit.vision.codescanner.GmsBarcodeScanning;
 import com.google.mlkit.vision.common.InputImage;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.json.JSONObject;
 
 @CapacitorPlugin(name = "QrCodeScanner", permissions = { @Permission(strings = Manifest.permission.CAMERA, alias = "camera") })
 public class QrCodeScannerPlugin extends Plugin {
 
     private static final int IMAGE_MIN_SIDE_FOR_DECODE = 1200;
     private static final int IMAGE_MAX_SIDE_FOR_DECODE = 2200;
+    private static final String JOURNAL_FILE = "qr-scan-journal.bin";
+    private static final String EXPORTS_DIR = "qr-exports";
+    private static final int JOURNAL_QUERY_MAX = 5000;
 
     private QrCodeScanner scanner;
     private PreviewView previewView;
     private FrameLayout cameraContainer;
     private QRScanLineOverlayView scanOverlay;
+    // scan line paused by a hot thermal tier
+    private boolean overlayThrottled = false;
 
     // ✅ слой “заморозки”
     private ImageView freezeView;
+    // SurfaceView preview: the freeze frame comes from the analysis stream
+    private boolean performancePreview = false;
+
+    // startup phase breakdown: aggregates over recent starts, and the session of the running scan
+    private final StartupTimings startupTimings = new StartupTimings();
+    private StartupTimings.Session timingSession;
+
+    // last diagnostic dump, still exportable after stopScan
+    private JSObject lastDiagnosticFrames;
+
+    // stocktake list; outlives scans until replaced or cleared
+    private volatile ExpectedCodes expectedCodes;
+
+    // opened on first use, closed with the plugin
+    private ScanJournal journal;
+    // session exports, one at a time at background priority; created on first use, stopped with the plugin
+    private ExecutorService exportExecutor;
+    private final AtomicBoolean exportsCancelled = new AtomicBoolean();
 
     @Override
     public void load() {
@@ -61,8 +91,23 @@ public class QrCodeScannerPlugin extends Plugin {
         }
     }
 
+    @Override
+    protected void handleOnDestroy() {
+        // a running or queued export stops at its next record and deletes its partial file
+        synchronized (this) {
+            exportsCancelled.set(true);
+            if (exportExecutor != null) exportExecutor.shutdown();
+            exportExecutor = null;
+            // commit what is queued before a recreated plugin opens the same file
+            if (journal != null) journal.close();
+            journal = null;
+        }
+        super.handleOnDestroy();
+    }
+
     @PluginMethod
     public void startScan(PluginCall call) {
+        final StartupTimings.Session timing = startupTimings.start(SystemClock.elapsedRealtime());
         final JSObject options = getOptions(call);
 
         final String lensFacing = options != null ? options.getString("lensFacing", "BACK") : "BACK";
@@ -70,6 +115,83 @@ public class QrCodeScannerPlugin extends Plugin {
         // 1080p by default gives better recognition for branded/partially-occluded QR codes.
         final int resolution = options != null ? options.getInteger("resolution", 2) : 2;
 
+        // LOW_POWER idles at VGA / low rate until motion or a barcode candidate shows up.
+        final boolean lowPower = options != null && "LOW_POWER".equals(options.getString("powerMode", "NORMAL"));
+        final int idleTimeoutMs = options != null
+            ? options.getInteger("idleTimeoutMs", (int) PowerModeController.DEFAULT_QUIET_PERIOD_MS)
+            : (int) PowerModeController.DEFAULT_QUIET_PERIOD_MS;
+
+        // Start at VGA and climb only while ML Kit sees codes it cannot decode.
+        final boolean progressiveResolution = options != null && options.optBoolean("progressiveResolution", false);
+
+        // AF/AE on detected-but-undecoded codes; gloves-on users cannot tap to focus.
+        final boolean regionFocus = options == null || options.optBoolean("regionFocus", true);
+
+        // ML Kit by default; ZXing needs no Play Services and no model download.
+        final String decoder = options != null ? options.getString("decoder", DecoderBackend.MLKIT) : DecoderBackend.MLKIT;
+
+        // Fixed kiosk scanners: do not re-decode an unchanged empty scene all day. Opt-in.
+        final boolean staticSceneSkip = options != null && options.optBoolean("staticSceneSkip", false);
+
+        // Motion blur while the phone is still moving: skip those frames instead of decoding them.
+        final boolean sharpnessGate = options == null || options.optBoolean("sharpnessGate", true);
+
+        // Low light (cold storage): average a few aligned frames once single frames keep failing.
+        final boolean frameFusion = options != null && options.optBoolean("frameFusion", false);
+
+        // Conveyors: after a decode, look only around where the code should be next.
+        final boolean regionTracking = options != null && options.optBoolean("regionTracking", false);
+
+        // Hot warehouses: trade peak speed for sustained speed as the device heats up.
+        final boolean thermalThrottling = options == null || options.optBoolean("thermalThrottling", true);
+
+        // Fast-moving codes: high fixed frame rate and fast noise reduction/edge modes where the camera has them.
+        final String captureProfile = options != null ? options.optString("captureProfile", "DEFAULT") : "DEFAULT";
+
+        // Linux nice values per scanner thread role, e.g. { analysis: -2 }.
+        final JSONObject threadPriorities = options != null ? options.optJSONObject("threadPriorities") : null;
+
+        // Documents split across several symbols: join the parts here instead of in JS.
+        final boolean assembleParts = options != null && options.optBoolean("assembleParts", false);
+
+        // Dense, damaged or inverted codes: after a miss streak both engines race on each frame.
+        final int raceAfterMisses = options != null ? options.getInteger("raceAfterMisses", 0) : 0;
+
+        // SurfaceView preview skips a GPU composition pass per frame; COMPATIBLE (TextureView) stays the default.
+        final boolean performancePreview = options != null && "PERFORMANCE".equalsIgnoreCase(options.optString("previewMode", "COMPATIBLE"));
+
+        // Reads the app would discard anyway (wrong prefix, length, check digit) never cross the bridge.
+        final PayloadFilter payloadFilter;
+        try {
+            payloadFilter = options != null ? PayloadFilter.compile(options.optJSONArray("payloadFilters")) : null;
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : "Invalid payloadFilters");
+            return;
+        }
+
+        // Kiosks with a fixed mount: come back at the zoom set last time on this camera.
+        final boolean restoreZoom = options != null && options.optBoolean("restoreZoom", false);
+
+        // Stocktakes: reads also go to a native journal that outlives WebView reloads and process death.
+        final ScanJournal scanJournal;
+        final String journalSessionId;
+        if (options != null && options.optBoolean("journal", false)) {
+            try {
+                scanJournal = journal();
+            } catch (Exception e) {
+                call.reject(e.getMessage() != null ? e.getMessage() : "Failed to open scan journal");
+                return;
+            }
+            final String requested = options.optString("journalSessionId", "");
+            journalSessionId = requested.isEmpty() ? UUID.randomUUID().toString() : requested;
+        } else {
+            scanJournal = null;
+            journalSessionId = null;
+        }
+
+        // Ring of recent frames for "it won't scan this label" reports; off unless asked for.
+        final int diagnosticFrames = options != null ? options.getInteger("diagnosticFrames", 0) : 0;
+
         if (getActivity() == null) {
             call.reject("Activity is null");
             return;
@@ -94,7 +216,11 @@ public class QrCodeScannerPlugin extends Plugin {
                 previewView.setLayoutParams(
                     new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT)
                 );
-                previewView.setImplementationMode(PreviewView.ImplementationMode.COMPATIBLE);
+                // a SurfaceView stays in its default z-order, behind the window, so the transparent WebView still draws on top
+                this.performancePreview = performancePreview;
+                previewView.setImplementationMode(
+                    performancePreview ? PreviewView.ImplementationMode.PERFORMANCE : PreviewView.ImplementationMode.COMPATIBLE
+                );
                 previewView.setScaleType(PreviewView.ScaleType.FILL_CENTER);
                 previewView.setClickable(false);
                 previewView.setFocusable(false);
@@ -102,6 +228,7 @@ public class QrCodeScannerPlugin extends Plugin {
 
                 // overlay scanline
                 scanOverlay = new QRScanLineOverlayView(getContext());
+                overlayThrottled = false;
                 scanOverlay.setLayoutParams(
                     new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT)
                 );
@@ -118,8 +245,33 @@ public class QrCodeScannerPlugin extends Plugin {
                 }
 
                 scanOverlay.start();
+                timingSession = timing;
+                timing.mark(StartupTimings.Phase.UI_READY, SystemClock.elapsedRealtime());
 
                 scanner = new QrCodeScanner(getContext());
+                scanner.setLowPowerIdle(lowPower, idleTimeoutMs);
+                scanner.setProgressiveResolution(progressiveResolution);
+                scanner.setRegionFocus(regionFocus);
+                scanner.setDiagnosticFrames(diagnosticFrames);
+                scanner.setDecoder(decoder);
+                scanner.setStaticSceneSkip(staticSceneSkip);
+                scanner.setSharpnessGate(sharpnessGate);
+                scanner.setFrameFusion(frameFusion);
+                scanner.setRegionTracking(regionTracking);
+                scanner.setAssembleParts(assembleParts);
+                scanner.setThermalThrottling(thermalThrottling);
+                scanner.setCaptureProfile(captureProfile);
+                scanner.setRestoreZoom(restoreZoom);
+                scanner.setPayloadFilter(payloadFilter);
+                scanner.setJournal(scanJournal, journalSessionId);
+                if (threadPriorities != null) {
+                    for (Iterator<String> it = threadPriorities.keys(); it.hasNext();) {
+                        final String role = it.next();
+                        scanner.setThreadPriority(role, threadPriorities.optInt(role, 0));
+                    }
+                }
+                scanner.setRaceAfterMisses(raceAfterMisses);
+                scanner.setStartupTimings(timing);
                 scanner.start(
                     getActivity(),
                     previewView,
@@ -127,9 +279,11 @@ public class QrCodeScannerPlugin extends Plugin {
                     resolution,
                     new QrCodeScanner.Callback() {
                         @Override
-                        public void onBarcodes(List<Barcode> barcodes) {
+                        public void onBarcodes(List<DecodedBarcode> barcodes) {
                             if (barcodes == null || barcodes.isEmpty()) return;
-                            notifyListeners("barcodesScanned", BarcodeMapper.toJS(barcodes));
+                            JSObject event = BarcodeMapper.decodedToJS(barcodes, expectedCodes);
+                            if (journalSessionId != null) event.put("journalSessionId", journalSessionId);
+                            notifyListeners("barcodesScanned", event);
                         }
 
                         @Override
@@ -147,6 +301,34 @@ public class QrCodeScannerPlugin extends Plugin {
                             data.put("maxZoomRatio", maxRatio);
                             notifyListeners("zoomReady", data);
                         }
+
+                        @Override
+                        public void onDiagnosticFramesSaved(String path, int frames) {
+                            notifyListeners("diagnosticFramesSaved", diagnosticFramesResult(path, frames));
+                        }
+
+                        @Override
+                        public void onPartProgress(PartAssembler.Update update) {
+                            notifyListeners("multipartProgress", partsToJS(update));
+                        }
+
+                        @Override
+                        public void onPartsAssembled(PartAssembler.Update update) {
+                            notifyListeners("multipartScanned", partsToJS(update));
+                        }
+
+                        @Override
+                        public void onThermalTierChanged(String tier, boolean animateOverlay) {
+                            setOverlayThrottled(!animateOverlay);
+                        }
+
+                        @Override
+                        public void onStartupTimings(StartupTimings.Session timings) {
+                            startupTimings.record(timings);
+                            JSObject data = new JSObject();
+                            data.put("phases", timings.toJS());
+                            notifyListeners("scanTimings", data);
+                        }
                     }
                 );
 
@@ -186,30 +368,15 @@ public class QrCodeScannerPlugin extends Plugin {
 
         getActivity().runOnUiThread(() -> {
             try {
-                // 1) выключаем сканирование (анализ)
-                if (scanner != null) scanner.pause();
-
-                // 2) замораживаем картинку поверх preview
-                if (cameraContainer != null && previewView != null) {
-                    Bitmap bmp = previewView.getBitmap(); // быстрый снимок
-                    if (bmp != null) {
-                        if (freezeView == null) {
-                            freezeView = new ImageView(getContext());
-                            freezeView.setLayoutParams(
-                                new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT)
-                            );
-                            freezeView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                            freezeView.setClickable(false);
-                            freezeView.setFocusable(false);
-
-                            // Добавляем поверх preview, но под scanOverlay (если scanOverlay последний)
-                            int overlayIndex = Math.max(0, cameraContainer.getChildCount() - 1);
-                            cameraContainer.addView(freezeView, overlayIndex);
-                        }
-
-                        freezeView.setImageBitmap(bmp);
-                        freezeView.setVisibility(ImageView.VISIBLE);
-                    }
+                if (performancePreview && scanner != null) {
+                    // 1+2) SurfaceView: кадр для заморозки берём из следующего кадра анализа
+                    scanner.pause(this::showFreezeFrame);
+                } else {
+                    // 1) выключаем сканирование (анализ)
+                    if (scanner != null) scanner.pause();
+
+                    // 2) замораживаем картинку поверх preview
+                    if (previewView != null) showFreezeFrame(previewView.getBitmap()); // быстрый снимок
                 }
 
                 // 3) пауза scanline
@@ -238,8 +405,8 @@ public class QrCodeScannerPlugin extends Plugin {
                     freezeView.setVisibility(ImageView.GONE);
                 }
 
-                // 2) продолжаем scanline
-                if (scanOverlay != null) scanOverlay.resume();
+                // 2) продолжаем scanline (если не остановлена из-за перегрева)
+                if (scanOverlay != null && !overlayThrottled) scanOverlay.resume();
 
                 // 3) включаем анализ обратно
                 if (scanner != null) scanner.resume();
@@ -251,6 +418,301 @@ public class QrCodeScannerPlugin extends Plugin {
         });
     }
 
+    @PluginMethod
+    public void getScanMetrics(PluginCall call) {
+        call.resolve(scanner != null ? scanner.getMetrics().toJS() : new ScanMetrics().toJS());
+    }
+
+    /** Startup phase aggregates over the last scans, including ones stopped before their first decode. */
+    @PluginMethod
+    public void getScanTimings(PluginCall call) {
+        call.resolve(startupTimings.toJS());
+    }
+
+    /** Indexes a list of codes to classify live reads against; runs on the plugin thread, not the UI thread. */
+    @PluginMethod
+    public void loadExpectedCodes(PluginCall call) {
+        String path = call.getString("path");
+        final Uri uri = normalizePathToUri(path);
+        if (uri == null) {
+            call.reject("path is required");
+            return;
+        }
+
+        final long startedAt = SystemClock.elapsedRealtime();
+        final ExpectedCodes loaded;
+        try {
+            if ("file".equals(uri.getScheme())) {
+                loaded = ExpectedCodes.map(new File(uri.getPath()));
+            } else {
+                try (InputStream input = getContext().getContentResolver().openInputStream(uri)) {
+                    if (input == null) {
+                        call.reject("Cannot open " + path);
+                        return;
+                    }
+                    loaded = ExpectedCodes.read(input);
+                }
+            }
+        } catch (Exception e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : "Failed to load expected codes");
+            return;
+        }
+        // the previous list and its tallies go with it
+        expectedCodes = loaded;
+
+        JSObject ret = new JSObject();
+        ret.put("count", loaded.size());
+        ret.put("duplicates", loaded.fileDuplicates);
+        ret.put("loadMs", SystemClock.elapsedRealtime() - startedAt);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getExpectedCodesTally(PluginCall call) {
+        final ExpectedCodes codes = expectedCodes;
+        if (codes == null) {
+            call.reject("No expected codes loaded");
+            return;
+        }
+        call.resolve(codes.toJS());
+    }
+
+    @PluginMethod
+    public void clearExpectedCodes(PluginCall call) {
+        expectedCodes = null;
+        call.resolve();
+    }
+
+    /**
+     * Journal records in order, optionally one session's or from a time on; runs on the plugin thread. Pages by
+     * {@code cursor}, a file offset, so each page reads only its own records.
+     */
+    @PluginMethod
+    public void queryScanJournal(PluginCall call) {
+        final String sessionId = call.getString("sessionId");
+        final Double since = call.getDouble("sinceMs");
+        final long sinceMs = since != null ? since.longValue() : 0L;
+        final Double from = call.getDouble("cursor");
+        final int limit = Math.max(1, Math.min(JOURNAL_QUERY_MAX, call.getInt("limit", 500)));
+
+        final JSArray records = new JSArray();
+        final boolean[] hasMore = { false };
+        final long[] cursor = { from != null ? Math.max(0L, from.longValue()) : 0L };
+        try {
+            final ScanJournal j = journal();
+            j.flush(1000L);
+            j.read(cursor[0], record -> {
+                final boolean matches =
+                    record.timestampMs >= sinceMs && (sessionId == null || sessionId.equals(record.sessionId));
+                if (matches && records.length() == limit) {
+                    hasMore[0] = true;
+                    return false;
+                }
+                if (matches) records.put(journalRecordToJS(record));
+                cursor[0] = record.endOffset;
+                return true;
+            });
+        } catch (Exception e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : "Failed to read scan journal");
+            return;
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("records", records);
+        ret.put("hasMore", hasMore[0]);
+        ret.put("cursor", cursor[0]);
+        call.resolve(ret);
+    }
+
+    /**
+     * Streams the journal, or one session of it, to a CSV or JSON-lines file in app storage, gzipped on request.
+     * Runs on the export executor, after any export already queued, with {@code scanExportProgress} events; resolves
+     * with the file.
+     */
+    @PluginMethod
+    public void exportScanSession(PluginCall call) {
+        final String sessionId = call.getString("sessionId");
+        final String format = SessionExporter.CSV.equalsIgnoreCase(call.getString("format", SessionExporter.JSONL))
+            ? SessionExporter.CSV
+            : SessionExporter.JSONL;
+        final boolean compress = Boolean.TRUE.equals(call.getBoolean("compress", false));
+
+        final ScanJournal j;
+        try {
+            j = journal();
+        } catch (Exception e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : "Failed to open scan journal");
+            return;
+        }
+
+        final File dir = new File(getContext().getFilesDir(), EXPORTS_DIR);
+        final String name = (sessionId != null ? "scan-session-" : "scan-journal-") + System.currentTimeMillis();
+        final File file = new File(dir, name + SessionExporter.extension(format, compress));
+        exportExecutor().execute(() -> {
+            try {
+                j.flush(1000L);
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+                final SessionExporter.Progress progress = (records, fraction) -> {
+                    JSObject event = new JSObject();
+                    event.put("records", records);
+                    event.put("progress", fraction);
+                    notifyListeners("scanExportProgress", event);
+                };
+                final int rows = SessionExporter.export(
+                    j,
+                    sessionId,
+                    format,
+                    compress,
+                    file,
+                    SystemClock::elapsedRealtime,
+                    progress,
+                    exportsCancelled
+                );
+
+                JSObject ret = new JSObject();
+                ret.put("path", file.getAbsolutePath());
+                ret.put("records", rows);
+                ret.put("bytes", file.length());
+                call.resolve(ret);
+            } catch (Exception e) {
+                call.reject(e.getMessage() != null ? e.getMessage() : "Failed to export scan session");
+            }
+        });
+    }
+
+    private synchronized ExecutorService exportExecutor() {
+        if (exportExecutor == null) {
+            exportExecutor = Executors.newSingleThreadExecutor((r) ->
+                new Thread(
+                    () -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    },
+                    "QrCodeScannerExport"
+                )
+            );
+        }
+        return exportExecutor;
+    }
+
+    @PluginMethod
+    public void truncateScanJournal(PluginCall call) {
+        try {
+            journal().truncate();
+            call.resolve();
+        } catch (Exception e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : "Failed to truncate scan journal");
+        }
+    }
+
+    private synchronized ScanJournal journal() throws IOException {
+        if (journal == null) journal = new ScanJournal(new File(getContext().getFilesDir(), JOURNAL_FILE));
+        return journal;
+    }
+
+    private static JSObject journalRecordToJS(ScanJournal.Record record) {
+        JSObject o = new JSObject();
+        o.put("timestamp", record.timestampMs);
+        o.put("sessionId", record.sessionId);
+        o.put("format", record.format);
+        o.put("payload", record.payload);
+        return o;
+    }
+
+    @PluginMethod
+    public void exportDiagnosticFrames(PluginCall call) {
+        if (getActivity() == null) {
+            call.reject("Activity is null");
+            return;
+        }
+
+        getActivity().runOnUiThread(() -> {
+            if (scanner == null) {
+                if (lastDiagnosticFrames != null) {
+                    call.resolve(lastDiagnosticFrames);
+                } else {
+                    call.reject("Scanner is not running");
+                }
+                return;
+            }
+
+            scanner.exportDiagnosticFrames(
+                new QrCodeScanner.DiagnosticsCallback() {
+                    @Override
+                    public void onSaved(String path, int frames) {
+                        call.resolve(diagnosticFramesResult(path, frames));
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        call.reject(message != null ? message : "Failed to export diagnostic frames");
+                    }
+                }
+            );
+        });
+    }
+
+    /** Shows {@code bmp} over the preview, under the scan line; main thread. */
+    private void showFreezeFrame(Bitmap bmp) {
+        if (bmp == null || cameraContainer == null) return;
+
+        if (freezeView == null) {
+            freezeView = new ImageView(getContext());
+            freezeView.setLayoutParams(
+                new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT)
+            );
+            // same crop as the preview's FILL_CENTER
+            freezeView.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            freezeView.setClickable(false);
+            freezeView.setFocusable(false);
+
+            // Добавляем поверх preview, но под scanOverlay (если scanOverlay последний)
+            int overlayIndex = Math.max(0, cameraContainer.getChildCount() - 1);
+            cameraContainer.addView(freezeView, overlayIndex);
+        }
+
+        freezeView.setImageBitmap(bmp);
+        freezeView.setVisibility(ImageView.VISIBLE);
+    }
+
+    /** Pauses the scan line while the device is hot; main thread. A paused scan keeps its overlay paused. */
+    private void setOverlayThrottled(boolean throttled) {
+        if (overlayThrottled == throttled) return;
+        overlayThrottled = throttled;
+        if (scanOverlay == null) return;
+
+        final boolean scanPaused = freezeView != null && freezeView.getVisibility() == ImageView.VISIBLE;
+        if (throttled) {
+            scanOverlay.pause();
+        } else if (!scanPaused) {
+            scanOverlay.resume();
+        }
+    }
+
+    private static JSObject partsToJS(PartAssembler.Update update) {
+        JSObject o = new JSObject();
+        o.put("id", update.key);
+        o.put("total", update.total);
+        o.put("received", update.received);
+        if (update.isComplete()) {
+            o.put("rawValue", update.payload);
+            o.put("format", update.format);
+        } else {
+            JSArray missing = new JSArray();
+            for (int part : update.missing) missing.put(part);
+            o.put("missing", missing);
+        }
+        return o;
+    }
+
+    private JSObject diagnosticFramesResult(String path, int frames) {
+        JSObject result = new JSObject();
+        result.put("path", path);
+        result.put("frames", frames);
+        lastDiagnosticFrames = result;
+        return result;
+    }
+
     // ===== readBarcodesFromImage / scan =====
 
     @PluginMethod
@@ -267,6 +729,12 @@ public class QrCodeScannerPlugin extends Plugin {
             return;
         }
 
+        final JSObject options = getOptions(call);
+        if (options != null && DecoderBackend.ZXING.equals(options.getString("decoder", DecoderBackend.MLKIT))) {
+            readBarcodesWithZxing(uri, call);
+            return;
+        }
+
         final List<InputImage> candidates = new ArrayList<>();
         final Set<Bitmap> recyclableBitmaps = new HashSet<>();
 
@@ -330,6 +798,48 @@ public class QrCodeScannerPlugin extends Plugin {
         processImageCandidates(imageScanner, candidates, 0, recyclableBitmaps, call);
     }
 
+    /** ZXing reads the normalized image in any orientation, then a centre crop; it runs on this thread. */
+    private void readBarcodesWithZxing(Uri uri, PluginCall call) {
+        final Set<Bitmap> recyclableBitmaps = new HashSet<>();
+        try {
+            Bitmap source = loadBitmapFromUri(uri);
+            if (source == null) {
+                call.reject("Failed to load image");
+                return;
+            }
+
+            Bitmap normalized = normalizeBitmapForDecode(source);
+            recyclableBitmaps.add(normalized);
+
+            ZxingDecoderBackend zxing = new ZxingDecoderBackend(true);
+            DecodeResult<DecodedBarcode> result = zxing.decode(toLumaFrame(normalized));
+            if (!result.hasDecoded()) {
+                Bitmap centerCrop = createCenteredSquare(normalized, 0.88f);
+                if (centerCrop != null) {
+                    recyclableBitmaps.add(centerCrop);
+                    result = zxing.decode(toLumaFrame(centerCrop));
+                }
+            }
+
+            call.resolve(BarcodeMapper.decodedToJS(result.decoded));
+        } catch (Exception e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : "Failed to read barcodes");
+        } finally {
+            recycleBitmaps(recyclableBitmaps);
+        }
+    }
+
+    private static LumaFrame toLumaFrame(Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        final int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        final byte[] plane = new byte[pixels.length];
+        ImageKernels.lumaPlane(pixels, plane, pixels.length);
+        return new LumaFrame(ByteBuffer.wrap(plane), width, height, width, 0, 0L, null);
+    }
+
     @PluginMethod
     public void scan(PluginCall call) {
         JSObject options = getOptions(call);
@@ -390,20 +900,12 @@ public class QrCodeScannerPlugin extends Plugin {
 
         int width = source.getWidth();
         int height = source.getHeight();
-        int minSide = Math.min(width, height);
-        int maxSide = Math.max(width, height);
 
-        float scale = 1f;
-        if (maxSide > IMAGE_MAX_SIDE_FOR_DECODE) {
-            scale = IMAGE_MAX_SIDE_FOR_DECODE / (float) maxSide;
-        } else if (minSide < IMAGE_MIN_SIDE_FOR_DECODE) {
-            scale = IMAGE_MIN_SIDE_FOR_DECODE / (float) minSide;
-        }
+        float scale = ImageKernels.decodeScale(width, height, IMAGE_MIN_SIDE_FOR_DECODE, IMAGE_MAX_SIDE_FOR_DECODE);
+        if (scale == 1f) return source;
 
-        if (Math.abs(scale - 1f) < 0.01f) return source;
-
-        int targetWidth = Math.max(1, Math.round(width * scale));
-        int targetHeight = Math.max(1, Math.round(height * scale));
+        int targetWidth = ImageKernels.scaledSide(width, scale);
+        int targetHeight = ImageKernels.scaledSide(height, scale);
         try {
             Bitmap scaled = Bitmap.createScaledBitmap(source, targetWidth, targetHeight, true);
             if (scaled != source) {
@@ -418,32 +920,15 @@ public class QrCodeScannerPlugin extends Plugin {
     }
 
     private Bitmap createHighContrastBitmap(Bitmap source) {
-        if (source == null || source.isRecycled()) return null;
-
-        try {
-            Bitmap output = Bitmap.createBitmap(source.getWidth(), source.getHeight(), Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(output);
-            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-
-            ColorMatrix matrix = new ColorMatrix();
-            matrix.setSaturation(0f);
-
-            float contrast = 1.55f;
-            float translate = (-0.5f * contrast + 0.5f) * 255f;
-            ColorMatrix contrastMatrix = new ColorMatrix(
-                new float[] { contrast, 0, 0, 0, translate, 0, contrast, 0, 0, translate, 0, 0, contrast, 0, translate, 0, 0, 0, 1, 0 }
-            );
-            matrix.postConcat(contrastMatrix);
-
-            paint.setColorFilter(new ColorMatrixColorFilter(matrix));
-            canvas.drawBitmap(source, 0f, 0f, paint);
-            return output;
-        } catch (Exception ignored) {
-            return null;
-        }
+        return transformPixels(source, false);
     }
 
     private Bitmap createBinaryBitmap(Bitmap source) {
+        return transformPixels(source, true);
+    }
+
+    /** Runs a pixel kernel over a copy of {@code source}: binarization or high contrast. */
+    private Bitmap transformPixels(Bitmap source, boolean binary) {
         if (source == null || source.isRecycled()) return null;
 
         final int width = source.getWidth();
@@ -455,26 +940,10 @@ public class QrCodeScannerPlugin extends Plugin {
             int[] pixels = new int[total];
             source.getPixels(pixels, 0, width, 0, 0, width, height);
 
-            long sum = 0L;
-            for (int i = 0; i < total; i++) {
-                int c = pixels[i];
-                int r = (c >> 16) & 0xff;
-                int g = (c >> 8) & 0xff;
-                int b = c & 0xff;
-                int luma = (int) (0.299f * r + 0.587f * g + 0.114f * b);
-                sum += luma;
-            }
-
-            int threshold = (int) (sum / total);
-            threshold = Math.max(80, Math.min(190, threshold));
-
-            for (int i = 0; i < total; i++) {
-                int c = pixels[i];
-                int r = (c >> 16) & 0xff;
-                int g = (c >> 8) & 0xff;
-                int b = c & 0xff;
-                int luma = (int) (0.299f * r + 0.587f * g + 0.114f * b);
-                pixels[i] = luma >= threshold ? Color.WHITE : Color.BLACK;
+            if (binary) {
+                ImageKernels.binarize(pixels, total);
+            } else {
+                ImageKernels.highContrast(pixels, total);
             }
 
             Bitmap output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
@@ -487,19 +956,12 @@ public class QrCodeScannerPlugin extends Plugin {
 
     private Bitmap createCenteredSquare(Bitmap source, float ratio) {
         if (source == null || source.isRecycled()) return null;
-        if (ratio <= 0f || ratio > 1f) return null;
-
-        int width = source.getWidth();
-        int height = source.getHeight();
-        int side = Math.max(1, Math.round(Math.min(width, height) * ratio));
-
-        if (side >= width && side >= height) return null;
 
-        int left = Math.max(0, (width - side) / 2);
-        int top = Math.max(0, (height - side) / 2);
+        int[] square = ImageKernels.centeredSquare(source.getWidth(), source.getHeight(), ratio);
+        if (square == null) return null;
 
         try {
-            return Bitmap.createBitmap(source, left, top, side, side);
+            return Bitmap.createBitmap(source, square[0], square[1], square[2], square[2]);
         } catch (Exception ignored) {
             return null;
         }
@@ -515,23 +977,7 @@ public class QrCodeScannerPlugin extends Plugin {
     }
 
     private List<Barcode> filterDecodedBarcodes(List<Barcode> barcodes) {
-        List<Barcode> decoded = new ArrayList<>();
-        if (barcodes == null || barcodes.isEmpty()) return decoded;
-
-        for (Barcode barcode : barcodes) {
-            if (barcode == null) continue;
-            if (!hasBarcodePayload(barcode)) continue;
-            decoded.add(barcode);
-        }
-        return decoded;
-    }
-
-    private boolean hasBarcodePayload(Barcode barcode) {
-        String raw = barcode.getRawValue();
-        if (raw != null && !raw.trim().isEmpty()) return true;
-
-        String display = barcode.getDisplayValue();
-        return display != null && !display.trim().isEmpty();
+        return Payloads.filterDecoded(barcodes, BarcodeMapper.PAYLOAD);
     }
 
     private void recycleBitmaps(Set<Bitmap> bitmaps) {
@@ -741,6 +1187,10 @@ public class QrCodeScannerPlugin extends Plugin {
     // ===== Internal cleanup =====
 
     private void cleanupScanner() {
+        // a scan stopped before its first decode still counts for the phases it reached
+        if (timingSession != null && timingSession.finish()) startupTimings.record(timingSession);
+        timingSession = null;
+
         if (scanner != null) {
             try {
                 scanner.stop();
@@ -0,0 +1,172 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs two decoders on the same frame at once, each on its own executor, and reports the first result that decoded
+ * something. The slower engine keeps running but its answer is discarded. If neither decodes, the result with more
+ * candidates is reported once both are done.
+ * Both engines read a packed copy of the plane, so the analyzer can close the camera frame as soon as there is a
+ * winner.
+ */
+final class RacingDecoder<T> implements FrameDecoder<T> {
+
+    /** One engine in the race. */
+    static final class Entrant<T> {
+
+        final String name;
+        final FrameDecoder<T> decoder;
+        final Executor executor;
+
+        Entrant(String name, FrameDecoder<T> decoder, Executor executor) {
+            this.name = name;
+            this.decoder = decoder;
+            this.executor = executor;
+        }
+    }
+
+    private final Entrant<T> first;
+    private final Entrant<T> second;
+    private final ScanMetrics metrics;
+
+    // packed copy both engines read; busy until the loser reports too
+    private byte[] plane = new byte[0];
+    private boolean planeBusy = false;
+
+    RacingDecoder(Entrant<T> first, Entrant<T> second, ScanMetrics metrics) {
+        this.first = first;
+        this.second = second;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Races {@code frame}. If the previous race still holds the copy, the frame goes to the first engine alone;
+     * that only happens right after a win, while the analyzer is in cooldown anyway.
+     */
+    @Override
+    public void decode(LumaFrame frame, final Callback<T> callback) {
+        final LumaFrame copy = copyOf(frame);
+        if (copy == null) {
+            first.decoder.decode(frame, callback);
+            return;
+        }
+
+        metrics.races.incrementAndGet();
+        final Race race = new Race(callback);
+        submit(first, copy, race, 0);
+        submit(second, copy, race, 1);
+    }
+
+    /** Entrants are owned by the caller and not closed here. */
+    @Override
+    public void close() {}
+
+    private void submit(final Entrant<T> entrant, final LumaFrame copy, final Race race, final int lane) {
+        try {
+            entrant.executor.execute(() -> {
+                try {
+                    entrant.decoder.decode(
+                        copy,
+                        new Callback<T>() {
+                            @Override
+                            public void onResult(DecodeResult<T> result) {
+                                race.finish(lane, result, null);
+                            }
+
+                            @Override
+                            public void onFailure(String message) {
+                                race.finish(lane, null, message != null ? message : "Unknown error");
+                            }
+                        }
+                    );
+                } catch (Exception e) {
+                    race.finish(lane, null, e.getMessage() != null ? e.getMessage() : "Unknown error");
+                }
+            });
+        } catch (Exception e) {
+            // executor already shut down
+            race.finish(lane, null, e.getMessage() != null ? e.getMessage() : "Decoder stopped");
+        }
+    }
+
+    private synchronized LumaFrame copyOf(LumaFrame frame) {
+        if (planeBusy) return null;
+
+        final int width = frame.width;
+        final int height = frame.height;
+        final int size = width * height;
+        if (width <= 0 || height <= 0) return null;
+        if (plane.length < size) plane = new byte[size];
+
+        final ByteBuffer src = frame.luma.duplicate();
+        for (int y = 0; y < height; y++) {
+            src.position(y * frame.rowStride);
+            src.get(plane, y * width, width);
+        }
+        planeBusy = true;
+        return frame.withPlane(ByteBuffer.wrap(plane, 0, size), width);
+    }
+
+    private synchronized void releasePlane() {
+        planeBusy = false;
+    }
+
+    /** Settles one race; engines may report on any thread, in any order. */
+    private final class Race {
+
+        private final Callback<T> callback;
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private final DecodeResult<T>[] results = new DecodeResult[2];
+        private final String[] errors = new String[2];
+        private int finished = 0;
+        private boolean reported = false;
+
+        Race(Callback<T> callback) {
+            this.callback = callback;
+        }
+
+        void finish(int lane, DecodeResult<T> result, String error) {
+            DecodeResult<T> report = null;
+            String failure = null;
+            boolean done;
+            synchronized (this) {
+                if (++finished > 2) return;
+                results[lane] = result;
+                errors[lane] = error;
+                done = finished == 2;
+
+                if (!reported && result != null && result.hasDecoded()) {
+                    reported = true;
+                    report = result;
+                    metrics.countRace(entrant(lane).name, entrant(1 - lane).name);
+                } else if (!reported && done) {
+                    reported = true;
+                    metrics.countRace(null, null);
+                    if (results[0] == null && results[1] == null) {
+                        failure = errors[0] != null ? errors[0] : errors[1];
+                    } else {
+                        report = moreCandidates(results[0], results[1]);
+                    }
+                }
+            }
+
+            if (done) releasePlane();
+            if (report != null) {
+                callback.onResult(report);
+            } else if (failure != null) {
+                callback.onFailure(failure);
+            }
+        }
+
+        private Entrant<T> entrant(int lane) {
+            return lane == 0 ? first : second;
+        }
+    }
+
+    private static <T> DecodeResult<T> moreCandidates(DecodeResult<T> a, DecodeResult<T> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return b.candidateCount > a.candidateCount ? b : a;
+    }
+}
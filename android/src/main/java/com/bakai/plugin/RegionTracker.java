@@ -0,0 +1,114 @@
+package com.bakai.plugin;
+
+/**
+ * Follows a decoded code from frame to frame so the decoder can look at a crop around it instead of the full frame.
+ * The next position is the last decoded bounds moved by the smoothed velocity; the crop adds a margin around it
+ * that grows with the time since the last decode, more so while the velocity is still unknown.
+ * Every {@link #FULL_SEARCH_EVERY}-th frame, and whenever the code is lost, the full frame is searched again so new
+ * codes elsewhere are still found. Boxes are in upright pixels of the full frame.
+ * Called from the analysis thread and decoder callbacks.
+ */
+final class RegionTracker {
+
+    static final int FULL_SEARCH_EVERY = 5;
+    // crops in a row that decoded nothing
+    static final int LOST_AFTER_MISSES = 2;
+    static final long TRACK_TIMEOUT_MS = 1000L;
+    // margin on each side, as a share of the code's size
+    private static final float MARGIN = 0.75f;
+    // extra margin per ms since the last decode: small for acceleration, large before the speed is known
+    private static final float SLACK_PX_PER_MS = 0.1f;
+    private static final float UNKNOWN_SPEED_PX_PER_MS = 0.5f;
+    private static final int MIN_SIDE = 160;
+    // a crop that big saves little; search the full frame
+    private static final float MAX_FRAME_SHARE = 0.6f;
+    // weight of the newest velocity sample
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private BarcodeBox last = null;
+    private long lastAtMs = 0L;
+    // px per ms
+    private float velocityX = 0f;
+    private float velocityY = 0f;
+    private boolean hasVelocity = false;
+    private int misses = 0;
+    private int sinceFullSearch = 0;
+
+    synchronized void reset() {
+        last = null;
+        velocityX = 0f;
+        velocityY = 0f;
+        hasVelocity = false;
+        misses = 0;
+        sinceFullSearch = 0;
+    }
+
+    synchronized boolean isTracking() {
+        return last != null;
+    }
+
+    /** Crop to decode next in an {@code width x height} upright frame, or null to search the full frame. */
+    synchronized BarcodeBox nextCrop(long now, int width, int height) {
+        if (last == null || width <= 0 || height <= 0) return null;
+        if (now - lastAtMs > TRACK_TIMEOUT_MS) {
+            reset();
+            return null;
+        }
+        if (++sinceFullSearch >= FULL_SEARCH_EVERY) {
+            sinceFullSearch = 0;
+            return null;
+        }
+
+        final long dt = now - lastAtMs;
+        final float cx = last.centerX() + velocityX * dt;
+        final float cy = last.centerY() + velocityY * dt;
+        final float slack = (hasVelocity ? SLACK_PX_PER_MS : UNKNOWN_SPEED_PX_PER_MS) * dt;
+        final float halfW = Math.max(MIN_SIDE * 0.5f, last.width() * (0.5f + MARGIN) + slack);
+        final float halfH = Math.max(MIN_SIDE * 0.5f, last.height() * (0.5f + MARGIN) + slack);
+
+        // even sides: decoders that take the crop as NV21 need them
+        final int left = Math.max(0, (int) (cx - halfW)) & ~1;
+        final int top = Math.max(0, (int) (cy - halfH)) & ~1;
+        final int right = Math.min(width, (int) Math.ceil(cx + halfW));
+        final int bottom = Math.min(height, (int) Math.ceil(cy + halfH));
+        final int w = (right - left) & ~1;
+        final int h = (bottom - top) & ~1;
+        if (w < 2 || h < 2 || (long) w * h > MAX_FRAME_SHARE * width * height) return null;
+        return new BarcodeBox(left, top, left + w, top + h);
+    }
+
+    /**
+     * Feeds the outcome of one decode. {@code crop} is what {@link #nextCrop} returned for it (null for a full
+     * search), {@code decodedBounds} where codes were decoded, or null. Returns true if this lost the track.
+     */
+    synchronized boolean onResult(BarcodeBox crop, BarcodeBox decodedBounds, long now) {
+        if (decodedBounds != null && !decodedBounds.isEmpty()) {
+            final long dt = now - lastAtMs;
+            if (last != null && dt > 0 && dt <= TRACK_TIMEOUT_MS) {
+                final float vx = (decodedBounds.centerX() - last.centerX()) / dt;
+                final float vy = (decodedBounds.centerY() - last.centerY()) / dt;
+                // the first sample stands alone
+                final float k = hasVelocity ? VELOCITY_SMOOTHING : 1f;
+                velocityX += (vx - velocityX) * k;
+                velocityY += (vy - velocityY) * k;
+                hasVelocity = true;
+            } else {
+                velocityX = 0f;
+                velocityY = 0f;
+                hasVelocity = false;
+            }
+            last = decodedBounds;
+            lastAtMs = now;
+            misses = 0;
+            return false;
+        }
+
+        if (last == null) return false;
+        // a full search that found nothing means the code left the frame
+        if (crop == null || ++misses >= LOST_AFTER_MISSES) {
+            reset();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.bakai.plugin;
+
+/**
+ * Progressive analysis resolution: starts at the base tier (VGA) and steps up one tier at a time while ML Kit keeps
+ * finding barcode candidates it cannot decode. Falls back to the base tier once candidates have been gone for a while.
+ * Tiers use the same numbering as the {@code resolution} option.
+ */
+final class ResolutionLadder {
+
+    static final int BASE_TIER = 0;
+
+    // consecutive candidate-only frames before stepping up
+    private static final int ESCALATE_AFTER_FRAMES = 3;
+    // let the rebound stream deliver a few frames before judging it
+    private static final long SETTLE_MS = 600L;
+    private static final long RELAX_AFTER_MS = 3000L;
+
+    private final int maxTier;
+
+    private int tier;
+    private int undecodedStreak = 0;
+    private long lastChangeAtMs = 0L;
+    private long lastCandidateAtMs = 0L;
+
+    ResolutionLadder(int maxTier) {
+        this.maxTier = Math.max(BASE_TIER, maxTier);
+        this.tier = BASE_TIER;
+    }
+
+    synchronized int tier() {
+        return tier;
+    }
+
+    synchronized void reset(long nowMs) {
+        tier = BASE_TIER;
+        undecodedStreak = 0;
+        lastChangeAtMs = nowMs;
+        lastCandidateAtMs = nowMs;
+    }
+
+    /** A frame produced barcode candidates but no payload. Returns true if the tier went up. */
+    synchronized boolean onUndecodedCandidates(long nowMs) {
+        lastCandidateAtMs = nowMs;
+        undecodedStreak++;
+
+        if (tier >= maxTier) return false;
+        if (undecodedStreak < ESCALATE_AFTER_FRAMES) return false;
+        if ((nowMs - lastChangeAtMs) < SETTLE_MS) return false;
+
+        tier++;
+        undecodedStreak = 0;
+        lastChangeAtMs = nowMs;
+        return true;
+    }
+
+    /** A frame decoded. The current tier is kept so the next hard code is read without climbing again. */
+    synchronized void onDecoded(long nowMs) {
+        undecodedStreak = 0;
+        lastCandidateAtMs = nowMs;
+    }
+
+    /** A frame had no candidates at all. Returns true if the tier dropped back to the base. */
+    synchronized boolean onNoCandidates(long nowMs) {
+        undecodedStreak = 0;
+
+        if (tier == BASE_TIER) return false;
+        if ((nowMs - lastCandidateAtMs) < RELAX_AFTER_MS) return false;
+
+        tier = BASE_TIER;
+        lastChangeAtMs = nowMs;
+        return true;
+    }
+}
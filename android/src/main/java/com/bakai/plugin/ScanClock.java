@@ -0,0 +1,6 @@
+package com.bakai.plugin;
+
+/** Monotonic millisecond clock for the analyzer. Injected so replay runs can drive time themselves. */
+interface ScanClock {
+    long nowMs();
+}
@@ -0,0 +1,394 @@
+package com.bakai.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of reported reads, so a stocktake survives a WebView reload or the app being killed before JS
+ * stored what it was sent. {@link #append} only queues the record; a writer thread commits queued records in one
+ * write and fsync once {@link #BATCH_RECORDS} are waiting or {@link #FLUSH_INTERVAL_MS} after the oldest one, so the
+ * analysis thread never waits on storage. A crash loses at most the records still queued.
+ *
+ * <p>File: a 4-byte magic, then records of {@code int length, int crc32, long timestampMs, byte sessionLength,
+ * session, byte formatLength, format, payload}, strings in UTF-8, {@code length} and the CRC covering everything
+ * after the CRC. A record cut short by a crash fails its CRC and is dropped, with everything after it, on the next
+ * open.
+ */
+final class ScanJournal {
+
+    static final int BATCH_RECORDS = 64;
+    static final long FLUSH_INTERVAL_MS = 500L;
+    // queued records past this are dropped rather than held while storage is stuck
+    static final int MAX_PENDING = 50_000;
+
+    private static final int MAGIC = 0x42514a31; // "BQJ1"
+    private static final int HEADER_BYTES = 4;
+    // timestamp and the two string lengths
+    private static final int FIXED_BYTES = 8 + 1 + 1;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    static final class Record {
+
+        final long timestampMs;
+        final String sessionId;
+        final String format;
+        final String payload;
+        // file offset after this record when read back, for progress; 0 when queued
+        final long endOffset;
+
+        Record(long timestampMs, String sessionId, String format, String payload) {
+            this(timestampMs, sessionId, format, payload, 0L);
+        }
+
+        Record(long timestampMs, String sessionId, String format, String payload, long endOffset) {
+            this.timestampMs = timestampMs;
+            this.sessionId = sessionId;
+            this.format = format;
+            this.payload = payload;
+            this.endOffset = endOffset;
+        }
+    }
+
+    /** Receives records in file order; returns false to stop. */
+    interface Visitor {
+        boolean visit(Record record);
+    }
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    // file writes, truncation and reads
+    private final Object fileLock = new Object();
+
+    private final Object queueLock = new Object();
+    private List<Record> pending = new ArrayList<>();
+    private long oldestPendingAtNs = 0L;
+    // records appended / committed since open, for flush()
+    private long appended = 0L;
+    private long committed = 0L;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+    // bumped by truncate(), so a batch taken before it is not written after it
+    private volatile int truncations = 0;
+    // bumped under fileLock as the file is cut, so a read that started before it stops
+    private volatile int fileGeneration = 0;
+    private final Thread writer;
+
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong writeErrors = new AtomicLong();
+
+    /**
+     * Opens or creates the journal at {@code file}, dropping a torn tail; starts the writer thread. Fails while another
+     * instance still has the file open: {@link #close} it first.
+     */
+    ScanJournal(File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        try {
+            // one writer per file: a second instance would append at its own stale position
+            if (channel.tryLock() == null) throw new IOException("Scan journal is locked by another process");
+            channel.position(validLength());
+            channel.truncate(channel.position());
+        } catch (OverlappingFileLockException e) {
+            raf.close();
+            throw new IOException("Scan journal is already open");
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        writer = new Thread(this::writeLoop, "QrCodeScannerJournal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Queues one read; never blocks on storage. */
+    void append(String sessionId, String format, String payload, long timestampMs) {
+        final Record record = new Record(timestampMs, sessionId, format, payload);
+        synchronized (queueLock) {
+            if (closed || pending.size() >= MAX_PENDING) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (pending.isEmpty()) oldestPendingAtNs = System.nanoTime();
+            pending.add(record);
+            appended++;
+            if (pending.size() >= BATCH_RECORDS) queueLock.notifyAll();
+        }
+    }
+
+    /** Commits everything appended so far and waits for it, up to {@code timeoutMs}. Not for the analysis thread. */
+    boolean flush(long timeoutMs) {
+        final long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        synchronized (queueLock) {
+            final long target = appended;
+            flushRequested = true;
+            queueLock.notifyAll();
+            while (committed < target && !closed) {
+                final long waitMs = (deadline - System.nanoTime()) / 1_000_000L;
+                if (waitMs <= 0) return false;
+                try {
+                    queueLock.wait(waitMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return committed >= target;
+        }
+    }
+
+    /**
+     * Reads committed records in order; call {@link #flush} first to include queued ones. The file is append-only,
+     * so only its length is taken under the file lock and the writer keeps committing while a long read runs. A
+     * {@link #truncate} meanwhile ends the read.
+     */
+    void read(Visitor visitor) throws IOException {
+        read(HEADER_BYTES, visitor);
+    }
+
+    /**
+     * Like {@link #read(Visitor)}, from {@code fromOffset}: the {@link Record#endOffset} of a record read earlier, for
+     * paging without rescanning. An offset that is not a record boundary reads nothing.
+     */
+    void read(long fromOffset, Visitor visitor) throws IOException {
+        final long from = Math.max(HEADER_BYTES, fromOffset);
+        final long end;
+        final int generation;
+        synchronized (fileLock) {
+            end = channel.size();
+            generation = fileGeneration;
+        }
+        if (from >= end) return;
+        final FileInputStream raw = new FileInputStream(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 64 * 1024))) {
+            raw.getChannel().position(from);
+            scan(in, from, end, record -> fileGeneration == generation && visitor.visit(record));
+        }
+    }
+
+    /** Drops every committed and queued record. */
+    void truncate() throws IOException {
+        synchronized (queueLock) {
+            truncations++;
+            committed += pending.size();
+            pending = new ArrayList<>();
+            queueLock.notifyAll();
+        }
+        synchronized (fileLock) {
+            fileGeneration++;
+            channel.truncate(HEADER_BYTES);
+            channel.position(HEADER_BYTES);
+            channel.force(false);
+        }
+    }
+
+    long sizeBytes() throws IOException {
+        synchronized (fileLock) {
+            return channel.size();
+        }
+    }
+
+    /** Commits what is queued, stops the writer and releases the file. */
+    void close() {
+        flush(2000L);
+        synchronized (queueLock) {
+            closed = true;
+            queueLock.notifyAll();
+        }
+        try {
+            writer.join(2000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (fileLock) {
+            try {
+                raf.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            final List<Record> batch;
+            final long upTo;
+            final int generation;
+            synchronized (queueLock) {
+                try {
+                    while (!closed && !flushRequested && pending.size() < BATCH_RECORDS) {
+                        if (pending.isEmpty()) {
+                            queueLock.wait();
+                            continue;
+                        }
+                        final long waitMs = FLUSH_INTERVAL_MS - (System.nanoTime() - oldestPendingAtNs) / 1_000_000L;
+                        if (waitMs <= 0) break;
+                        queueLock.wait(waitMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                flushRequested = false;
+                if (pending.isEmpty()) {
+                    queueLock.notifyAll();
+                    if (closed) return;
+                    continue;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                upTo = appended;
+                generation = truncations;
+            }
+
+            commit(batch, generation);
+
+            synchronized (queueLock) {
+                committed = Math.max(committed, upTo);
+                queueLock.notifyAll();
+            }
+        }
+    }
+
+    /** One write and one fsync for the whole batch. */
+    private void commit(List<Record> batch, int generation) {
+        final List<byte[]> encoded = new ArrayList<>(batch.size());
+        int total = 0;
+        for (Record r : batch) {
+            final byte[] bytes = encode(r);
+            if (bytes == null) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            encoded.add(bytes);
+            total += bytes.length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] bytes : encoded) buffer.put(bytes);
+        buffer.flip();
+
+        synchronized (fileLock) {
+            if (generation != truncations) return;
+            try {
+                final long start = channel.position();
+                try {
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                    channel.force(false);
+                } catch (IOException e) {
+                    // keep the file ending on a whole record
+                    channel.truncate(start);
+                    channel.position(start);
+                    throw e;
+                }
+            } catch (IOException e) {
+                writeErrors.incrementAndGet();
+                dropped.addAndGet(encoded.size());
+            }
+        }
+    }
+
+    /** Null if the record does not fit the format. */
+    static byte[] encode(Record r) {
+        final byte[] session = utf8(r.sessionId);
+        final byte[] format = utf8(r.format);
+        final byte[] payload = utf8(r.payload);
+        if (session.length > 255 || format.length > 255) return null;
+        final int length = 4 + FIXED_BYTES + session.length + format.length + payload.length;
+        if (length > MAX_RECORD_BYTES) return null;
+
+        final ByteBuffer b = ByteBuffer.allocate(4 + length);
+        b.putInt(length);
+        b.putInt(0);
+        b.putLong(r.timestampMs);
+        b.put((byte) session.length).put(session);
+        b.put((byte) format.length).put(format);
+        b.put(payload);
+
+        final CRC32 crc = new CRC32();
+        crc.update(b.array(), 8, length - 4);
+        b.putInt(4, (int) crc.getValue());
+        return b.array();
+    }
+
+    /** Writes the header to a new file; returns the offset after the last whole record. */
+    private long validLength() throws IOException {
+        if (channel.size() < HEADER_BYTES || readMagic() != MAGIC) {
+            channel.truncate(0);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(0, MAGIC);
+            channel.write(header, 0);
+            channel.force(false);
+            return HEADER_BYTES;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            in.skipBytes(HEADER_BYTES);
+            return scan(in, HEADER_BYTES, channel.size(), null);
+        }
+    }
+
+    private int readMagic() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        return header.getInt(0);
+    }
+
+    /**
+     * Walks records from {@code offset}, where {@code in} is positioned, up to {@code end}; returns the offset after
+     * the last whole one.
+     */
+    private static long scan(DataInputStream in, long offset, long end, Visitor visitor) throws IOException {
+        final CRC32 crc = new CRC32();
+        byte[] body = new byte[256];
+        while (offset + 8 <= end) {
+            final int length;
+            final int expectedCrc;
+            final int bodyLength;
+            try {
+                length = in.readInt();
+                expectedCrc = in.readInt();
+                bodyLength = length - 4;
+                if (bodyLength < FIXED_BYTES || length > MAX_RECORD_BYTES || offset + 4 + length > end) break;
+                if (body.length < bodyLength) body = new byte[Math.max(bodyLength, body.length * 2)];
+                // a file cut by truncate() under a running read ends early
+                in.readFully(body, 0, bodyLength);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(body, 0, bodyLength);
+            if ((int) crc.getValue() != expectedCrc) break;
+            offset += 4 + length;
+
+            if (visitor != null && !visitor.visit(decode(body, bodyLength, offset))) break;
+        }
+        return offset;
+    }
+
+    private static Record decode(byte[] body, int bodyLength, long endOffset) {
+        final ByteBuffer b = ByteBuffer.wrap(body, 0, bodyLength);
+        final long timestampMs = b.getLong();
+        final int sessionLength = b.get() & 0xff;
+        final String session = new String(body, b.position(), sessionLength, StandardCharsets.UTF_8);
+        b.position(b.position() + sessionLength);
+        final int formatLength = b.get() & 0xff;
+        final String format = new String(body, b.position(), formatLength, StandardCharsets.UTF_8);
+        b.position(b.position() + formatLength);
+        final String payload = new String(body, b.position(), bodyLength - b.position(), StandardCharsets.UTF_8);
+        return new Record(timestampMs, session, format, payload, endOffset);
+    }
+
+    private static byte[] utf8(String s) {
+        return s != null ? s.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+}
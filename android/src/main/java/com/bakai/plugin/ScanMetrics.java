@@ -0,0 +1,169 @@
+package com.bakai.plugin;
+
+import com.getcapacitor.JSObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-session counters for the live scanner.
+ * Written from the analysis thread, read from the plugin thread through {@link #toJS()}.
+ */
+final class ScanMetrics {
+
+    volatile String decoder = DecoderBackend.MLKIT;
+    final AtomicLong framesReceived = new AtomicLong();
+    final AtomicLong framesAnalyzed = new AtomicLong();
+    // indexed by FrameAnalyzer.DropReason ordinal
+    final AtomicLongArray framesDropped = new AtomicLongArray(FrameAnalyzer.DropReason.values().length);
+    final AtomicLong decodeSuccesses = new AtomicLong();
+    final AtomicLong decodeMisses = new AtomicLong();
+    final AtomicLong decodeErrors = new AtomicLong();
+    // payload filters: reads passed on, and reads dropped as unwanted
+    final AtomicLong readsAccepted = new AtomicLong();
+    final AtomicLong readsRejected = new AtomicLong();
+
+    // low-power idle mode
+    final AtomicLong powerEscalations = new AtomicLong();
+    final AtomicLong powerDeescalations = new AtomicLong();
+    volatile String powerState = PowerModeController.State.ACTIVE.name();
+
+    // progressive resolution
+    final AtomicLong resolutionEscalations = new AtomicLong();
+    final AtomicLong resolutionRelaxations = new AtomicLong();
+    volatile int analysisResolution = -1;
+    // thermal tier in effect, and how often it changed
+    volatile String thermalTier = ThermalController.Tier.NOMINAL.name();
+    final AtomicLong thermalTierChanges = new AtomicLong();
+    // capture profile in effect, and sessions that had to fall back to the camera defaults
+    volatile String captureProfile = CaptureProfile.DEFAULT;
+    final AtomicLong captureProfileFallbacks = new AtomicLong();
+
+    // focus/metering on candidate regions
+    final AtomicLong focusRequests = new AtomicLong();
+    final AtomicLong focusCancels = new AtomicLong();
+
+    // auto-zoom
+    final AtomicLong autoZoomSteps = new AtomicLong();
+    final AtomicLong autoZoomIns = new AtomicLong();
+    final AtomicLong autoZoomOuts = new AtomicLong();
+    final AtomicLong autoZoomResets = new AtomicLong();
+
+    // diagnostic frame dumps written, and frames the ring holds after the memory cap (0 = off)
+    final AtomicLong diagnosticDumps = new AtomicLong();
+    volatile int diagnosticFrameCapacity = 0;
+
+    // multi-frame fusion: fused planes decoded, and how many of them decoded something
+    final AtomicLong framesFused = new AtomicLong();
+    final AtomicLong fusedDecodes = new AtomicLong();
+
+    // region tracking: crops decoded instead of the full frame, how many of them decoded, and tracks lost
+    final AtomicLong trackedDecodes = new AtomicLong();
+    final AtomicLong trackedHits = new AtomicLong();
+    final AtomicLong trackingLost = new AtomicLong();
+
+    // multi-symbol payloads: new parts, sets completed, and sets dropped incomplete
+    final AtomicLong partsCollected = new AtomicLong();
+    final AtomicLong partsAssembled = new AtomicLong();
+    final AtomicLong partSetsEvicted = new AtomicLong();
+
+    // CPU time and task count of the scanner's own threads, by ScanThreads.Role
+    final AtomicLongArray threadCpuNanos = new AtomicLongArray(ScanThreads.Role.values().length);
+    final AtomicLongArray threadTasks = new AtomicLongArray(ScanThreads.Role.values().length);
+
+    // decoder racing; wins and losses keyed by engine name
+    final AtomicLong races = new AtomicLong();
+    final AtomicLong racesUndecided = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> raceWins = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> raceLosses = new ConcurrentHashMap<>();
+
+    /** Records the outcome of one race; a null winner means neither engine decoded. */
+    void countRace(String winner, String loser) {
+        if (winner == null) {
+            racesUndecided.incrementAndGet();
+            return;
+        }
+        counter(raceWins, winner).incrementAndGet();
+        counter(raceLosses, loser).incrementAndGet();
+    }
+
+    long raceWins(String engine) {
+        AtomicLong n = raceWins.get(engine);
+        return n != null ? n.get() : 0L;
+    }
+
+    long raceLosses(String engine) {
+        AtomicLong n = raceLosses.get(engine);
+        return n != null ? n.get() : 0L;
+    }
+
+    private static AtomicLong counter(ConcurrentHashMap<String, AtomicLong> counters, String key) {
+        AtomicLong n = counters.get(key);
+        if (n != null) return n;
+        counters.putIfAbsent(key, new AtomicLong());
+        return counters.get(key);
+    }
+
+    private static JSObject countersToJS(Map<String, AtomicLong> counters) {
+        JSObject o = new JSObject();
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet()) o.put(e.getKey(), e.getValue().get());
+        return o;
+    }
+
+    JSObject toJS() {
+        JSObject o = new JSObject();
+        o.put("decoder", decoder);
+        o.put("framesReceived", framesReceived.get());
+        o.put("framesAnalyzed", framesAnalyzed.get());
+        JSObject dropped = new JSObject();
+        for (FrameAnalyzer.DropReason reason : FrameAnalyzer.DropReason.values()) {
+            dropped.put(reason.name(), framesDropped.get(reason.ordinal()));
+        }
+        o.put("framesDropped", dropped);
+        o.put("decodeSuccesses", decodeSuccesses.get());
+        o.put("decodeMisses", decodeMisses.get());
+        o.put("decodeErrors", decodeErrors.get());
+        o.put("readsAccepted", readsAccepted.get());
+        o.put("readsRejected", readsRejected.get());
+        o.put("powerEscalations", powerEscalations.get());
+        o.put("powerDeescalations", powerDeescalations.get());
+        o.put("powerState", powerState);
+        o.put("resolutionEscalations", resolutionEscalations.get());
+        o.put("resolutionRelaxations", resolutionRelaxations.get());
+        o.put("analysisResolution", analysisResolution);
+        o.put("thermalTier", thermalTier);
+        o.put("thermalTierChanges", thermalTierChanges.get());
+        o.put("captureProfile", captureProfile);
+        o.put("captureProfileFallbacks", captureProfileFallbacks.get());
+        o.put("focusRequests", focusRequests.get());
+        o.put("focusCancels", focusCancels.get());
+        o.put("autoZoomSteps", autoZoomSteps.get());
+        o.put("autoZoomIns", autoZoomIns.get());
+        o.put("autoZoomOuts", autoZoomOuts.get());
+        o.put("autoZoomResets", autoZoomResets.get());
+        o.put("diagnosticDumps", diagnosticDumps.get());
+        o.put("diagnosticFrameCapacity", diagnosticFrameCapacity);
+        o.put("framesFused", framesFused.get());
+        o.put("fusedDecodes", fusedDecodes.get());
+        o.put("trackedDecodes", trackedDecodes.get());
+        o.put("trackedHits", trackedHits.get());
+        o.put("trackingLost", trackingLost.get());
+        o.put("partsCollected", partsCollected.get());
+        o.put("partsAssembled", partsAssembled.get());
+        o.put("partSetsEvicted", partSetsEvicted.get());
+        JSObject cpu = new JSObject();
+        JSObject tasks = new JSObject();
+        for (ScanThreads.Role role : ScanThreads.Role.values()) {
+            cpu.put(role.name(), threadCpuNanos.get(role.ordinal()) / 1_000_000L);
+            tasks.put(role.name(), threadTasks.get(role.ordinal()));
+        }
+        o.put("threadCpuMs", cpu);
+        o.put("threadTasks", tasks);
+        o.put("races", races.get());
+        o.put("racesUndecided", racesUndecided.get());
+        o.put("raceWins", countersToJS(raceWins));
+        o.put("raceLosses", countersToJS(raceLosses));
+        return o;
+    }
+}
@@ -0,0 +1,135 @@
+package com.bakai.plugin;
+
+import android.os.Debug;
+import android.os.Process;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scanner's own threads, one single-thread executor per role and lane, all created the same way: named, at the
+ * role's priority, with the CPU time of every task added to {@link ScanMetrics#threadCpuNanos}.
+ * {@link #shutdown} ends a session; the next {@link #executor} call starts fresh threads with the same settings,
+ * so a restarted scan runs exactly like the first one.
+ */
+final class ScanThreads {
+
+    enum Role {
+        // CameraX frame callbacks: gating, preprocessing, ZXing decodes
+        ANALYSIS("QrCodeScannerAnalysis", Process.THREAD_PRIORITY_MORE_FAVORABLE),
+        // extra decoder lanes (racing)
+        DECODE("QrCodeScannerDecode", Process.THREAD_PRIORITY_DEFAULT),
+        // diagnostics dumps and other file I/O
+        BACKGROUND("QrCodeScannerBackground", Process.THREAD_PRIORITY_BACKGROUND);
+
+        final String threadName;
+        final int defaultPriority;
+
+        Role(String threadName, int defaultPriority) {
+            this.threadName = threadName;
+            this.defaultPriority = defaultPriority;
+        }
+    }
+
+    /** Thread-level platform calls; replaced in tests. */
+    interface Platform {
+        /** Sets the calling thread's priority (Linux nice value). */
+        void setPriority(int priority);
+
+        /** CPU time of the calling thread, or -1 if unknown. */
+        long threadCpuNanos();
+    }
+
+    static final Platform ANDROID = new Platform() {
+        @Override
+        public void setPriority(int priority) {
+            try {
+                Process.setThreadPriority(priority);
+            } catch (Exception ignored) {}
+        }
+
+        @Override
+        public long threadCpuNanos() {
+            return Debug.threadCpuTimeNanos();
+        }
+    };
+
+    // accepted range for configured priorities: -8 (urgent display) to 19 (lowest)
+    static final int MIN_PRIORITY = Process.THREAD_PRIORITY_URGENT_DISPLAY;
+    static final int MAX_PRIORITY = Process.THREAD_PRIORITY_LOWEST;
+
+    private final Platform platform;
+    private final ScanMetrics metrics;
+    private final int[] priorities = new int[Role.values().length];
+    private final Map<String, ExecutorService> executors = new LinkedHashMap<>();
+
+    ScanThreads(Platform platform, ScanMetrics metrics) {
+        this.platform = platform;
+        this.metrics = metrics;
+        for (Role role : Role.values()) priorities[role.ordinal()] = role.defaultPriority;
+    }
+
+    /** Priority for threads of {@code role} started from now on; running threads keep theirs until the next start. */
+    synchronized void setPriority(Role role, int priority) {
+        priorities[role.ordinal()] = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+    }
+
+    synchronized int priority(Role role) {
+        return priorities[role.ordinal()];
+    }
+
+    /** The executor for {@code role} and {@code lane} (null for the only one), started if there is none running. */
+    synchronized ExecutorService executor(Role role, String lane) {
+        final String name = lane != null ? role.threadName + "-" + lane : role.threadName;
+        ExecutorService executor = executors.get(name);
+        if (executor == null || executor.isShutdown()) {
+            executor = newExecutor(role, name, priorities[role.ordinal()]);
+            executors.put(name, executor);
+        }
+        return executor;
+    }
+
+    /** Shuts every executor down; queued tasks still run. */
+    synchronized void shutdown() {
+        for (ExecutorService executor : executors.values()) executor.shutdown();
+        executors.clear();
+    }
+
+    private ExecutorService newExecutor(final Role role, final String name, final int priority) {
+        final ThreadFactory factory = new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(
+                    () -> {
+                        platform.setPriority(priority);
+                        r.run();
+                    },
+                    name
+                );
+            }
+        };
+
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), factory) {
+            // only touched by the one worker thread
+            private long startedAtNanos = -1L;
+
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                startedAtNanos = platform.threadCpuNanos();
+            }
+
+            @Override
+            protected void afterExecute(Runnable r, Throwable t) {
+                final long now = platform.threadCpuNanos();
+                if (startedAtNanos >= 0 && now >= startedAtNanos) {
+                    metrics.threadCpuNanos.addAndGet(role.ordinal(), now - startedAtNanos);
+                    metrics.threadTasks.incrementAndGet(role.ordinal());
+                }
+            }
+        };
+    }
+}
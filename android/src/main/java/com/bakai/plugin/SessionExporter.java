@@ -0,0 +1,183 @@
+package com.bakai.plugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams journal records to a CSV or JSON-lines file, optionally gzipped, one record at a time: memory stays the
+ * same whether the session has ten rows or a million.
+ */
+final class SessionExporter {
+
+    static final String CSV = "CSV";
+    static final String JSONL = "JSONL";
+
+    // progress at most this often
+    static final long PROGRESS_INTERVAL_MS = 250L;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    interface Progress {
+        /** {@code fraction} of the journal read so far, 0..1. */
+        void onProgress(int records, double fraction);
+    }
+
+    private SessionExporter() {}
+
+    /** The file name extension for {@code format}, with ".gz" when compressed. */
+    static String extension(String format, boolean gzip) {
+        return (CSV.equals(format) ? ".csv" : ".jsonl") + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Writes the records of {@code sessionId}, or all records if null, to {@code file}. Returns the rows written.
+     * A failed export, or one stopped by {@code cancelled} (may be null), leaves no file behind. Cancel with the flag
+     * rather than an interrupt: an interrupt during a journal read closes the journal's channel.
+     */
+    static int export(
+        ScanJournal journal,
+        String sessionId,
+        String format,
+        boolean gzip,
+        File file,
+        ScanClock clock,
+        Progress progress,
+        AtomicBoolean cancelled
+    ) throws IOException {
+        final boolean csv = CSV.equals(format);
+        final long total = Math.max(1L, journal.sizeBytes());
+        final int[] rows = { 0 };
+        final long[] lastProgressAt = { clock.nowMs() };
+        final IOException[] failure = { null };
+
+        boolean ok = false;
+        try {
+            OutputStream stream = new FileOutputStream(file);
+            if (gzip) {
+                try {
+                    stream = new GZIPOutputStream(stream, BUFFER_BYTES);
+                } catch (IOException e) {
+                    // the header write failed; the writer below never took the file stream
+                    try {
+                        stream.close();
+                    } catch (IOException ignored) {}
+                    throw e;
+                }
+            }
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_BYTES)) {
+                if (csv) out.write("timestamp,sessionId,format,payload\n");
+                journal.read(record -> {
+                    if (cancelled != null && cancelled.get()) {
+                        failure[0] = new InterruptedIOException("Export cancelled");
+                        return false;
+                    }
+                    if (sessionId != null && !sessionId.equals(record.sessionId)) return true;
+                    try {
+                        if (csv) writeCsv(out, record);
+                        else writeJson(out, record);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                        return false;
+                    }
+                    rows[0]++;
+
+                    final long now = clock.nowMs();
+                    if (progress != null && now - lastProgressAt[0] >= PROGRESS_INTERVAL_MS) {
+                        lastProgressAt[0] = now;
+                        progress.onProgress(rows[0], Math.min(1.0, record.endOffset / (double) total));
+                    }
+                    return true;
+                });
+                if (failure[0] != null) throw failure[0];
+            }
+            ok = true;
+        } finally {
+            if (!ok) file.delete();
+        }
+        if (progress != null) progress.onProgress(rows[0], 1.0);
+        return rows[0];
+    }
+
+    private static void writeCsv(Writer out, ScanJournal.Record r) throws IOException {
+        out.write(Long.toString(r.timestampMs));
+        out.write(',');
+        writeCsvField(out, r.sessionId);
+        out.write(',');
+        writeCsvField(out, r.format);
+        out.write(',');
+        writeCsvField(out, r.payload);
+        out.write('\n');
+    }
+
+    /** RFC 4180: quoted only when it holds a comma, quote or line break; quotes doubled. */
+    static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            final char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeJson(Writer out, ScanJournal.Record r) throws IOException {
+        out.write("{\"timestamp\":");
+        out.write(Long.toString(r.timestampMs));
+        out.write(",\"sessionId\":");
+        writeJsonString(out, r.sessionId);
+        out.write(",\"format\":");
+        writeJsonString(out, r.format);
+        out.write(",\"payload\":");
+        writeJsonString(out, r.payload);
+        out.write("}\n");
+    }
+
+    /** RFC 8259 string: quotes, backslashes and control characters escaped; null as "". */
+    static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.write("\\\"");
+                        break;
+                    case '\\':
+                        out.write("\\\\");
+                        break;
+                    case '\n':
+                        out.write("\\n");
+                        break;
+                    case '\r':
+                        out.write("\\r");
+                        break;
+                    case '\t':
+                        out.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,93 @@
+package com.bakai.plugin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Skips motion-blurred frames before they reach the decoder.
+ * Sharpness is the variance of a 4-neighbour Laplacian, sampled on a sparse grid of the centre of the Y plane.
+ * The threshold follows the scene: a frame is blurry if it is well below the sharpest recent frame, which decays
+ * so a darker or flatter scene lowers the bar again. A few blurry frames in a row are skipped at most, then one
+ * goes through anyway. Not thread-safe; called from the analysis thread.
+ */
+final class SharpnessGate {
+
+    // ~3.6k samples on a 1280x720 plane
+    private static final int SAMPLE_STEP = 8;
+    // frames below this share of the recent peak count as blurry
+    static final float BLUR_RATIO = 0.45f;
+    // per-frame decay of the peak; halves in ~14 frames
+    private static final float PEAK_DECAY = 0.95f;
+    // flat scenes (a wall, the floor) have nothing to gate on
+    private static final float MIN_PEAK = 20f;
+    static final int MAX_CONSECUTIVE_SKIPS = 4;
+
+    private float peak = 0f;
+    private float lastSharpness = 0f;
+    private int consecutiveSkips = 0;
+
+    void reset() {
+        peak = 0f;
+        lastSharpness = 0f;
+        consecutiveSkips = 0;
+    }
+
+    float lastSharpness() {
+        return lastSharpness;
+    }
+
+    /** Current bar a frame has to clear. */
+    float threshold() {
+        return peak < MIN_PEAK ? 0f : peak * BLUR_RATIO;
+    }
+
+    /** Scores the frame and returns true if it should be decoded. Does not move the buffer position. */
+    boolean accept(ByteBuffer plane, int width, int height, int rowStride) {
+        final float sharpness = sharpness(plane, width, height, rowStride);
+        lastSharpness = sharpness;
+        if (sharpness < 0f) return true;
+
+        final float bar = threshold();
+        peak = Math.max(sharpness, peak * PEAK_DECAY);
+
+        if (sharpness >= bar || consecutiveSkips >= MAX_CONSECUTIVE_SKIPS) {
+            consecutiveSkips = 0;
+            return true;
+        }
+        consecutiveSkips++;
+        return false;
+    }
+
+    /** Laplacian variance over the centre of the plane, or -1 if the plane is too small to score. */
+    static float sharpness(ByteBuffer plane, int width, int height, int rowStride) {
+        if (plane == null || width < 4 * SAMPLE_STEP || height < 4 * SAMPLE_STEP || rowStride < width) return -1f;
+
+        final int x0 = width / 4;
+        final int x1 = width - width / 4;
+        final int y0 = height / 4;
+        final int y1 = height - height / 4;
+        final int limit = plane.limit();
+
+        long sum = 0;
+        long sumSq = 0;
+        int n = 0;
+        for (int y = y0; y < y1; y += SAMPLE_STEP) {
+            final int row = y * rowStride;
+            if (row + rowStride + x1 >= limit) break;
+            for (int x = x0; x < x1; x += SAMPLE_STEP) {
+                final int i = row + x;
+                final int lap = 4 * (plane.get(i) & 0xFF)
+                    - (plane.get(i - 1) & 0xFF)
+                    - (plane.get(i + 1) & 0xFF)
+                    - (plane.get(i - rowStride) & 0xFF)
+                    - (plane.get(i + rowStride) & 0xFF);
+                sum += lap;
+                sumSq += lap * lap;
+                n++;
+            }
+        }
+        if (n == 0) return -1f;
+
+        final double mean = sum / (double) n;
+        return (float) (sumSq / (double) n - mean * mean);
+    }
+}
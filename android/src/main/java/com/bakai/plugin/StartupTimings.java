@@ -0,0 +1,136 @@
+package com.bakai.plugin;
+
+import com.getcapacitor.JSObject;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Where the time goes between {@code startScan} and the first decoded code. Each scan start gets a {@link Session}
+ * whose phases are stamped once, in ms since the start call; finished sessions feed rolling per-phase aggregates
+ * over the last {@link #WINDOW} starts. Kept by the plugin, so the aggregates outlive single scans.
+ */
+final class StartupTimings {
+
+    enum Phase {
+        // camera container and overlay attached
+        UI_READY,
+        // ProcessCameraProvider future resolved
+        CAMERA_PROVIDER,
+        // bindToLifecycle returned
+        CAMERA_BOUND,
+        // preview stream state went to STREAMING
+        FIRST_PREVIEW_FRAME,
+        // first frame past the gates, handed to the decoder
+        FIRST_ANALYZED_FRAME,
+        // first decoder completion, decoded or not
+        FIRST_DECODER_RESULT,
+        FIRST_DECODE
+    }
+
+    static final int WINDOW = 20;
+
+    /** One scan start. Thread-safe: phases are stamped from the main, analysis and decoder threads. */
+    static final class Session {
+
+        final long startedAtMs;
+        // ms since start per phase; -1 = not reached
+        private final AtomicLongArray marks = new AtomicLongArray(Phase.values().length);
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        Session(long startedAtMs) {
+            this.startedAtMs = startedAtMs;
+            for (int i = 0; i < marks.length(); i++) marks.set(i, -1L);
+        }
+
+        /** Stamps {@code phase} at {@code nowMs} unless it already is. Returns true if this call stamped it. */
+        boolean mark(Phase phase, long nowMs) {
+            return marks.compareAndSet(phase.ordinal(), -1L, Math.max(0L, nowMs - startedAtMs));
+        }
+
+        /** Ms from start to {@code phase}, or -1 if not reached. */
+        long elapsed(Phase phase) {
+            return marks.get(phase.ordinal());
+        }
+
+        /** True the first time only; later phases are no longer of interest once finished. */
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+
+        /** Phases reached so far, by name. */
+        JSObject toJS() {
+            JSObject o = new JSObject();
+            for (Phase phase : Phase.values()) {
+                final long ms = elapsed(phase);
+                if (ms >= 0) o.put(phase.name(), ms);
+            }
+            return o;
+        }
+    }
+
+    // per phase, the last WINDOW samples as a ring
+    private final long[][] samples = new long[Phase.values().length][WINDOW];
+    private final int[] counts = new int[Phase.values().length];
+    private int sessions = 0;
+    private Session last = null;
+
+    Session start(long nowMs) {
+        return new Session(nowMs);
+    }
+
+    /** Adds the phases {@code session} reached. Call once per session, after {@link Session#finish}. */
+    synchronized void record(Session session) {
+        for (Phase phase : Phase.values()) {
+            final long ms = session.elapsed(phase);
+            if (ms < 0) continue;
+            final int i = phase.ordinal();
+            samples[i][counts[i] % WINDOW] = ms;
+            counts[i]++;
+        }
+        sessions++;
+        last = session;
+    }
+
+    /** Samples of {@code phase} in the window. */
+    synchronized int count(Phase phase) {
+        return Math.min(counts[phase.ordinal()], WINDOW);
+    }
+
+    /** Median of {@code phase} over the window, or -1 if there are no samples. */
+    synchronized long median(Phase phase) {
+        final long[] sorted = window(phase);
+        if (sorted.length == 0) return -1L;
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    synchronized JSObject toJS() {
+        JSObject o = new JSObject();
+        o.put("sessions", sessions);
+        o.put("window", WINDOW);
+        if (last != null) o.put("last", last.toJS());
+
+        JSObject phases = new JSObject();
+        for (Phase phase : Phase.values()) {
+            final long[] sorted = window(phase);
+            if (sorted.length == 0) continue;
+            Arrays.sort(sorted);
+            long sum = 0L;
+            for (long ms : sorted) sum += ms;
+
+            JSObject stats = new JSObject();
+            stats.put("count", sorted.length);
+            stats.put("meanMs", sum / sorted.length);
+            stats.put("medianMs", sorted[sorted.length / 2]);
+            stats.put("maxMs", sorted[sorted.length - 1]);
+            phases.put(phase.name(), stats);
+        }
+        o.put("phases", phases);
+        return o;
+    }
+
+    private long[] window(Phase phase) {
+        return Arrays.copyOf(samples[phase.ordinal()], Math.min(counts[phase.ordinal()], WINDOW));
+    }
+}
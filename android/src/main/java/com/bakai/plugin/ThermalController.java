@@ -0,0 +1,76 @@
+package com.bakai.plugin;
+
+/**
+ * Thermal tiers for long sessions: maps the platform thermal status to caps on analysis resolution and rate, and on
+ * the overlay animation. Heating up takes effect at once; cooling down steps back one tier at a time, and only
+ * after the status has stayed lower for {@link #RECOVER_AFTER_MS}, so a device hovering at a boundary does not
+ * rebind the camera every few seconds. Fed from the thermal listener and the analysis thread.
+ */
+final class ThermalController {
+
+    enum Tier {
+        NOMINAL(Integer.MAX_VALUE, 0L, true),
+        WARM(1, 120L, true),
+        HOT(0, 200L, false),
+        CRITICAL(0, 400L, false);
+
+        // highest resolution tier allowed, same numbering as the resolution option
+        final int maxResolution;
+        // floor for the analysis interval; 0 = no floor
+        final long minIntervalMs;
+        final boolean animateOverlay;
+
+        Tier(int maxResolution, long minIntervalMs, boolean animateOverlay) {
+            this.maxResolution = maxResolution;
+            this.minIntervalMs = minIntervalMs;
+            this.animateOverlay = animateOverlay;
+        }
+    }
+
+    // PowerManager.THERMAL_STATUS_* (API 29)
+    static final int STATUS_NONE = 0;
+    static final int STATUS_LIGHT = 1;
+    static final int STATUS_MODERATE = 2;
+    static final int STATUS_SEVERE = 3;
+    static final int STATUS_CRITICAL = 4;
+
+    static final long RECOVER_AFTER_MS = 20_000L;
+
+    private Tier tier = Tier.NOMINAL;
+    // tier the latest status asks for; below tier while cooling down
+    private Tier target = Tier.NOMINAL;
+    private long coolingSinceMs = 0L;
+
+    static Tier tierFor(int status) {
+        if (status >= STATUS_CRITICAL) return Tier.CRITICAL;
+        if (status == STATUS_SEVERE) return Tier.HOT;
+        if (status == STATUS_MODERATE) return Tier.WARM;
+        return Tier.NOMINAL;
+    }
+
+    synchronized Tier tier() {
+        return tier;
+    }
+
+    /** Reports a new thermal status. Returns true if the tier changed. */
+    synchronized boolean onStatus(int status, long nowMs) {
+        final boolean wasCooling = target.ordinal() < tier.ordinal();
+        target = tierFor(status);
+        if (target.ordinal() > tier.ordinal()) {
+            tier = target;
+            return true;
+        }
+        if (target.ordinal() < tier.ordinal() && !wasCooling) coolingSinceMs = nowMs;
+        return false;
+    }
+
+    /** Steps one tier cooler once the status has stayed lower long enough. Returns true if the tier changed. */
+    synchronized boolean onTick(long nowMs) {
+        if (target.ordinal() >= tier.ordinal()) return false;
+        if (nowMs - coolingSinceMs < RECOVER_AFTER_MS) return false;
+
+        tier = Tier.values()[tier.ordinal() - 1];
+        coolingSinceMs = nowMs;
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package com.bakai.plugin;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.result.ResultParser;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure-Java {@link DecoderBackend} on ZXing. Needs no Play Services and no model download, and decodes
+ * synchronously on the calling thread. It only reports codes it could decode, so there are no undecoded
+ * candidates to drive region focus or the resolution ladder.
+ */
+final class ZxingDecoderBackend implements DecoderBackend {
+
+    private final QRCodeMultiReader reader = new QRCodeMultiReader();
+    private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+    private final float[] point = new float[2];
+
+    // row-strided copy of camera planes; grows to the largest frame seen. Heap-backed planes are read in place.
+    private byte[] scratch = new byte[0];
+
+    /** @param tryHarder spend more time per image; meant for stills, too slow for live frames */
+    ZxingDecoderBackend(boolean tryHarder) {
+        if (tryHarder) hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    }
+
+    @Override
+    public String name() {
+        return ZXING;
+    }
+
+    @Override
+    public void decode(LumaFrame frame, Callback<DecodedBarcode> callback) {
+        final DecodeResult<DecodedBarcode> result;
+        try {
+            result = decode(frame);
+        } catch (RuntimeException e) {
+            callback.onFailure(e.getMessage() != null ? e.getMessage() : "ZXing decode failed");
+            return;
+        }
+        callback.onResult(result);
+    }
+
+    /** Decodes on the calling thread. */
+    synchronized DecodeResult<DecodedBarcode> decode(LumaFrame frame) {
+        final int width = frame.width;
+        final int height = frame.height;
+        final int stride = frame.rowStride;
+        if (width <= 0 || height <= 0 || stride < width) return DecodeResult.empty();
+
+        final PlanarYUVLuminanceSource source = luminanceSource(frame.luma, width, height, stride);
+        final Result[] results;
+        try {
+            results = reader.decodeMultiple(new BinaryBitmap(new HybridBinarizer(source)), hints);
+        } catch (NotFoundException e) {
+            return DecodeResult.empty();
+        }
+
+        final List<DecodedBarcode> decoded = new ArrayList<>(results.length);
+        for (Result r : results) {
+            if (r == null || r.getText() == null || r.getText().isEmpty()) continue;
+            decoded.add(toDecoded(r, frame));
+        }
+
+        final List<DecodedBarcode> unique = Payloads.filterDecoded(decoded, DecodedBarcode.PAYLOAD);
+        BarcodeBox bounds = null;
+        for (DecodedBarcode d : unique) bounds = BarcodeBox.union(bounds, d.box);
+        return new DecodeResult<>(unique, unique.size(), null, bounds);
+    }
+
+    @Override
+    public void close() {}
+
+    /**
+     * ZXing wants a byte[]: packed, fused and raced planes already are one (a crop of them starts somewhere inside it),
+     * so only camera planes, which are direct buffers, are copied.
+     */
+    private PlanarYUVLuminanceSource luminanceSource(ByteBuffer luma, int width, int height, int stride) {
+        if (luma.hasArray()) {
+            final byte[] data = luma.array();
+            final int offset = luma.arrayOffset() + luma.position();
+            final int top = offset / stride;
+            final int left = offset % stride;
+            if (left + width <= stride && (long) (top + height) * stride <= data.length) {
+                return new PlanarYUVLuminanceSource(data, stride, top + height, left, top, width, height, false);
+            }
+        }
+
+        // the last row of a camera plane may stop short of the stride
+        final int size = stride * height;
+        if (scratch.length < size) scratch = new byte[size];
+        final ByteBuffer plane = luma.duplicate();
+        plane.position(0);
+        plane.get(scratch, 0, Math.min(size, plane.remaining()));
+        return new PlanarYUVLuminanceSource(scratch, stride, height, 0, 0, width, height, false);
+    }
+
+    private DecodedBarcode toDecoded(Result r, LumaFrame frame) {
+        final String text = r.getText();
+        final Map<ResultMetadataType, Object> metadata = r.getResultMetadata();
+        final Object sequence = metadata != null ? metadata.get(ResultMetadataType.STRUCTURED_APPEND_SEQUENCE) : null;
+        final Object parity = metadata != null ? metadata.get(ResultMetadataType.STRUCTURED_APPEND_PARITY) : null;
+        return new DecodedBarcode(
+            text,
+            text,
+            "QR_CODE",
+            mapValueType(r),
+            rawBytesOf(r),
+            null,
+            boxOf(r.getResultPoints(), frame),
+            null,
+            sequence instanceof Integer ? (Integer) sequence : -1,
+            parity instanceof Integer ? (Integer) parity : -1
+        );
+    }
+
+    /** Bounds of the finder patterns in full-frame upright pixels; a little smaller than the code itself. */
+    private BarcodeBox boxOf(ResultPoint[] points, LumaFrame frame) {
+        if (points == null || points.length == 0) return null;
+
+        final int uprightWidth = frame.uprightWidth();
+        final int uprightHeight = frame.uprightHeight();
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (ResultPoint p : points) {
+            if (p == null) continue;
+            FrameGeometry.bufferToUpright(p.getX() / frame.width, p.getY() / frame.height, frame.rotationDegrees, point);
+            final float x = point[0] * uprightWidth + frame.originX;
+            final float y = point[1] * uprightHeight + frame.originY;
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x);
+            bottom = Math.max(bottom, y);
+        }
+        if (left > right) return null;
+        return new BarcodeBox(Math.round(left), Math.round(top), Math.round(right), Math.round(bottom));
+    }
+
+    /** Byte-mode segments if the code has them, otherwise the text as UTF-8. */
+    private static byte[] rawBytesOf(Result r) {
+        final Map<ResultMetadataType, Object> metadata = r.getResultMetadata();
+        final Object segments = metadata != null ? metadata.get(ResultMetadataType.BYTE_SEGMENTS) : null;
+        if (segments instanceof List && !((List<?>) segments).isEmpty()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (Object segment : (List<?>) segments) {
+                if (segment instanceof byte[]) out.write((byte[]) segment, 0, ((byte[]) segment).length);
+            }
+            return out.toByteArray();
+        }
+        return r.getText().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Same subset of value types the ML Kit mapping reports. */
+    private static String mapValueType(Result r) {
+        switch (ResultParser.parseResult(r).getType()) {
+            case TEXT:
+                return "TEXT";
+            case URI:
+                return "URL";
+            case WIFI:
+                return "WIFI";
+            case TEL:
+                return "PHONE";
+            case EMAIL_ADDRESS:
+                return "EMAIL";
+            case SMS:
+                return "SMS";
+            case GEO:
+                return "GEO";
+            default:
+                return "UNKNOWN";
+        }
+    }
+}
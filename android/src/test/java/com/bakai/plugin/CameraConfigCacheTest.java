@@ -0,0 +1,73 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class CameraConfigCacheTest {
+
+    private static final class MapStore implements CameraConfigCache.Store {
+
+        final Map<String, String> values = new HashMap<>();
+
+        @Override
+        public String get(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+        }
+    }
+
+    @Test
+    public void remembersWhatEachCameraReported() {
+        MapStore store = new MapStore();
+        CameraConfigCache cache = new CameraConfigCache(store, "os1|app1", "acme/x1");
+        assertNull(cache.get("0"));
+
+        cache.putZoomBounds("0", 0.6f, 10f);
+        cache.putFlash("0", true);
+        cache.putAnalysisSize("0", 2, 1920, 1080);
+        cache.putLastZoom("0", 2.5f);
+        cache.putFlash("1", false);
+
+        // a new session reads it back
+        CameraConfigCache.Entry back = new CameraConfigCache(store, "os1|app1", "acme/x1").get("0");
+        assertTrue(back.hasZoomBounds());
+        assertEquals(10f, back.clampZoom(40f), 0f);
+        assertEquals(Boolean.TRUE, back.hasFlash);
+        assertArrayEquals(new int[] { 1920, 1080 }, back.analysisSize(2));
+        assertNull(back.analysisSize(0));
+        assertEquals(2.5f, back.lastZoom, 0f);
+
+        CameraConfigCache.Entry front = cache.get("1");
+        assertFalse(front.hasZoomBounds());
+        assertEquals(Boolean.FALSE, front.hasFlash);
+        assertTrue(Float.isNaN(front.lastZoom));
+    }
+
+    @Test
+    public void anOsOrAppUpdateDropsEverything() {
+        MapStore store = new MapStore();
+        new CameraConfigCache(store, "os1|app1", "acme/x1").putZoomBounds("0", 1f, 8f);
+
+        assertNotNull(new CameraConfigCache(store, "os1|app1", "acme/x1").get("0"));
+        assertNull(new CameraConfigCache(store, "os2|app1", "acme/x1").get("0"));
+    }
+
+    @Test
+    public void unreadableEntriesCountAsMissing() {
+        assertNull(CameraConfigCache.Entry.parse("0;1;2;true;0x0,0x0,0x0;NaN"));
+        assertNull(CameraConfigCache.Entry.parse("1;garbage"));
+        assertNull(CameraConfigCache.Entry.parse(null));
+    }
+}
@@ -0,0 +1,31 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CaptureProfileTest {
+
+    @Test
+    public void picksTheHighestFixedFloorTheCameraOffers() {
+        int[][] ranges = { { 15, 30 }, { 30, 30 }, { 7, 60 }, { 60, 60 }, { 120, 120 } };
+        assertArrayEquals(new int[] { 60, 60 }, CaptureProfile.pickFpsRange(ranges));
+
+        // a floor of 30 beats a wider range with the same floor
+        int[][] common = { { 15, 30 }, { 30, 60 }, { 30, 30 } };
+        assertArrayEquals(new int[] { 30, 30 }, CaptureProfile.pickFpsRange(common));
+    }
+
+    @Test
+    public void leavesFpsAloneWhenNoRangeKeepsExposureShort() {
+        assertNull(CaptureProfile.pickFpsRange(new int[][] { { 7, 30 }, { 15, 30 } }));
+        assertNull(CaptureProfile.pickFpsRange(null));
+    }
+
+    @Test
+    public void usesModesOnlyWhenListed() {
+        assertEquals(Integer.valueOf(1), CaptureProfile.pickMode(new int[] { 0, 1, 2 }, 1));
+        assertNull(CaptureProfile.pickMode(new int[] { 0, 2 }, 1));
+        assertNull(CaptureProfile.pickMode(null, 1));
+    }
+}
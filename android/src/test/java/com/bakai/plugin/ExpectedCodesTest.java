@@ -0,0 +1,58 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class ExpectedCodesTest {
+
+    private static ExpectedCodes read(String list) throws Exception {
+        return ExpectedCodes.read(new ByteArrayInputStream(list.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void classifiesReadsAndKeepsTallies() throws Exception {
+        ExpectedCodes codes = read("\uFEFFSKU-1\r\nSKU-2\n\nSKU-1\nСКЛАД-7");
+        assertEquals(3, codes.size());
+        assertEquals(1, codes.fileDuplicates);
+
+        assertEquals(ExpectedCodes.Status.EXPECTED, codes.classify("SKU-1"));
+        assertEquals(ExpectedCodes.Status.ALREADY_SEEN, codes.classify("SKU-1"));
+        assertEquals(ExpectedCodes.Status.EXPECTED, codes.classify("СКЛАД-7"));
+        assertEquals(ExpectedCodes.Status.UNEXPECTED, codes.classify("SKU-9"));
+        assertEquals(ExpectedCodes.Status.ALREADY_SEEN, codes.classify("SKU-9"));
+        assertEquals(ExpectedCodes.Status.UNEXPECTED, codes.classify("SKU-"));
+
+        assertEquals(2, codes.found());
+        assertEquals(2, codes.unexpected());
+        assertEquals(2, codes.alreadySeen());
+    }
+
+    @Test
+    public void mapsAMillionCodesFromAFile() throws Exception {
+        File file = File.createTempFile("expected", ".txt");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            StringBuilder chunk = new StringBuilder();
+            for (int i = 0; i < 1_000_000; i++) {
+                chunk.append("SN").append(i).append('\n');
+                if (chunk.length() > 60_000) {
+                    out.write(chunk.toString().getBytes(StandardCharsets.US_ASCII));
+                    chunk.setLength(0);
+                }
+            }
+            out.write(chunk.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        ExpectedCodes codes = ExpectedCodes.map(file);
+        assertEquals(1_000_000, codes.size());
+        assertEquals(0, codes.fileDuplicates);
+        // lines split across read chunks hash the same as whole ones
+        for (int i = 0; i < 1_000_000; i += 9_973) assertEquals(ExpectedCodes.Status.EXPECTED, codes.classify("SN" + i));
+        assertEquals(ExpectedCodes.Status.UNEXPECTED, codes.classify("SN1000000"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class FrameFusionTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int STRIDE = 336;
+
+    /** Dark 8x8-pixel module pattern, like a QR code under cold-storage lighting. */
+    private static int[] scene(long seed) {
+        Random random = new Random(seed);
+        int[] modules = new int[(WIDTH / 8 + 8) * (HEIGHT / 8 + 8)];
+        for (int i = 0; i < modules.length; i++) modules[i] = random.nextBoolean() ? 20 : 70;
+        return modules;
+    }
+
+    /** The scene moved by (dx, dy) pixels, plus Gaussian sensor noise; rows padded to {@link #STRIDE}. */
+    private static LumaFrame shot(int[] modules, int dx, int dy, double noise, Random random, long timestampMs) {
+        final int cols = WIDTH / 8 + 8;
+        byte[] plane = new byte[STRIDE * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int sx = x - dx + 32;
+                final int sy = y - dy + 32;
+                final double v = modules[(sy / 8) * cols + sx / 8] + random.nextGaussian() * noise;
+                plane[y * STRIDE + x] = (byte) Math.max(0, Math.min(255, (int) Math.round(v)));
+            }
+        }
+        return new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, STRIDE, 0, timestampMs, null);
+    }
+
+    /** RMS difference against the noiseless scene at the given offset, over the interior. */
+    private static double rmsError(LumaFrame frame, int[] modules, int dx, int dy) {
+        final int cols = WIDTH / 8 + 8;
+        final ByteBuffer plane = frame.luma;
+        double sum = 0;
+        int n = 0;
+        for (int y = 24; y < HEIGHT - 24; y++) {
+            for (int x = 24; x < WIDTH - 24; x++) {
+                final int expected = modules[((y - dy + 32) / 8) * cols + (x - dx + 32) / 8];
+                final int actual = plane.get(y * frame.rowStride + x) & 0xFF;
+                sum += (actual - expected) * (actual - expected);
+                n++;
+            }
+        }
+        return Math.sqrt(sum / n);
+    }
+
+    @Test
+    public void alignsShiftedFramesOnTheNewest() {
+        int[] modules = scene(1);
+        Random random = new Random(2);
+        FrameFusion fusion = new FrameFusion(4);
+        int[][] offsets = { { 0, 0 }, { 3, -2 }, { -5, 4 }, { 6, 1 } };
+        for (int i = 0; i < offsets.length; i++) fusion.push(shot(modules, offsets[i][0], offsets[i][1], 0, random, i * 33L));
+
+        LumaFrame fused = fusion.fuse(90);
+
+        assertEquals(4, fusion.lastFusedCount());
+        assertEquals(90, fused.rotationDegrees);
+        assertEquals(99L, fused.timestampMs);
+        // newest(x, y) ~ older(x + dx, y + dy): the older frame was shot at offset o, the newest at (6, 1)
+        assertEquals(-5 - 6, fusion.shiftX(1));
+        assertEquals(4 - 1, fusion.shiftY(1));
+        assertEquals(0 - 6, fusion.shiftX(3));
+        assertEquals(0 - 1, fusion.shiftY(3));
+        assertEquals(0.0, rmsError(fused, modules, 6, 1), 2.0);
+    }
+
+    @Test
+    public void averagingCutsSensorNoise() {
+        int[] modules = scene(3);
+        Random random = new Random(4);
+        FrameFusion fusion = new FrameFusion(4);
+        LumaFrame last = null;
+        for (int i = 0; i < 4; i++) {
+            last = shot(modules, i, -i, 12, random, i * 33L);
+            fusion.push(last);
+        }
+
+        final double single = rmsError(last, modules, 3, -3);
+        final double fused = rmsError(fusion.fuse(0), modules, 3, -3);
+
+        assertEquals(4, fusion.lastFusedCount());
+        assertTrue("single " + single + " fused " + fused, fused < single * 0.65);
+    }
+
+    @Test
+    public void leavesOutFramesOfAnotherScene() {
+        Random random = new Random(5);
+        FrameFusion fusion = new FrameFusion(4);
+        fusion.push(shot(scene(6), 0, 0, 4, random, 0L));
+        fusion.push(shot(scene(7), 0, 0, 4, random, 33L));
+        fusion.push(shot(scene(7), 1, 0, 4, random, 66L));
+
+        fusion.fuse(0);
+
+        assertEquals(2, fusion.lastFusedCount());
+    }
+
+    @Test
+    public void newFrameSizeStartsANewWindow() {
+        Random random = new Random(8);
+        FrameFusion fusion = new FrameFusion(4);
+        fusion.push(shot(scene(9), 0, 0, 0, random, 0L));
+        fusion.push(shot(scene(9), 0, 0, 0, random, 33L));
+        fusion.push(new LumaFrame(ByteBuffer.wrap(new byte[160 * 120]), 160, 120, 160, 0, 66L, null));
+
+        assertEquals(1, fusion.size());
+    }
+
+    @Test
+    public void analyzerDecodesFusedPlanesOnlyDuringAMissStreak() {
+        final int[] modules = scene(10);
+        final Random random = new Random(11);
+        final List<Boolean> fusedCalls = new ArrayList<>();
+        final Set<ByteBuffer> cameraPlanes = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+        ScriptedDecoder decoder = new ScriptedDecoder(
+            (frame, call) -> {
+                fusedCalls.add(!cameraPlanes.contains(frame.luma));
+                return DecodeResult.empty();
+            },
+            10
+        );
+        final long[] clock = { 0L };
+        final ScanMetrics metrics = new ScanMetrics();
+        FrameAnalyzer<String> analyzer = new FrameAnalyzer<>(
+            decoder,
+            () -> clock[0],
+            metrics,
+            new FrameReplayHarness.FakeCamera(),
+            new FrameAnalyzer.Listener<String>() {
+                @Override
+                public void onBarcodes(List<String> barcodes) {}
+
+                @Override
+                public void onError(String message) {}
+
+                @Override
+                public void onMissStreak(int misses) {}
+            },
+            1,
+            null,
+            null,
+            null
+        );
+        analyzer.setFusion(new FrameFusion(FrameFusion.DEFAULT_WINDOW));
+
+        // 30 fps camera, decoder takes every third frame
+        for (int i = 0; i < 30; i++) {
+            clock[0] = 1000L + i * 33L;
+            LumaFrame frame = shot(modules, i % 3, 0, 8, random, clock[0]);
+            cameraPlanes.add(frame.luma);
+            analyzer.onFrame(frame);
+            decoder.deliverDue(clock[0] + 10);
+        }
+
+        final int threshold = FrameAnalyzer.FUSION_MISS_THRESHOLD;
+        // frames throttled after the threshold-th miss already fill the window for the next call
+        assertTrue(fusedCalls.size() > threshold + 1);
+        for (int i = 0; i < fusedCalls.size(); i++) {
+            assertEquals("call " + i, i >= threshold, fusedCalls.get(i));
+        }
+        assertEquals(fusedCalls.size() - threshold, metrics.framesFused.get());
+    }
+}
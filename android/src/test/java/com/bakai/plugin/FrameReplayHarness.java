@@ -0,0 +1,247 @@
+package com.bakai.plugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Drives {@link FrameAnalyzer} offline: frames come from a {@link FrameSource} at their recorded timestamps,
+ * the decoder is scripted, and time only moves when the harness moves it. Runs are deterministic.
+ */
+final class FrameReplayHarness {
+
+    /** Outcome of one replay run. */
+    static final class Report {
+
+        long frames;
+        long analyzed;
+        long decodes;
+        long misses;
+        long errors;
+        long missStreaks;
+        final long[] dropped = new long[FrameAnalyzer.DropReason.values().length];
+        long firstFrameAtMs = -1L;
+        long firstDecodeAtMs = -1L;
+        long lastEventAtMs;
+        final List<String> payloads = new ArrayList<>();
+
+        long dropped(FrameAnalyzer.DropReason reason) {
+            return dropped[reason.ordinal()];
+        }
+
+        long durationMs() {
+            return firstFrameAtMs < 0 ? 0L : lastEventAtMs - firstFrameAtMs;
+        }
+
+        /** Frames handed to the decoder per second of replayed time. */
+        double analyzedPerSecond() {
+            final long duration = durationMs();
+            return duration > 0 ? analyzed * 1000.0 / duration : 0.0;
+        }
+
+        /** From the first frame to the first decoded result, or -1 if nothing decoded. */
+        long timeToFirstDecodeMs() {
+            return firstDecodeAtMs < 0 ? -1L : firstDecodeAtMs - firstFrameAtMs;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "frames=%d analyzed=%d (%.1f/s) decodes=%d misses=%d errors=%d ttfd=%dms", frames, analyzed,
+                analyzedPerSecond(), decodes, misses, errors, timeToFirstDecodeMs()));
+            for (FrameAnalyzer.DropReason reason : FrameAnalyzer.DropReason.values()) {
+                sb.append(' ').append(reason.name().toLowerCase(Locale.US)).append('=').append(dropped(reason));
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Camera stand-in: a plain zoom state and counters for everything the analyzer asks for. */
+    static final class FakeCamera implements FrameAnalyzer.CameraControls {
+
+        float zoom = 1f;
+        float minZoom = 1f;
+        float maxZoom = 8f;
+        boolean userZoom = false;
+        int resolutionChanges;
+        int focusRequests;
+        int focusCancels;
+        final List<Float> zoomRequests = new ArrayList<>();
+        final List<ThermalController.Tier> thermalTiers = new ArrayList<>();
+
+        @Override
+        public void onResolutionChanged() {
+            resolutionChanges++;
+        }
+
+        @Override
+        public void startFocus(float x, float y, float size) {
+            focusRequests++;
+        }
+
+        @Override
+        public void cancelFocus() {
+            focusCancels++;
+        }
+
+        @Override
+        public boolean readZoom(float[] out) {
+            out[0] = zoom;
+            out[1] = minZoom;
+            out[2] = maxZoom;
+            return true;
+        }
+
+        @Override
+        public boolean isZoomUserControlled() {
+            return userZoom;
+        }
+
+        @Override
+        public void setZoom(float ratio) {
+            zoom = ratio;
+            zoomRequests.add(ratio);
+        }
+
+        @Override
+        public long exposureTimeNs() {
+            return 0L;
+        }
+
+        @Override
+        public void onThermalTierChanged(ThermalController.Tier tier) {
+            thermalTiers.add(tier);
+        }
+    }
+
+    private static final class ManualClock implements ScanClock {
+
+        long now;
+
+        @Override
+        public long nowMs() {
+            return now;
+        }
+    }
+
+    private final ScriptedDecoder decoder;
+    private final ManualClock clock = new ManualClock();
+    final ScanMetrics metrics = new ScanMetrics();
+    final FakeCamera camera = new FakeCamera();
+
+    private int maxResolution = 1;
+    private PowerModeController power;
+    private ResolutionLadder ladder;
+    private FocusRegionController focus;
+    private FrameRingRecorder recorder;
+    private SharpnessGate sharpnessGate;
+    private boolean staticSceneSkip;
+    private RegionTracker tracker;
+
+    FrameReplayHarness(ScriptedDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    FrameReplayHarness lowPowerIdle(long quietPeriodMs) {
+        power = new PowerModeController(quietPeriodMs);
+        return this;
+    }
+
+    FrameReplayHarness progressiveResolution(int maxTier) {
+        maxResolution = maxTier;
+        ladder = new ResolutionLadder(maxTier);
+        return this;
+    }
+
+    FrameReplayHarness regionFocus() {
+        focus = new FocusRegionController();
+        return this;
+    }
+
+    FrameReplayHarness staticSceneSkip() {
+        staticSceneSkip = true;
+        return this;
+    }
+
+    FrameReplayHarness sharpnessGate() {
+        sharpnessGate = new SharpnessGate();
+        return this;
+    }
+
+    FrameReplayHarness regionTracking() {
+        tracker = new RegionTracker();
+        return this;
+    }
+
+    FrameReplayHarness recorder(FrameRingRecorder recorder) {
+        this.recorder = recorder;
+        return this;
+    }
+
+    /** Replays every frame of {@code source}, then lets outstanding decodes finish. */
+    Report run(FrameSource source) throws IOException {
+        final Report report = new Report();
+        final FrameAnalyzer<String> analyzer = new FrameAnalyzer<>(
+            decoder,
+            clock,
+            metrics,
+            camera,
+            new FrameAnalyzer.Listener<String>() {
+                @Override
+                public void onBarcodes(List<String> barcodes) {
+                    if (report.firstDecodeAtMs < 0) report.firstDecodeAtMs = clock.now;
+                    report.payloads.addAll(barcodes);
+                }
+
+                @Override
+                public void onError(String message) {}
+
+                @Override
+                public void onMissStreak(int misses) {
+                    report.missStreaks++;
+                }
+            },
+            maxResolution,
+            power,
+            ladder,
+            focus
+        );
+        analyzer.setRecorder(recorder);
+        analyzer.setSharpnessGate(sharpnessGate);
+        analyzer.setStaticSceneSkip(staticSceneSkip);
+        analyzer.setRegionTracker(tracker);
+
+        try {
+            LumaFrame frame;
+            while ((frame = source.next()) != null) {
+                advanceTo(frame.timestampMs);
+                if (report.firstFrameAtMs < 0) report.firstFrameAtMs = frame.timestampMs;
+                analyzer.onFrame(frame);
+            }
+        } finally {
+            source.close();
+        }
+
+        final long due = decoder.nextDueAtMs();
+        if (due != Long.MAX_VALUE) advanceTo(due);
+        report.lastEventAtMs = clock.now;
+
+        report.frames = metrics.framesReceived.get();
+        report.analyzed = metrics.framesAnalyzed.get();
+        report.decodes = metrics.decodeSuccesses.get();
+        report.misses = metrics.decodeMisses.get();
+        report.errors = metrics.decodeErrors.get();
+        for (int i = 0; i < report.dropped.length; i++) report.dropped[i] = metrics.framesDropped.get(i);
+        return report;
+    }
+
+    private void advanceTo(long timeMs) {
+        long due;
+        while ((due = decoder.nextDueAtMs()) <= timeMs) {
+            clock.now = Math.max(clock.now, due);
+            decoder.deliverDue(clock.now);
+        }
+        clock.now = Math.max(clock.now, timeMs);
+    }
+}
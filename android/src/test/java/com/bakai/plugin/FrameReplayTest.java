@@ -0,0 +1,324 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FrameReplayTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final long FRAME_MS = 33L;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** {@code count} flat grey frames at ~30 fps, timestamps starting at 1 s like an uptime clock. */
+    private static FrameSource frames(final int count) {
+        return frames(count, false);
+    }
+
+    /** As {@link #frames(int)}; {@code numbered} fills each frame with its index instead of a fixed grey. */
+    private static FrameSource frames(final int count, final boolean numbered) {
+        return new FrameSource() {
+            private int index = 0;
+
+            @Override
+            public LumaFrame next() {
+                if (index >= count) return null;
+                final byte[] plane = new byte[WIDTH * HEIGHT];
+                Arrays.fill(plane, (byte) (numbered ? index : 60));
+                return new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, WIDTH, 90, 1000L + index++ * FRAME_MS, null);
+            }
+
+            @Override
+            public void close() {}
+        };
+    }
+
+    /** Fine random 2 px modules, except frames in [blurFrom, blurTo) which are a smooth ramp, as if smeared by motion. */
+    private static FrameSource shakyFrames(final int count, final int blurFrom, final int blurTo) {
+        return new FrameSource() {
+            private int index = 0;
+
+            @Override
+            public LumaFrame next() {
+                if (index >= count) return null;
+                final boolean blurred = index >= blurFrom && index < blurTo;
+                final Random modules = new Random(7);
+                final byte[] plane = new byte[WIDTH * HEIGHT];
+                for (int y = 0; y < HEIGHT; y += 2) {
+                    for (int x = 0; x < WIDTH; x += 2) {
+                        final byte v = (byte) (blurred ? 100 + x : (modules.nextBoolean() ? 40 : 200));
+                        plane[y * WIDTH + x] = v;
+                        plane[y * WIDTH + x + 1] = v;
+                        plane[(y + 1) * WIDTH + x] = v;
+                        plane[(y + 1) * WIDTH + x + 1] = v;
+                    }
+                }
+                return new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, WIDTH, 90, 1000L + index++ * FRAME_MS, null);
+            }
+
+            @Override
+            public void close() {}
+        };
+    }
+
+    private static long dropped(FrameReplayHarness.Report report) {
+        long total = 0;
+        for (long d : report.dropped) total += d;
+        return total;
+    }
+
+    @Test
+    public void fastDecoderIsThrottled() throws IOException {
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(Integer.MAX_VALUE, "never"), 20L);
+        FrameReplayHarness.Report report = new FrameReplayHarness(decoder).run(frames(60));
+
+        assertEquals(60, report.frames);
+        assertEquals(report.frames, report.analyzed + dropped(report));
+        assertEquals(20, report.analyzed);
+        assertEquals(40, report.dropped(FrameAnalyzer.DropReason.THROTTLED));
+        assertEquals(0, report.dropped(FrameAnalyzer.DropReason.BUSY));
+        assertEquals(-1L, report.timeToFirstDecodeMs());
+        assertEquals(20, report.misses);
+    }
+
+    @Test
+    public void slowDecoderDropsBusyFrames() throws IOException {
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(Integer.MAX_VALUE, "never"), 250L);
+        FrameReplayHarness.Report report = new FrameReplayHarness(decoder).run(frames(60));
+
+        assertTrue(report.dropped(FrameAnalyzer.DropReason.BUSY) > 0);
+        assertTrue(report.analyzed < 20);
+        assertEquals(report.analyzed, decoder.calls());
+    }
+
+    @Test
+    public void reportsTimeToFirstDecodeAndCooldown() throws IOException {
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(5, "QR-1"), 20L);
+        FrameReplayHarness.Report report = new FrameReplayHarness(decoder).run(frames(60));
+
+        // decodes run on every third frame (1000, 1099, 1198, ...); the sixth answers 20 ms after 1495
+        assertEquals(515L, report.timeToFirstDecodeMs());
+        assertEquals("QR-1", report.payloads.get(0));
+        assertTrue(report.dropped(FrameAnalyzer.DropReason.COOLDOWN) > 0);
+    }
+
+    @Test
+    public void candidatesDriveFocusAndZoom() throws IOException {
+        ScriptedDecoder decoder = new ScriptedDecoder((frame, call) -> ScriptedDecoder.candidate(20, 16, 28, 24), 20L);
+        FrameReplayHarness harness = new FrameReplayHarness(decoder).regionFocus();
+        harness.run(frames(60));
+
+        assertTrue(harness.camera.focusRequests > 0);
+        assertFalse(harness.camera.zoomRequests.isEmpty());
+        assertTrue(harness.camera.zoom > 1f);
+    }
+
+    @Test
+    public void lowPowerModeGoesIdleOnStaticScene() throws IOException {
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(Integer.MAX_VALUE, "never"), 20L);
+        FrameReplayHarness harness = new FrameReplayHarness(decoder).lowPowerIdle(1000L);
+        FrameReplayHarness.Report report = harness.run(frames(120));
+
+        assertEquals(1, harness.metrics.powerDeescalations.get());
+        assertTrue(report.dropped(FrameAnalyzer.DropReason.IDLE) > 0);
+        assertEquals(1, harness.camera.resolutionChanges);
+    }
+
+    @Test
+    public void sharpnessGateSkipsBlurredFramesWithoutCountingMisses() throws IOException {
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(Integer.MAX_VALUE, "never"), 20L);
+        FrameReplayHarness.Report gated = new FrameReplayHarness(decoder).sharpnessGate().run(shakyFrames(90, 15, 75));
+
+        ScriptedDecoder ungatedDecoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(Integer.MAX_VALUE, "never"), 20L);
+        FrameReplayHarness.Report ungated = new FrameReplayHarness(ungatedDecoder).run(shakyFrames(90, 15, 75));
+
+        final long blurry = gated.dropped(FrameAnalyzer.DropReason.BLURRY);
+        assertTrue(blurry > 0);
+        assertEquals(0, ungated.dropped(FrameAnalyzer.DropReason.BLURRY));
+        assertEquals(gated.frames, gated.analyzed + dropped(gated));
+        // blurred frames are skipped four at a time, then one is decoded anyway
+        assertEquals(36, blurry);
+        assertEquals(18, gated.analyzed);
+        assertEquals(30, ungated.analyzed);
+        assertEquals(gated.analyzed, gated.misses);
+    }
+
+    @Test
+    public void staticSceneIsDecodedOnlyOnRecheckUntilItChanges() throws IOException {
+        // 10 s of an empty counter, then a code appears in one corner
+        final int count = 330;
+        final int changeAt = 300;
+        FrameSource source = new FrameSource() {
+            private int index = 0;
+
+            @Override
+            public LumaFrame next() {
+                if (index >= count) return null;
+                final byte[] plane = new byte[WIDTH * HEIGHT];
+                Arrays.fill(plane, (byte) 60);
+                if (index >= changeAt) {
+                    for (int y = 0; y < 8; y++) Arrays.fill(plane, y * WIDTH, y * WIDTH + 8, (byte) 220);
+                }
+                return new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, WIDTH, 90, 1000L + index++ * FRAME_MS, null);
+            }
+
+            @Override
+            public void close() {}
+        };
+        ScriptedDecoder decoder = new ScriptedDecoder(
+            (frame, call) -> (frame.luma.get(0) & 0xFF) > 100 ? ScriptedDecoder.decoded("QR-K") : DecodeResult.<String>empty(),
+            20L
+        );
+        FrameReplayHarness.Report report = new FrameReplayHarness(decoder).staticSceneSkip().run(source);
+
+        // one decode to learn the scene, then one per 2 s recheck
+        assertTrue(report.dropped(FrameAnalyzer.DropReason.STATIC) > 250);
+        assertTrue(report.analyzed <= 8);
+        // the change is decoded on the first frame that passes the throttle
+        assertEquals("QR-K", report.payloads.get(0));
+        assertTrue(report.firstDecodeAtMs - (1000L + changeAt * FRAME_MS) <= 20L + 2 * FRAME_MS);
+    }
+
+    @Test
+    public void aSmallCodeInAStill1080pSceneIsNotSkippedAsStatic() throws IOException {
+        // a light counter at 1080p, then a ~100 px code with 4 px modules; light wherever a cell corner point
+        // sampler would look, so only an area average sees it
+        final int width = 1920;
+        final int height = 1080;
+        final int codeX = 630;
+        final int codeY = 300;
+        final int codeSize = 96;
+        final int count = 40;
+        final int changeAt = 20;
+        final byte[] code = new byte[width * height];
+        Arrays.fill(code, (byte) 200);
+        final Random modules = new Random(11);
+        for (int my = 0; my < codeSize; my += 4) {
+            for (int mx = 0; mx < codeSize; mx += 4) {
+                final byte v = (byte) (modules.nextBoolean() ? 40 : 200);
+                for (int y = my; y < my + 4; y++) {
+                    final int at = (codeY + y) * width + codeX + mx;
+                    Arrays.fill(code, at, at + 4, v);
+                }
+            }
+        }
+        final int cellW = width / LumaSignature.COLS;
+        final int cellH = height / LumaSignature.ROWS;
+        for (int row = 0; row < LumaSignature.ROWS; row++) {
+            for (int col = 0; col < LumaSignature.COLS; col++) {
+                for (int y : new int[] { row * cellH + cellH / 4, row * cellH + (cellH * 3) / 4 }) {
+                    for (int x : new int[] { col * cellW + cellW / 4, col * cellW + (cellW * 3) / 4 }) {
+                        code[y * width + x] = (byte) 200;
+                    }
+                }
+            }
+        }
+        // the pixel the scripted decoder looks at
+        final int marker = (codeY + 20) * width + codeX + 20;
+        code[marker] = (byte) 40;
+
+        FrameSource source = new FrameSource() {
+            private int index = 0;
+
+            @Override
+            public LumaFrame next() {
+                if (index >= count) return null;
+                final byte[] plane = new byte[width * height];
+                if (index >= changeAt) System.arraycopy(code, 0, plane, 0, plane.length);
+                else Arrays.fill(plane, (byte) 200);
+                return new LumaFrame(ByteBuffer.wrap(plane), width, height, width, 90, 1000L + index++ * FRAME_MS, null);
+            }
+
+            @Override
+            public void close() {}
+        };
+        ScriptedDecoder decoder = new ScriptedDecoder(
+            (frame, call) -> (frame.luma.get(marker) & 0xFF) < 100 ? ScriptedDecoder.decoded("QR-S") : DecodeResult.<String>empty(),
+            20L
+        );
+        FrameReplayHarness.Report report = new FrameReplayHarness(decoder).staticSceneSkip().run(source);
+
+        assertTrue(report.dropped(FrameAnalyzer.DropReason.STATIC) > 0);
+        assertEquals("QR-S", report.payloads.get(0));
+        // well before the 2 s recheck
+        assertTrue(report.firstDecodeAtMs - (1000L + changeAt * FRAME_MS) <= 20L + 2 * FRAME_MS);
+    }
+
+    @Test
+    public void replaysRecordedFramesFromDisk() throws IOException {
+        File file = tmp.newFile("frames.qrfr");
+        final int stride = WIDTH + 8;
+        try (FrameRecording.Writer writer = new FrameRecording.Writer(file)) {
+            for (int i = 0; i < 30; i++) {
+                byte[] padded = new byte[stride * HEIGHT];
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) padded[y * stride + x] = (byte) (x + y + i);
+                }
+                writer.write(new LumaFrame(ByteBuffer.wrap(padded), WIDTH, HEIGHT, stride, 90, 1000L + i * FRAME_MS, null), 1f, 0L);
+            }
+        }
+
+        try (FrameRecording.Reader reader = new FrameRecording.Reader(file)) {
+            LumaFrame first = reader.next();
+            assertEquals(1000L, first.timestampMs);
+            assertEquals(WIDTH, first.rowStride);
+            assertEquals(90, first.rotationDegrees);
+            assertEquals((byte) (3 + 2), first.luma.get(2 * WIDTH + 3));
+        }
+
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(2, "QR-2"), 20L);
+        FrameReplayHarness.Report report = new FrameReplayHarness(decoder).run(new FrameRecording.Reader(file));
+        assertEquals(30, report.frames);
+        assertEquals(218L, report.timeToFirstDecodeMs());
+    }
+
+    @Test
+    public void ringRecorderHoldsOnlyWhatFitsItsBudget() {
+        // 30 frames of 1080p would be ~60 MB; a 192 MB heap gets 24 MB
+        int frameBytes = 1920 * 1080;
+        assertEquals(24L << 20, FrameRingRecorder.budgetFor(192L << 20));
+        assertEquals(12, FrameRingRecorder.capacityFor(30, frameBytes, FrameRingRecorder.budgetFor(192L << 20)));
+        assertEquals(FrameRingRecorder.MAX_BUDGET_BYTES, FrameRingRecorder.budgetFor(1L << 30));
+        assertEquals(1, FrameRingRecorder.capacityFor(30, frameBytes, frameBytes / 2));
+        assertEquals(4, FrameRingRecorder.capacityFor(4, WIDTH * HEIGHT, FrameRingRecorder.MAX_BUDGET_BYTES));
+
+        FrameRingRecorder recorder = new FrameRingRecorder(30, WIDTH * HEIGHT, 5L * WIDTH * HEIGHT);
+        assertEquals(5, recorder.capacity());
+        assertEquals(30, recorder.requested());
+    }
+
+    @Test
+    public void ringRecorderDumpsLastAnalyzedFrames() throws IOException {
+        FrameRingRecorder recorder = new FrameRingRecorder(4, WIDTH * HEIGHT, FrameRingRecorder.MAX_BUDGET_BYTES);
+        ScriptedDecoder decoder = new ScriptedDecoder(ScriptedDecoder.decodesFrom(Integer.MAX_VALUE, "never"), 20L);
+        FrameReplayHarness harness = new FrameReplayHarness(decoder).recorder(recorder);
+        FrameReplayHarness.Report report = harness.run(frames(150, true));
+
+        assertEquals(50, report.analyzed);
+        assertEquals(1, report.missStreaks);
+        assertEquals(4, recorder.count());
+
+        File file = new File(tmp.getRoot(), "diagnostics/ring.qrfr");
+        assertEquals(4, recorder.dump(file));
+
+        // every third frame is analyzed; the last four are 138, 141, 144, 147
+        try (FrameRecording.Reader reader = new FrameRecording.Reader(file)) {
+            for (int index = 138; index < 150; index += 3) {
+                LumaFrame frame = reader.next();
+                assertEquals(1000L + index * FRAME_MS, frame.timestampMs);
+                assertEquals((byte) index, frame.luma.get(WIDTH * HEIGHT - 1));
+            }
+            assertNull(reader.next());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ImageKernelsTest {
+
+    /** A 4x4 frame in NV21-style interleaved chroma (pixel stride 2), as many camera HALs deliver it. */
+    private static ByteBuffer[] yuv(int luma, int cb, int cr) {
+        byte[] y = new byte[6 * 4];
+        Arrays.fill(y, (byte) luma);
+        byte[] vu = new byte[2 * 4 * 2];
+        for (int i = 0; i < vu.length; i += 2) {
+            vu[i] = (byte) cr;
+            vu[i + 1] = (byte) cb;
+        }
+        ByteBuffer v = ByteBuffer.wrap(vu);
+        ByteBuffer u = ByteBuffer.wrap(vu, 1, vu.length - 1).slice();
+        return new ByteBuffer[] { ByteBuffer.wrap(y), u, v };
+    }
+
+    @Test
+    public void neutralChromaGivesGrey() {
+        ByteBuffer[] p = yuv(100, 128, 128);
+        int[] out = new int[16];
+        ImageKernels.yuvToArgb(p[0], 6, p[1], p[2], 4, 2, 4, 4, 1, out);
+        for (int c : out) assertEquals(0xff646464, c);
+    }
+
+    @Test
+    public void redChromaLeansRedAndStepSubsamples() {
+        ByteBuffer[] p = yuv(100, 128, 228);
+        int[] out = new int[4];
+        ImageKernels.yuvToArgb(p[0], 6, p[1], p[2], 4, 2, 4, 4, 2, out);
+        int r = (out[3] >> 16) & 0xff;
+        int g = (out[3] >> 8) & 0xff;
+        int b = out[3] & 0xff;
+        assertEquals(240, r);
+        assertTrue(g < 100);
+        assertEquals(100, b);
+        assertEquals(0, p[0].position());
+    }
+}
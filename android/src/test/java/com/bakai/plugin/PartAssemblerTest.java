@@ -0,0 +1,77 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PartAssemblerTest {
+
+    private static DecodedBarcode text(String value) {
+        return new DecodedBarcode(value, value, "QR_CODE", "TEXT", null, null, null, null);
+    }
+
+    private static DecodedBarcode appended(String value, int index, int total, int parity) {
+        return new DecodedBarcode(value, value, "QR_CODE", "TEXT", null, null, null, null, (index << 4) | (total - 1), parity);
+    }
+
+    @Test
+    public void parsesHeadersAndLeavesPlainPayloadsAlone() {
+        assertNull(PartAssembler.Part.of(text("https://example.com/1/2:3")));
+        assertNull(PartAssembler.Part.of(text("3/2:out of range")));
+        assertNull(PartAssembler.Part.of(text("1/1:single")));
+
+        PartAssembler.Part part = PartAssembler.Part.of(text("Part 2 of 3| body"));
+        assertEquals(1, part.index);
+        assertEquals(3, part.total);
+        assertEquals("body", part.data);
+
+        PartAssembler.Part tagged = PartAssembler.Part.of(text("2/3#INV-7:x"));
+        assertNotEquals(part.key, tagged.key);
+        assertEquals("x", tagged.data);
+    }
+
+    @Test
+    public void joinsPartsInOrderWhateverTheScanOrder() {
+        PartAssembler assembler = new PartAssembler();
+
+        PartAssembler.Update first = assembler.add(PartAssembler.Part.of(text("3/3:ghi")), 0L);
+        assertFalse(first.isComplete());
+        assertArrayEquals(new int[] { 1, 2 }, first.missing);
+
+        // the same symbol seen again in the next frame is not news
+        assertNull(assembler.add(PartAssembler.Part.of(text("3/3:ghi")), 100L));
+        assertEquals(2, assembler.add(PartAssembler.Part.of(text("1/3:abc")), 200L).received);
+
+        PartAssembler.Update done = assembler.add(PartAssembler.Part.of(text("2/3:def")), 300L);
+        assertTrue(done.isComplete());
+        assertEquals("abcdefghi", done.payload);
+        assertEquals(0, assembler.pendingSets());
+    }
+
+    @Test
+    public void structuredAppendSetsAreKeptApartByParity() {
+        PartAssembler assembler = new PartAssembler();
+        assembler.add(PartAssembler.Part.of(appended("A1", 0, 2, 0x11)), 0L);
+        assembler.add(PartAssembler.Part.of(appended("B2", 1, 2, 0x22)), 0L);
+
+        PartAssembler.Update a = assembler.add(PartAssembler.Part.of(appended("A2", 1, 2, 0x11)), 0L);
+        assertEquals("A1A2", a.payload);
+        assertEquals(1, assembler.pendingSets());
+        assertNull(PartAssembler.Part.of(appended("solo", 0, 1, 0x33)));
+    }
+
+    @Test
+    public void staleAndSurplusSetsAreEvicted() {
+        PartAssembler assembler = new PartAssembler();
+        assembler.add(PartAssembler.Part.of(text("1/2#OLD:x")), 0L);
+        assembler.add(PartAssembler.Part.of(text("1/2#NEW:x")), PartAssembler.SET_TIMEOUT_MS + 1);
+        assertEquals(1, assembler.pendingSets());
+        assertEquals(1, assembler.evicted());
+
+        for (int i = 0; i < PartAssembler.MAX_SETS + 3; i++) {
+            assembler.add(PartAssembler.Part.of(text("1/2#D" + i + ":x")), PartAssembler.SET_TIMEOUT_MS + 2);
+        }
+        assertEquals(PartAssembler.MAX_SETS, assembler.pendingSets());
+        assertEquals(5, assembler.evicted());
+    }
+}
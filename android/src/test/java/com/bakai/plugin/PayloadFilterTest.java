@@ -0,0 +1,56 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.junit.Test;
+
+public class PayloadFilterTest {
+
+    private static DecodedBarcode read(String value, String valueType) {
+        return new DecodedBarcode(value, value, "QR_CODE", valueType, null, null, null, null);
+    }
+
+    @Test
+    public void checksGs1KeysBareAndAsElementStrings() {
+        assertTrue(PayloadFilter.hasValidGs1CheckDigit("4006381333931"));
+        assertTrue(PayloadFilter.hasValidGs1CheckDigit("96385074"));
+        assertFalse(PayloadFilter.hasValidGs1CheckDigit("4006381333932"));
+
+        assertTrue(PayloadFilter.hasValidGs1CheckDigit("0104006381333931"));
+        assertTrue(PayloadFilter.hasValidGs1CheckDigit("(01)04006381333931(10)ABC"));
+        assertTrue(PayloadFilter.hasValidGs1CheckDigit("]d2\u001d0104006381333931"));
+        assertTrue(PayloadFilter.hasValidGs1CheckDigit("00106141412345678908"));
+        assertFalse(PayloadFilter.hasValidGs1CheckDigit("(01)04006381333930"));
+        assertFalse(PayloadFilter.hasValidGs1CheckDigit("(21)12345"));
+        assertFalse(PayloadFilter.hasValidGs1CheckDigit("12345"));
+    }
+
+    @Test
+    public void acceptsWhenAnyRuleMatchesAllItsConditions() throws Exception {
+        PayloadFilter filter = PayloadFilter.compile(
+            new JSONArray("[{\"prefix\":[\"WMS-\",\"LOC-\"],\"minLength\":6},{\"pattern\":\"^\\\\d{4}$\",\"valueTypes\":[\"TEXT\"]}]")
+        );
+
+        assertTrue(filter.accepts(read("WMS-123", "TEXT")));
+        assertTrue(filter.accepts(read("LOC-12", "TEXT")));
+        assertFalse(filter.accepts(read("LOC-1", "TEXT")));
+        assertFalse(filter.accepts(read("https://example.com", "URL")));
+        assertTrue(filter.accepts(read("1234", "TEXT")));
+        assertFalse(filter.accepts(read("1234", "PRODUCT")));
+        assertFalse(filter.accepts(read("12345", "TEXT")));
+    }
+
+    @Test
+    public void compileRejectsBadRulesAndSkipsEmptyLists() throws Exception {
+        assertNull(PayloadFilter.compile(null));
+        assertNull(PayloadFilter.compile(new JSONArray()));
+
+        for (String spec : new String[] { "[{\"pattern\":\"(\"}]", "[{\"minLength\":5,\"maxLength\":2}]", "[\"WMS-\"]" }) {
+            try {
+                PayloadFilter.compile(new JSONArray(spec));
+                fail(spec);
+            } catch (IllegalArgumentException expected) {}
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class RacingDecoderTest {
+
+    private final ScanMetrics metrics = new ScanMetrics();
+    private final List<DecodeResult<String>> results = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+
+    private final FrameDecoder.Callback<String> callback = new FrameDecoder.Callback<String>() {
+        @Override
+        public void onResult(DecodeResult<String> result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onFailure(String message) {
+            failures.add(message);
+        }
+    };
+
+    private RacingDecoder<String> race(ScriptedDecoder fast, ScriptedDecoder slow) {
+        return new RacingDecoder<>(
+            new RacingDecoder.Entrant<String>("FAST", fast, Runnable::run),
+            new RacingDecoder.Entrant<String>("SLOW", slow, Runnable::run),
+            metrics
+        );
+    }
+
+    /** 4x2 plane with two bytes of row padding. */
+    private static LumaFrame paddedFrame(long timestampMs) {
+        byte[] plane = { 1, 2, 3, 4, 0, 0, 5, 6, 7, 8, 0, 0 };
+        return new LumaFrame(ByteBuffer.wrap(plane), 4, 2, 6, 90, timestampMs, null);
+    }
+
+    @Test
+    public void firstDecodeWinsWithoutWaitingForTheOtherEngine() {
+        ScriptedDecoder fast = new ScriptedDecoder(ScriptedDecoder.decodesFrom(0, "early"), 20);
+        ScriptedDecoder slow = new ScriptedDecoder(ScriptedDecoder.decodesFrom(0, "late"), 50);
+        RacingDecoder<String> racer = race(fast, slow);
+
+        racer.decode(paddedFrame(0), callback);
+        fast.deliverDue(20);
+
+        assertEquals(1, results.size());
+        assertEquals("early", results.get(0).decoded.get(0));
+        assertEquals(1, metrics.raceWins("FAST"));
+        assertEquals(1, metrics.raceLosses("SLOW"));
+
+        // the loser's answer is discarded
+        slow.deliverDue(50);
+        assertEquals(1, results.size());
+        assertEquals(0, metrics.racesUndecided.get());
+    }
+
+    @Test
+    public void slowerEngineWinsWhenTheFasterOneMisses() {
+        ScriptedDecoder fast = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 10);
+        ScriptedDecoder slow = new ScriptedDecoder(ScriptedDecoder.decodesFrom(0, "dense"), 50);
+        RacingDecoder<String> racer = race(fast, slow);
+
+        racer.decode(paddedFrame(0), callback);
+        fast.deliverDue(10);
+        assertTrue(results.isEmpty());
+
+        slow.deliverDue(50);
+        assertEquals("dense", results.get(0).decoded.get(0));
+        assertEquals(1, metrics.raceWins("SLOW"));
+        assertEquals(1, metrics.raceLosses("FAST"));
+        assertEquals(1, metrics.races.get());
+    }
+
+    @Test
+    public void bothMissingReportsTheResultWithMoreCandidates() {
+        ScriptedDecoder fast = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 10);
+        ScriptedDecoder slow = new ScriptedDecoder((frame, call) -> ScriptedDecoder.candidate(0, 0, 2, 2), 50);
+        RacingDecoder<String> racer = race(fast, slow);
+
+        racer.decode(paddedFrame(0), callback);
+        fast.deliverDue(10);
+        slow.deliverDue(50);
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).hasCandidates());
+        assertEquals(1, metrics.racesUndecided.get());
+    }
+
+    @Test
+    public void failureOnlyWhenBothEnginesFail() {
+        ScriptedDecoder fast = new ScriptedDecoder((frame, call) -> null, 10);
+        ScriptedDecoder slow = new ScriptedDecoder((frame, call) -> null, 50);
+        RacingDecoder<String> racer = race(fast, slow);
+
+        racer.decode(paddedFrame(0), callback);
+        fast.deliverDue(10);
+        assertTrue(failures.isEmpty());
+        slow.deliverDue(50);
+
+        assertEquals(1, failures.size());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void enginesReadAPackedCopy() {
+        final List<LumaFrame> seen = new ArrayList<>();
+        ScriptedDecoder fast = new ScriptedDecoder(
+            (frame, call) -> {
+                seen.add(frame);
+                return DecodeResult.empty();
+            },
+            10
+        );
+        ScriptedDecoder slow = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 10);
+        race(fast, slow).decode(paddedFrame(0), callback);
+
+        LumaFrame copy = seen.get(0);
+        assertEquals(4, copy.rowStride);
+        assertEquals(90, copy.rotationDegrees);
+        byte[] packed = new byte[8];
+        copy.luma.duplicate().get(packed);
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }, packed);
+    }
+
+    @Test
+    public void frameWhileLoserStillRunsGoesToFirstEngineOnly() {
+        ScriptedDecoder fast = new ScriptedDecoder(ScriptedDecoder.decodesFrom(0, "code"), 10);
+        ScriptedDecoder slow = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 500);
+        RacingDecoder<String> racer = race(fast, slow);
+
+        racer.decode(paddedFrame(0), callback);
+        fast.deliverDue(10);
+        racer.decode(paddedFrame(100), callback);
+
+        assertEquals(2, fast.calls());
+        assertEquals(1, slow.calls());
+        assertEquals(1, metrics.races.get());
+
+        // once the loser is done, racing resumes
+        fast.deliverDue(110);
+        slow.deliverDue(500);
+        racer.decode(paddedFrame(600), callback);
+        assertEquals(2, slow.calls());
+    }
+
+    @Test
+    public void analyzerRacesOnlyAfterTheMissStreak() {
+        ScriptedDecoder primary = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 10);
+        ScriptedDecoder secondary = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 10);
+        final long[] clock = { 0L };
+        FrameAnalyzer<String> analyzer = new FrameAnalyzer<>(
+            primary,
+            () -> clock[0],
+            metrics,
+            new FrameReplayHarness.FakeCamera(),
+            new FrameAnalyzer.Listener<String>() {
+                @Override
+                public void onBarcodes(List<String> barcodes) {}
+
+                @Override
+                public void onError(String message) {}
+
+                @Override
+                public void onMissStreak(int misses) {}
+            },
+            1,
+            null,
+            null,
+            null
+        );
+        analyzer.setRacer(race(primary, secondary), 3);
+
+        for (int i = 0; i < 5; i++) {
+            clock[0] = 1000L + i * 100L;
+            analyzer.onFrame(paddedFrame(clock[0]));
+            primary.deliverDue(clock[0] + 10);
+            secondary.deliverDue(clock[0] + 10);
+        }
+
+        // misses 0..2 go to the primary alone, then both engines get the frame
+        assertEquals(5, primary.calls());
+        assertEquals(2, secondary.calls());
+        assertEquals(2, metrics.races.get());
+    }
+}
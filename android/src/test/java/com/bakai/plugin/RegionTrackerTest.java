@@ -0,0 +1,135 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class RegionTrackerTest {
+
+    /** Pixel of the upright image of a frame the camera delivered rotated by 90 degrees. */
+    private static int upright90(LumaFrame frame, int ux, int uy) {
+        return frame.luma.get((frame.height - 1 - ux) * frame.rowStride + uy) & 0xFF;
+    }
+
+    @Test
+    public void cropIsAViewWithItsOriginInTheFullFrame() {
+        final int width = 40;
+        final int height = 30;
+        final int stride = 44;
+        byte[] plane = new byte[stride * height];
+        for (int i = 0; i < plane.length; i++) plane[i] = (byte) (i * 31 + i / stride);
+        LumaFrame frame = new LumaFrame(ByteBuffer.wrap(plane), width, height, stride, 90, 0L, null);
+
+        LumaFrame crop = frame.crop(new BarcodeBox(5, 10, 15, 30));
+
+        assertEquals(20, crop.width);
+        assertEquals(10, crop.height);
+        assertEquals(stride, crop.rowStride);
+        assertEquals(5, crop.originX);
+        assertEquals(10, crop.originY);
+        for (int uy = 0; uy < crop.uprightHeight(); uy++) {
+            for (int ux = 0; ux < crop.uprightWidth(); ux++) {
+                assertEquals(upright90(frame, ux + crop.originX, uy + crop.originY), upright90(crop, ux, uy));
+            }
+        }
+        assertNull(frame.crop(new BarcodeBox(50, 50, 60, 60)));
+    }
+
+    @Test
+    public void cropFollowsTheCodeAndFallsBackToAFullSearch() {
+        RegionTracker tracker = new RegionTracker();
+        assertNull(tracker.nextCrop(0L, 1280, 720));
+
+        // moving right at 0.5 px/ms
+        tracker.onResult(null, new BarcodeBox(100, 300, 200, 400), 0L);
+        tracker.onResult(tracker.nextCrop(100L, 1280, 720), new BarcodeBox(150, 300, 250, 400), 100L);
+
+        BarcodeBox crop = tracker.nextCrop(200L, 1280, 720);
+        assertNotNull(crop);
+        // centre predicted at x = 250, y = 350; 0.75 of the code plus 10 px of slack per side
+        assertEquals(250f, crop.centerX(), 2f);
+        assertEquals(350f, crop.centerY(), 2f);
+        assertEquals(270, crop.width(), 2);
+        assertEquals(0, crop.width() % 2);
+
+        // every FULL_SEARCH_EVERY-th frame looks at everything
+        int full = 0;
+        for (int i = 0; i < RegionTracker.FULL_SEARCH_EVERY; i++) {
+            if (tracker.nextCrop(200L, 1280, 720) == null) full++;
+        }
+        assertEquals(1, full);
+
+        // a missed crop is tolerated once, the second loses the track
+        assertFalse(tracker.onResult(crop, null, 230L));
+        assertTrue(tracker.onResult(crop, null, 260L));
+        assertFalse(tracker.isTracking());
+        assertNull(tracker.nextCrop(300L, 1280, 720));
+    }
+
+    @Test
+    public void staleTrackIsDropped() {
+        RegionTracker tracker = new RegionTracker();
+        tracker.onResult(null, new BarcodeBox(100, 100, 200, 200), 0L);
+        assertNotNull(tracker.nextCrop(100L, 1280, 720));
+        assertNull(tracker.nextCrop(RegionTracker.TRACK_TIMEOUT_MS + 1, 1280, 720));
+        assertFalse(tracker.isTracking());
+    }
+
+    @Test
+    public void analyzerDecodesCropsAroundAMovingCode() throws Exception {
+        final int width = 1280;
+        final int height = 720;
+        final byte[] plane = new byte[width * height];
+        final List<LumaFrame> inputs = new ArrayList<>();
+        // a 120 px code riding a conveyor left to right at 0.4 px/ms
+        ScriptedDecoder decoder = new ScriptedDecoder(
+            (frame, call) -> {
+                inputs.add(frame);
+                final int left = 100 + (int) (0.4f * (frame.timestampMs - 1000L));
+                final BarcodeBox code = new BarcodeBox(left, 300, left + 120, 420);
+                final boolean inView = code.left >= frame.originX
+                    && code.right <= frame.originX + frame.uprightWidth()
+                    && code.top >= frame.originY
+                    && code.bottom <= frame.originY + frame.uprightHeight();
+                return inView ? new DecodeResult<>(Collections.singletonList("BOX"), 1, null, code) : DecodeResult.<String>empty();
+            },
+            20L
+        );
+        FrameSource source = new FrameSource() {
+            private int index = 0;
+
+            @Override
+            public LumaFrame next() {
+                if (index >= 45) return null;
+                return new LumaFrame(ByteBuffer.wrap(plane), width, height, width, 0, 1000L + index++ * 33L, null);
+            }
+
+            @Override
+            public void close() {}
+        };
+
+        FrameReplayHarness harness = new FrameReplayHarness(decoder).regionTracking();
+        FrameReplayHarness.Report report = harness.run(source);
+
+        assertEquals(0, report.misses);
+        assertTrue(harness.metrics.trackedDecodes.get() >= 3);
+        assertEquals(harness.metrics.trackedDecodes.get(), harness.metrics.trackedHits.get());
+        assertEquals(0, harness.metrics.trackingLost.get());
+        // the first crop is wide while the speed is unknown, later ones are tight
+        int cropped = 0;
+        int tight = 0;
+        for (LumaFrame input : inputs) {
+            if (input.width < width) {
+                cropped++;
+                assertTrue(input.width * input.height < width * height * 0.6);
+                if (input.width * input.height < width * height / 4) tight++;
+            }
+        }
+        assertEquals(harness.metrics.trackedDecodes.get(), cropped);
+        assertTrue(tight >= cropped - 1);
+    }
+}
@@ -0,0 +1,148 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ScanJournalTest {
+
+    private static List<ScanJournal.Record> records(ScanJournal journal) throws Exception {
+        final List<ScanJournal.Record> out = new ArrayList<>();
+        journal.read(out::add);
+        return out;
+    }
+
+    private static File newFile() throws Exception {
+        File file = File.createTempFile("journal", ".bin");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void flushCommitsQueuedReadsInOrderAndTheyOutliveTheInstance() throws Exception {
+        File file = newFile();
+        ScanJournal journal = new ScanJournal(file);
+        journal.append("s1", "QR_CODE", "SKU-1", 1000L);
+        journal.append("s1", "EAN_13", "4006381333931", 1001L);
+        journal.append("s2", "QR_CODE", "склад 7", 1002L);
+        assertTrue(journal.flush(2000L));
+        journal.close();
+
+        List<ScanJournal.Record> read = records(new ScanJournal(file));
+        assertEquals(3, read.size());
+        assertEquals("SKU-1", read.get(0).payload);
+        assertEquals("EAN_13", read.get(1).format);
+        assertEquals("s2", read.get(2).sessionId);
+        assertEquals("склад 7", read.get(2).payload);
+        assertEquals(1002L, read.get(2).timestampMs);
+    }
+
+    @Test
+    public void commitsAFullBatchWithoutAFlush() throws Exception {
+        ScanJournal journal = new ScanJournal(newFile());
+        for (int i = 0; i < ScanJournal.BATCH_RECORDS; i++) journal.append("s", "QR_CODE", "c" + i, i);
+        long deadline = System.currentTimeMillis() + ScanJournal.FLUSH_INTERVAL_MS / 2;
+        while (records(journal).size() < ScanJournal.BATCH_RECORDS && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(ScanJournal.BATCH_RECORDS, records(journal).size());
+        journal.close();
+    }
+
+    @Test
+    public void dropsATornTailOnOpenAndAppendsAfterTheLastWholeRecord() throws Exception {
+        File file = newFile();
+        ScanJournal journal = new ScanJournal(file);
+        journal.append("s", "QR_CODE", "first", 1L);
+        journal.append("s", "QR_CODE", "second", 2L);
+        journal.flush(2000L);
+        journal.close();
+
+        // a crash halfway through the second record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        journal = new ScanJournal(file);
+        journal.append("s", "QR_CODE", "third", 3L);
+        journal.flush(2000L);
+        List<ScanJournal.Record> read = records(journal);
+        assertEquals(2, read.size());
+        assertEquals("first", read.get(0).payload);
+        assertEquals("third", read.get(1).payload);
+        journal.close();
+    }
+
+    @Test
+    public void aSecondInstanceCannotOpenTheFileUntilTheFirstCloses() throws Exception {
+        File file = newFile();
+        ScanJournal journal = new ScanJournal(file);
+        journal.append("s", "QR_CODE", "a", 1L);
+        try {
+            new ScanJournal(file);
+            fail("expected the journal to be locked");
+        } catch (IOException expected) {}
+        journal.close();
+
+        ScanJournal reopened = new ScanJournal(file);
+        assertEquals("a", records(reopened).get(0).payload);
+        reopened.close();
+    }
+
+    @Test
+    public void theWriterKeepsCommittingWhileAReadRuns() throws Exception {
+        ScanJournal journal = new ScanJournal(newFile());
+        journal.append("s", "QR_CODE", "a", 1L);
+        journal.flush(2000L);
+
+        final boolean[] committed = { false };
+        journal.read(record -> {
+            journal.append("s", "QR_CODE", "b", 2L);
+            committed[0] = journal.flush(2000L);
+            return true;
+        });
+        assertTrue(committed[0]);
+        // the read ended at the length it started with
+        assertEquals(2, records(journal).size());
+        journal.close();
+    }
+
+    @Test
+    public void readsOnFromARecordsEndOffset() throws Exception {
+        ScanJournal journal = new ScanJournal(newFile());
+        for (int i = 0; i < 5; i++) journal.append("s", "QR_CODE", "c" + i, i);
+        journal.flush(2000L);
+        final long cursor = records(journal).get(2).endOffset;
+
+        final List<ScanJournal.Record> rest = new ArrayList<>();
+        journal.read(cursor, rest::add);
+        assertEquals(2, rest.size());
+        assertEquals("c3", rest.get(0).payload);
+
+        // not a record boundary
+        final List<ScanJournal.Record> none = new ArrayList<>();
+        journal.read(cursor + 1, none::add);
+        assertTrue(none.isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void truncateDropsCommittedAndQueuedReads() throws Exception {
+        ScanJournal journal = new ScanJournal(newFile());
+        journal.append("s", "QR_CODE", "a", 1L);
+        journal.flush(2000L);
+        journal.append("s", "QR_CODE", "b", 2L);
+        journal.truncate();
+        assertTrue(journal.flush(2000L));
+        assertTrue(records(journal).isEmpty());
+
+        journal.append("s", "QR_CODE", "c", 3L);
+        journal.flush(2000L);
+        assertEquals("c", records(journal).get(0).payload);
+        journal.close();
+    }
+}
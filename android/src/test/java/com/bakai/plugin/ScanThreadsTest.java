@@ -0,0 +1,87 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class ScanThreadsTest {
+
+    /** Records the priority each thread asked for; CPU time advances 5 ms per reading. */
+    private static final class FakePlatform implements ScanThreads.Platform {
+
+        final ThreadLocal<Integer> priority = new ThreadLocal<>();
+        final AtomicLong cpu = new AtomicLong();
+
+        @Override
+        public void setPriority(int p) {
+            priority.set(p);
+        }
+
+        @Override
+        public long threadCpuNanos() {
+            return cpu.addAndGet(5_000_000L);
+        }
+    }
+
+    private static String[] runOn(ExecutorService executor, final FakePlatform platform) throws Exception {
+        final String[] seen = new String[2];
+        executor
+            .submit(() -> {
+                seen[0] = Thread.currentThread().getName();
+                seen[1] = String.valueOf(platform.priority.get());
+            })
+            .get(5, TimeUnit.SECONDS);
+        return seen;
+    }
+
+    @Test
+    public void restartedThreadsKeepNameAndPriority() throws Exception {
+        FakePlatform platform = new FakePlatform();
+        ScanThreads threads = new ScanThreads(platform, new ScanMetrics());
+        threads.setPriority(ScanThreads.Role.ANALYSIS, -4);
+
+        ExecutorService first = threads.executor(ScanThreads.Role.ANALYSIS, null);
+        assertSame(first, threads.executor(ScanThreads.Role.ANALYSIS, null));
+        assertArrayEquals(new String[] { "QrCodeScannerAnalysis", "-4" }, runOn(first, platform));
+
+        threads.shutdown();
+        assertTrue(first.isShutdown());
+
+        ExecutorService second = threads.executor(ScanThreads.Role.ANALYSIS, null);
+        assertNotSame(first, second);
+        assertArrayEquals(new String[] { "QrCodeScannerAnalysis", "-4" }, runOn(second, platform));
+        assertArrayEquals(new String[] { "QrCodeScannerDecode-ZXING", "0" }, runOn(threads.executor(ScanThreads.Role.DECODE, "ZXING"), platform));
+        threads.shutdown();
+    }
+
+    @Test
+    public void prioritiesAreClamped() {
+        ScanThreads threads = new ScanThreads(new FakePlatform(), new ScanMetrics());
+        threads.setPriority(ScanThreads.Role.DECODE, -20);
+        threads.setPriority(ScanThreads.Role.BACKGROUND, 40);
+        assertEquals(ScanThreads.MIN_PRIORITY, threads.priority(ScanThreads.Role.DECODE));
+        assertEquals(ScanThreads.MAX_PRIORITY, threads.priority(ScanThreads.Role.BACKGROUND));
+    }
+
+    @Test
+    public void cpuTimeIsAccountedPerRole() throws Exception {
+        FakePlatform platform = new FakePlatform();
+        ScanMetrics metrics = new ScanMetrics();
+        ScanThreads threads = new ScanThreads(platform, metrics);
+        final AtomicInteger runs = new AtomicInteger();
+
+        ExecutorService background = threads.executor(ScanThreads.Role.BACKGROUND, null);
+        for (int i = 0; i < 3; i++) background.submit(runs::incrementAndGet).get(5, TimeUnit.SECONDS);
+        threads.shutdown();
+        background.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(3, runs.get());
+        assertEquals(3, metrics.threadTasks.get(ScanThreads.Role.BACKGROUND.ordinal()));
+        assertEquals(15_000_000L, metrics.threadCpuNanos.get(ScanThreads.Role.BACKGROUND.ordinal()));
+        assertEquals(0, metrics.threadTasks.get(ScanThreads.Role.ANALYSIS.ordinal()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.bakai.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decoder stand-in for replay runs. Each call is answered by a {@link Script} after a fixed latency
+ * of virtual time; {@link FrameReplayHarness} delivers the answers when its clock gets there.
+ */
+final class ScriptedDecoder implements FrameDecoder<String> {
+
+    interface Script {
+        /** Result for the {@code call}-th decode (0-based), or null to report a decoder failure. */
+        DecodeResult<String> resultFor(LumaFrame frame, int call);
+    }
+
+    private static final class Pending {
+
+        final long dueAtMs;
+        final DecodeResult<String> result;
+        final Callback<String> callback;
+
+        Pending(long dueAtMs, DecodeResult<String> result, Callback<String> callback) {
+            this.dueAtMs = dueAtMs;
+            this.result = result;
+            this.callback = callback;
+        }
+    }
+
+    private final Script script;
+    private final long latencyMs;
+    private final List<Pending> pending = new ArrayList<>();
+    private int calls = 0;
+
+    ScriptedDecoder(Script script, long latencyMs) {
+        this.script = script;
+        this.latencyMs = latencyMs;
+    }
+
+    /** Decodes {@code payload} from call {@code firstCall} on; earlier calls see nothing. */
+    static Script decodesFrom(final int firstCall, final String payload) {
+        return (frame, call) -> call >= firstCall ? decoded(payload) : DecodeResult.<String>empty();
+    }
+
+    static DecodeResult<String> decoded(String payload) {
+        return new DecodeResult<>(Collections.singletonList(payload), 1, null);
+    }
+
+    /** An undecodable candidate at the given upright box. */
+    static DecodeResult<String> candidate(int left, int top, int right, int bottom) {
+        return new DecodeResult<>(null, 1, new BarcodeBox(left, top, right, bottom));
+    }
+
+    int calls() {
+        return calls;
+    }
+
+    @Override
+    public void decode(LumaFrame frame, Callback<String> callback) {
+        pending.add(new Pending(frame.timestampMs + latencyMs, script.resultFor(frame, calls++), callback));
+    }
+
+    @Override
+    public void close() {}
+
+    /** Due time of the earliest answer still outstanding, or {@link Long#MAX_VALUE}. */
+    long nextDueAtMs() {
+        long next = Long.MAX_VALUE;
+        for (Pending p : pending) next = Math.min(next, p.dueAtMs);
+        return next;
+    }
+
+    /** Delivers every answer due at or before {@code nowMs}, in due order. */
+    void deliverDue(long nowMs) {
+        while (nextDueAtMs() <= nowMs) {
+            Pending first = null;
+            for (Pending p : pending) {
+                if (first == null || p.dueAtMs < first.dueAtMs) first = p;
+            }
+            pending.remove(first);
+            if (first.result != null) {
+                first.callback.onResult(first.result);
+            } else {
+                first.callback.onFailure("scripted failure");
+            }
+        }
+    }
+}
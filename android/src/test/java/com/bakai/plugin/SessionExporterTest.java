@@ -0,0 +1,107 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+public class SessionExporterTest {
+
+    private static List<String> lines(File file, boolean gzip) throws Exception {
+        final List<String> out = new ArrayList<>();
+        try (
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(gzip ? new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file), StandardCharsets.UTF_8)
+            )
+        ) {
+            for (String line; (line = in.readLine()) != null;) out.add(line);
+        }
+        return out;
+    }
+
+    private static ScanJournal journal() throws Exception {
+        File file = File.createTempFile("journal", ".bin");
+        file.delete();
+        file.deleteOnExit();
+        ScanJournal journal = new ScanJournal(file);
+        journal.append("s1", "QR_CODE", "plain", 10L);
+        journal.append("s2", "QR_CODE", "other session", 11L);
+        journal.append("s1", "QR_CODE", "a,\"b\"", 12L);
+        journal.flush(2000L);
+        return journal;
+    }
+
+    @Test
+    public void writesOneSessionAsGzippedCsv() throws Exception {
+        ScanJournal journal = journal();
+        File out = File.createTempFile("export", ".csv.gz");
+        out.deleteOnExit();
+        final double[] lastFraction = { -1 };
+
+        int rows = SessionExporter.export(
+            journal,
+            "s1",
+            SessionExporter.CSV,
+            true,
+            out,
+            () -> 0L,
+            (records, fraction) -> lastFraction[0] = fraction,
+            null
+        );
+
+        assertEquals(2, rows);
+        assertEquals(1.0, lastFraction[0], 0.0);
+        List<String> lines = lines(out, true);
+        assertEquals("timestamp,sessionId,format,payload", lines.get(0));
+        assertEquals("10,s1,QR_CODE,plain", lines.get(1));
+        assertEquals("12,s1,QR_CODE,\"a,\"\"b\"\"\"", lines.get(2));
+        journal.close();
+    }
+
+    @Test
+    public void writesEveryRecordAsJsonLines() throws Exception {
+        ScanJournal journal = journal();
+        File out = File.createTempFile("export", ".jsonl");
+        out.deleteOnExit();
+
+        assertEquals(3, SessionExporter.export(journal, null, SessionExporter.JSONL, false, out, () -> 0L, null, null));
+
+        List<String> lines = lines(out, false);
+        assertEquals(3, lines.size());
+        assertEquals("{\"timestamp\":12,\"sessionId\":\"s1\",\"format\":\"QR_CODE\",\"payload\":\"a,\\\"b\\\"\"}", lines.get(2));
+        journal.close();
+    }
+
+    @Test
+    public void aCancelledExportLeavesNoFile() throws Exception {
+        ScanJournal journal = journal();
+        File out = File.createTempFile("export", ".csv");
+        out.deleteOnExit();
+
+        try {
+            SessionExporter.export(journal, null, SessionExporter.CSV, false, out, () -> 0L, null, new AtomicBoolean(true));
+            fail("expected the export to stop");
+        } catch (InterruptedIOException expected) {}
+        assertFalse(out.exists());
+        // the journal stays readable
+        assertEquals(3, SessionExporter.export(journal, null, SessionExporter.CSV, false, out, () -> 0L, null, null));
+        journal.close();
+    }
+
+    @Test
+    public void escapesJsonStringsWithoutOrgJson() throws Exception {
+        StringWriter out = new StringWriter();
+        SessionExporter.writeJsonString(out, "line\nbreak \\ \"q\" \u0001 склад");
+        assertEquals("\"line\\nbreak \\\\ \\\"q\\\" \\u0001 склад\"", out.toString());
+    }
+}
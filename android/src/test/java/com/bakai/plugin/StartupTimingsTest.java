@@ -0,0 +1,38 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StartupTimingsTest {
+
+    @Test
+    public void phasesAreStampedOnceRelativeToStart() {
+        StartupTimings.Session session = new StartupTimings().start(1000L);
+        assertTrue(session.mark(StartupTimings.Phase.CAMERA_BOUND, 1250L));
+        assertFalse(session.mark(StartupTimings.Phase.CAMERA_BOUND, 1900L));
+
+        assertEquals(250L, session.elapsed(StartupTimings.Phase.CAMERA_BOUND));
+        assertEquals(-1L, session.elapsed(StartupTimings.Phase.FIRST_DECODE));
+        assertTrue(session.finish());
+        assertFalse(session.finish());
+    }
+
+    @Test
+    public void aggregatesCoverOnlyTheLastWindowOfStarts() {
+        StartupTimings timings = new StartupTimings();
+        for (int i = 0; i < StartupTimings.WINDOW + 5; i++) {
+            StartupTimings.Session session = timings.start(0L);
+            // the first five starts were slow
+            session.mark(StartupTimings.Phase.CAMERA_PROVIDER, i < 5 ? 5000L : 100L + i);
+            // a stopped scan never decoded
+            if (i % 2 == 0) session.mark(StartupTimings.Phase.FIRST_DECODE, 900L);
+            timings.record(session);
+        }
+
+        assertEquals(StartupTimings.WINDOW, timings.count(StartupTimings.Phase.CAMERA_PROVIDER));
+        assertTrue(timings.median(StartupTimings.Phase.CAMERA_PROVIDER) < 200L);
+        assertEquals(13, timings.count(StartupTimings.Phase.FIRST_DECODE));
+        assertEquals(-1L, timings.median(StartupTimings.Phase.UI_READY));
+    }
+}
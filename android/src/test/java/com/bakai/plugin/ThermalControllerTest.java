@@ -0,0 +1,79 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ThermalControllerTest {
+
+    @Test
+    public void heatsUpAtOnceAndCoolsDownOneTierAtATime() {
+        ThermalController thermal = new ThermalController();
+        assertTrue(thermal.onStatus(ThermalController.STATUS_SEVERE, 0L));
+        assertEquals(ThermalController.Tier.HOT, thermal.tier());
+
+        // cooled down, but the tier holds for a while
+        assertFalse(thermal.onStatus(ThermalController.STATUS_NONE, 1000L));
+        assertFalse(thermal.onStatus(ThermalController.STATUS_LIGHT, 5000L));
+        assertFalse(thermal.onTick(1000L + ThermalController.RECOVER_AFTER_MS - 1));
+        assertTrue(thermal.onTick(1000L + ThermalController.RECOVER_AFTER_MS));
+        assertEquals(ThermalController.Tier.WARM, thermal.tier());
+        assertFalse(thermal.onTick(1000L + ThermalController.RECOVER_AFTER_MS + 1));
+        assertTrue(thermal.onTick(1000L + 2 * ThermalController.RECOVER_AFTER_MS));
+        assertEquals(ThermalController.Tier.NOMINAL, thermal.tier());
+
+        // heating up again interrupts the recovery
+        assertTrue(thermal.onStatus(ThermalController.STATUS_CRITICAL, 60_000L));
+        assertFalse(thermal.onTick(200_000L));
+        assertEquals(ThermalController.Tier.CRITICAL, thermal.tier());
+    }
+
+    @Test
+    public void analyzerCapsResolutionAndRateWhileHot() {
+        final long[] clock = { 0L };
+        final ScanMetrics metrics = new ScanMetrics();
+        final FrameReplayHarness.FakeCamera camera = new FrameReplayHarness.FakeCamera();
+        ScriptedDecoder decoder = new ScriptedDecoder((frame, call) -> DecodeResult.<String>empty(), 10);
+        FrameAnalyzer<String> analyzer = new FrameAnalyzer<>(
+            decoder,
+            () -> clock[0],
+            metrics,
+            camera,
+            new FrameAnalyzer.Listener<String>() {
+                @Override
+                public void onBarcodes(List<String> barcodes) {}
+
+                @Override
+                public void onError(String message) {}
+
+                @Override
+                public void onMissStreak(int misses) {}
+            },
+            2,
+            null,
+            null,
+            null
+        );
+        analyzer.setThermal(new ThermalController());
+        assertEquals(2, analyzer.desiredResolution());
+
+        clock[0] = 1000L;
+        analyzer.onThermalStatus(ThermalController.STATUS_SEVERE);
+        assertEquals(0, analyzer.desiredResolution());
+        assertEquals(1, camera.resolutionChanges);
+        assertEquals(Arrays.asList(ThermalController.Tier.HOT), camera.thermalTiers);
+        assertEquals("HOT", metrics.thermalTier);
+
+        // one second of 30 fps frames
+        final byte[] plane = new byte[64 * 48];
+        for (int i = 0; i < 30; i++) {
+            clock[0] = 1000L + i * 33L;
+            analyzer.onFrame(new LumaFrame(ByteBuffer.wrap(plane), 64, 48, 64, 0, clock[0], null));
+            decoder.deliverDue(clock[0] + 10);
+        }
+        assertEquals(5, metrics.framesAnalyzed.get());
+    }
+}
@@ -0,0 +1,86 @@
+package com.bakai.plugin;
+
+import static org.junit.Assert.*;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ZxingDecoderBackendTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int STRIDE = 336;
+
+    /** A padded Y plane with a QR code drawn at {@code (left, top)}, four pixels per module. */
+    private static LumaFrame frameWithCode(String text, int left, int top, int rotationDegrees) throws WriterException {
+        BitMatrix matrix = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0);
+        byte[] plane = new byte[STRIDE * HEIGHT];
+        Arrays.fill(plane, (byte) 230);
+        for (int y = 0; y < matrix.getHeight() * 4; y++) {
+            for (int x = 0; x < matrix.getWidth() * 4; x++) {
+                if (matrix.get(x / 4, y / 4)) plane[(top + y) * STRIDE + left + x] = (byte) 20;
+            }
+        }
+        return new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, STRIDE, rotationDegrees, 0L, null);
+    }
+
+    @Test
+    public void decodesQrFromPaddedPlane() throws WriterException {
+        DecodeResult<DecodedBarcode> result = new ZxingDecoderBackend(false).decode(frameWithCode("https://example.com/a", 20, 30, 0));
+
+        assertEquals(1, result.decoded.size());
+        DecodedBarcode code = result.decoded.get(0);
+        assertEquals("https://example.com/a", code.rawValue);
+        assertEquals("QR_CODE", code.format);
+        assertEquals("URL", code.valueType);
+        assertArrayEquals("https://example.com/a".getBytes(StandardCharsets.UTF_8), code.rawBytes);
+        assertTrue(code.box.left >= 20 && code.box.top >= 30);
+    }
+
+    @Test
+    public void reportsBoxInUprightCoordinates() throws WriterException {
+        // buffer code near the top-left; shown rotated 90 degrees it sits near the top-right
+        DecodeResult<DecodedBarcode> result = new ZxingDecoderBackend(false).decode(frameWithCode("PART-42", 10, 10, 90));
+
+        assertEquals("TEXT", result.decoded.get(0).valueType);
+        BarcodeBox box = result.decoded.get(0).box;
+        assertTrue(box.right <= HEIGHT && box.bottom <= WIDTH);
+        assertTrue(box.centerX() > HEIGHT / 2f);
+        assertTrue(box.centerY() < WIDTH / 2f);
+    }
+
+    @Test
+    public void readsHeapPlanesInPlaceAndCameraPlanesByCopy() throws WriterException {
+        LumaFrame heap = frameWithCode("IN-PLACE", 120, 60, 0);
+        // read-only buffers hide their array, like the camera's direct planes
+        LumaFrame direct = new LumaFrame(heap.luma.asReadOnlyBuffer(), WIDTH, HEIGHT, STRIDE, 0, 0L, null);
+        ZxingDecoderBackend backend = new ZxingDecoderBackend(false);
+
+        BarcodeBox area = new BarcodeBox(100, 40, 300, 220);
+        DecodeResult<DecodedBarcode> fromHeap = backend.decode(heap.crop(area));
+        DecodeResult<DecodedBarcode> fromCopy = backend.decode(direct.crop(area));
+
+        assertEquals("IN-PLACE", fromHeap.decoded.get(0).rawValue);
+        assertEquals(fromCopy.decoded.get(0).box.left, fromHeap.decoded.get(0).box.left);
+        assertEquals(fromCopy.decoded.get(0).box.top, fromHeap.decoded.get(0).box.top);
+        assertTrue(fromHeap.decoded.get(0).box.left >= 120);
+    }
+
+    @Test
+    public void emptyFrameHasNoResults() {
+        byte[] plane = new byte[WIDTH * HEIGHT];
+        Arrays.fill(plane, (byte) 128);
+        DecodeResult<DecodedBarcode> result = new ZxingDecoderBackend(false).decode(
+            new LumaFrame(ByteBuffer.wrap(plane), WIDTH, HEIGHT, WIDTH, 0, 0L, null)
+        );
+
+        assertFalse(result.hasDecoded());
+        assertFalse(result.hasCandidates());
+    }
+}
@@ -6,6 +6,55 @@ export interface QrCodeScannerPlugin {
   pauseScan(): Promise<void>;
   resumeScan(): Promise<void>;
 
+  /**
+   * Counters for the current live scan session (Android only).
+   */
+  getScanMetrics(): Promise<ScanMetrics>;
+
+  /**
+   * Startup phase times over the last 20 `startScan` calls, including scans stopped before their first decode
+   * (Android only).
+   */
+  getScanTimings(): Promise<ScanTimings>;
+
+  /**
+   * Indexes a file of expected codes, one per line, for stocktakes. While loaded, every live read carries its
+   * `expectation`, and the tallies are kept natively. Replaces any list loaded before (Android only).
+   */
+  loadExpectedCodes(options: LoadExpectedCodesOptions): Promise<LoadExpectedCodesResult>;
+
+  /**
+   * Running tallies against the loaded list; rejects if none is loaded (Android only).
+   */
+  getExpectedCodesTally(): Promise<ExpectedCodesTally>;
+
+  /**
+   * Journaled reads in scan order, including ones from earlier app runs (Android only).
+   */
+  queryScanJournal(options?: QueryScanJournalOptions): Promise<QueryScanJournalResult>;
+
+  /**
+   * Streams the journal, or one session of it, to a CSV or JSON-lines file in app storage, optionally gzipped,
+   * with `scanExportProgress` events on the way. Memory use does not grow with the session (Android only).
+   */
+  exportScanSession(options?: ExportScanSessionOptions): Promise<ExportScanSessionResult>;
+
+  /**
+   * Deletes every journaled read (Android only).
+   */
+  truncateScanJournal(): Promise<void>;
+
+  /**
+   * Drops the loaded list and its tallies (Android only).
+   */
+  clearExpectedCodes(): Promise<void>;
+
+  /**
+   * Writes the frames kept by `diagnosticFrames` to app storage and returns the file (Android only).
+   * After `stopScan` it returns the last file written.
+   */
+  exportDiagnosticFrames(): Promise<DiagnosticFramesResult>;
+
   readBarcodesFromImage(options: ReadBarcodesFromImageOptions): Promise<ReadBarcodesFromImageResult>;
 
   scan(options?: ScanOptions): Promise<ScanResult>;
@@ -38,6 +87,40 @@ export interface QrCodeScannerPlugin {
 
   addListener(eventName: 'scanError', listenerFunc: (event: ScanErrorEvent) => void): Promise<PluginListenerHandle>;
 
+  /**
+   * Frames were dumped automatically after a long run of undecoded frames (Android only).
+   */
+  addListener(
+    eventName: 'diagnosticFramesSaved',
+    listenerFunc: (event: DiagnosticFramesResult) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * A new part of a multi-symbol payload was scanned; needs `assembleParts` (Android only).
+   */
+  addListener(
+    eventName: 'multipartProgress',
+    listenerFunc: (event: MultipartProgressEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * All parts of a multi-symbol payload were scanned; needs `assembleParts` (Android only).
+   */
+  addListener(
+    eventName: 'multipartScanned',
+    listenerFunc: (event: MultipartScannedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Startup phase times of the current scan, sent once with its first decode (Android only).
+   */
+  addListener(eventName: 'scanTimings', listenerFunc: (event: ScanTimingsEvent) => void): Promise<PluginListenerHandle>;
+
+  addListener(
+    eventName: 'scanExportProgress',
+    listenerFunc: (event: ScanExportProgressEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
   addListener(
     eventName: 'googleBarcodeScannerModuleInstallProgress',
     listenerFunc: (event: GoogleBarcodeScannerModuleInstallProgressEvent) => void,
@@ -53,6 +136,105 @@ export interface StartScanOptions {
   formats?: BarcodeFormat[];
   lensFacing?: LensFacing;
   resolution?: Resolution;
+  /**
+   * `LOW_POWER` idles at 640x480 and a low analysis rate until motion or a barcode candidate is seen (Android only).
+   */
+  powerMode?: PowerMode;
+  /**
+   * Quiet period in milliseconds before `LOW_POWER` falls back to idle. Default 4000.
+   */
+  idleTimeoutMs?: number;
+  /**
+   * Start analysis at 640x480 and step up towards `resolution` only while barcodes are detected but not decoded (Android only).
+   */
+  progressiveResolution?: boolean;
+  /**
+   * Point autofocus and exposure at barcodes that are detected but not yet decoded. Default `true` (Android only).
+   */
+  regionFocus?: boolean;
+  /**
+   * Keep the luminance of the last N analyzed frames (max 30) for `exportDiagnosticFrames`. Default 0, off (Android only).
+   */
+  diagnosticFrames?: number;
+  /**
+   * Decoder engine for the live scan. Default `MLKIT` (Android only).
+   */
+  decoder?: DecoderEngine;
+  /**
+   * Skip frames that show the same scene as the last frame that decoded nothing, re-checking every 2 s; skips show
+   * up as `framesDropped.STATIC`. For fixed-mount scanners over an empty counter: a code that appears while the rest
+   * of the view is still may wait up to 2 s. Default `false` (Android only).
+   */
+  staticSceneSkip?: boolean;
+  /**
+   * Skip motion-blurred frames instead of decoding them; skips show up as `framesDropped.BLURRY`.
+   * Default `true` (Android only).
+   */
+  sharpnessGate?: boolean;
+  /**
+   * When several frames in a row fail to decode, average a few aligned consecutive frames into one less noisy
+   * image and decode that. Helps in low light. Default `false` (Android only).
+   */
+  frameFusion?: boolean;
+  /**
+   * After a decode, search only a crop around where the code should be in the next frames, with a full-frame search
+   * every 5th frame and whenever the code is lost. Lowers latency on conveyors. Default `false` (Android only).
+   */
+  regionTracking?: boolean;
+  /**
+   * Join payloads split across several symbols natively: QR structured append (ZXing engine only) and headers
+   * like `2/5:`, `part 2 of 5|` or `2/5#DOC-ID:`. Parts are reported as `multipartProgress` and
+   * `multipartScanned` instead of `barcodesScanned`; sets idle for 10 s are dropped. Default `false` (Android only).
+   */
+  assembleParts?: boolean;
+  /**
+   * Follow the device's thermal status (Android 10+): step analysis resolution and rate down and pause the scan
+   * line as it heats up, and back after it has stayed cooler for 20 s. Default `true` (Android only).
+   */
+  thermalThrottling?: boolean;
+  /**
+   * Camera capture settings for the session. `BARCODE` keeps the frame rate high and fixed (short exposure, less
+   * motion blur) and uses fast noise reduction and edge modes, as far as the camera supports them. If the camera
+   * reports a stream configuration error or sends no frame within 4 s, the session rebinds once with its defaults.
+   * Default `DEFAULT` (Android only).
+   */
+  captureProfile?: CaptureProfile;
+  /**
+   * Preview surface. `PERFORMANCE` uses a SurfaceView, which saves a GPU composition pass per preview frame; the
+   * `pauseScan` freeze frame is then taken from the analysis stream. Default `COMPATIBLE` (Android only).
+   */
+  previewMode?: PreviewMode;
+  /**
+   * Start at the zoom ratio last set on this camera, also in an earlier app session. Zoom bounds, torch availability
+   * and the last zoom are cached per device and camera, and dropped when the OS or the app is updated.
+   * Default `false` (Android only).
+   */
+  restoreZoom?: boolean;
+  /**
+   * Only report reads that match one of these filters. Rejected reads never reach JS and do not start the
+   * post-scan cooldown. With `assembleParts`, filters see each symbol as scanned, header included (Android only).
+   */
+  payloadFilters?: PayloadFilter[];
+  /**
+   * Also write every reported read to a native journal that survives WebView reloads and the app being killed.
+   * Reads are committed in batches, at most 0.5 s after they are reported. Default `false` (Android only).
+   */
+  journal?: boolean;
+  /**
+   * Session the journaled reads belong to. Defaults to a new random ID, sent with each `barcodesScanned` event
+   * (Android only).
+   */
+  journalSessionId?: string;
+  /**
+   * Linux nice values (-8 to 19) for the scanner's threads. Defaults: analysis -1, decode 0, background 10
+   * (Android only).
+   */
+  threadPriorities?: Partial<Record<ScanThreadRole, number>>;
+  /**
+   * After this many undecoded frames in a row, run both engines on each frame and take the first decode.
+   * Default 0, off (Android only).
+   */
+  raceAfterMisses?: number;
   enableMultitaskingCameraAccess?: boolean;
   videoElement?: HTMLVideoElement;
 }
@@ -60,6 +242,10 @@ export interface StartScanOptions {
 export interface ReadBarcodesFromImageOptions {
   formats?: BarcodeFormat[];
   path: string;
+  /**
+   * Decoder engine for this image. Default `MLKIT` (Android only).
+   */
+  decoder?: DecoderEngine;
 }
 
 export interface ScanOptions {
@@ -78,6 +264,275 @@ export interface ScanResult {
   barcodes: Barcode[];
 }
 
+/**
+ * A read passes if every condition that is set holds. The payload is the raw value, or the display value if there
+ * is none.
+ */
+export interface PayloadFilter {
+  /**
+   * The payload starts with this, or with one of these.
+   */
+  prefix?: string | string[];
+  /**
+   * Java regular expression, searched anywhere in the payload; anchor it with `^` and `$` for a full match.
+   * An invalid pattern makes `startScan` reject.
+   */
+  pattern?: string;
+  minLength?: number;
+  maxLength?: number;
+  /**
+   * The payload is a GTIN-8/12/13/14 or SSCC, or a GS1 element string starting with AI (01) or (00), and its
+   * check digit is valid.
+   */
+  gs1CheckDigit?: boolean;
+  valueTypes?: BarcodeValueType[];
+}
+
+/**
+ * Ms from the `startScan` call to each phase; phases not reached are missing.
+ */
+export type ScanTimingPhases = Partial<Record<StartupPhase, number>>;
+
+export interface ScanJournalRecord {
+  /**
+   * Ms since the epoch.
+   */
+  timestamp: number;
+  sessionId: string;
+  format: BarcodeFormat;
+  /**
+   * Raw value, or the display value if there is none.
+   */
+  payload: string;
+}
+
+export interface QueryScanJournalOptions {
+  sessionId?: string;
+  /**
+   * Only records at or after this time, in ms since the epoch.
+   */
+  sinceMs?: number;
+  /**
+   * Where to continue: the `cursor` of the previous page. The scan starts at that point in the file instead of
+   * its start. Omit for the first page; not valid across `truncateScanJournal`.
+   */
+  cursor?: number;
+  /**
+   * Default 500, at most 5000.
+   */
+  limit?: number;
+}
+
+export interface QueryScanJournalResult {
+  records: ScanJournalRecord[];
+  hasMore: boolean;
+  /**
+   * Pass as `cursor` for the next page. Past the last record returned, and past any non-matching records read
+   * after it. Polling with it later returns only newer records.
+   */
+  cursor: number;
+}
+
+export enum ScanExportFormat {
+  Csv = 'CSV',
+  JsonLines = 'JSONL',
+}
+
+export interface ExportScanSessionOptions {
+  /**
+   * Session to export; all journaled reads if omitted.
+   */
+  sessionId?: string;
+  /**
+   * Default `JSONL`.
+   */
+  format?: ScanExportFormat;
+  /**
+   * Gzip the file. Default `false`.
+   */
+  compress?: boolean;
+}
+
+export interface ExportScanSessionResult {
+  /**
+   * Absolute path of the written file, ready to share.
+   */
+  path: string;
+  records: number;
+  bytes: number;
+}
+
+export interface ScanExportProgressEvent {
+  records: number;
+  /**
+   * Share of the journal read so far, 0 to 1.
+   */
+  progress: number;
+}
+
+export interface LoadExpectedCodesOptions {
+  /**
+   * File path or `file://` / `content://` URI. Codes must match the scanned payload exactly.
+   */
+  path: string;
+}
+
+export interface LoadExpectedCodesResult {
+  /**
+   * Distinct codes indexed.
+   */
+  count: number;
+  /**
+   * Lines repeating an earlier code.
+   */
+  duplicates: number;
+  loadMs: number;
+}
+
+export interface ExpectedCodesTally {
+  total: number;
+  /**
+   * Distinct expected codes read so far.
+   */
+  found: number;
+  remaining: number;
+  /**
+   * Distinct codes read that are not in the list.
+   */
+  unexpected: number;
+  /**
+   * Repeat reads of a code already counted.
+   */
+  alreadySeen: number;
+}
+
+export enum ExpectedCodeStatus {
+  Expected = 'EXPECTED',
+  Unexpected = 'UNEXPECTED',
+  AlreadySeen = 'ALREADY_SEEN',
+}
+
+export interface ScanTimingsEvent {
+  phases: ScanTimingPhases;
+}
+
+export interface ScanTimingStats {
+  count: number;
+  meanMs: number;
+  medianMs: number;
+  maxMs: number;
+}
+
+export interface ScanTimings {
+  /**
+   * Scans recorded since the plugin loaded.
+   */
+  sessions: number;
+  /**
+   * Number of recent scans the stats cover.
+   */
+  window: number;
+  last?: ScanTimingPhases;
+  phases: Partial<Record<StartupPhase, ScanTimingStats>>;
+}
+
+export interface ScanMetrics {
+  decoder: DecoderEngine;
+  /**
+   * Frames delivered by the camera, analyzed or not.
+   */
+  framesReceived: number;
+  framesAnalyzed: number;
+  /**
+   * Frames closed without decoding, by reason.
+   */
+  framesDropped: Record<FrameDropReason, number>;
+  decodeSuccesses: number;
+  decodeMisses: number;
+  decodeErrors: number;
+  /**
+   * Reads that passed `payloadFilters`, and reads dropped by them.
+   */
+  readsAccepted: number;
+  readsRejected: number;
+  powerEscalations: number;
+  powerDeescalations: number;
+  powerState: PowerState;
+  resolutionEscalations: number;
+  resolutionRelaxations: number;
+  /**
+   * Resolution currently bound for analysis, `-1` before the camera is bound.
+   */
+  analysisResolution: Resolution | -1;
+  /**
+   * Thermal tier in effect, and how often it changed. Stays `NOMINAL` below Android 10.
+   */
+  thermalTier: ThermalTier;
+  thermalTierChanges: number;
+  /**
+   * Capture profile in effect; `DEFAULT` if `BARCODE` was asked for but fell back.
+   */
+  captureProfile: CaptureProfile;
+  captureProfileFallbacks: number;
+  focusRequests: number;
+  focusCancels: number;
+  /**
+   * Blind zoom-in steps taken while nothing was detected.
+   */
+  autoZoomSteps: number;
+  autoZoomIns: number;
+  autoZoomOuts: number;
+  /**
+   * Times the zoom was restored after a decode.
+   */
+  autoZoomResets: number;
+  diagnosticDumps: number;
+  /**
+   * Frames the `diagnosticFrames` ring holds; fewer than asked for when they would not fit its memory budget
+   * (an eighth of the heap, at most 32 MB). 0 when off.
+   */
+  diagnosticFrameCapacity: number;
+  /**
+   * Fused images sent to the decoder, and how many of them decoded.
+   */
+  framesFused: number;
+  fusedDecodes: number;
+  /**
+   * Frames decoded as a crop around the tracked code, how many of those decoded, and how often the track was lost.
+   */
+  trackedDecodes: number;
+  trackedHits: number;
+  trackingLost: number;
+  /**
+   * New parts of multi-symbol payloads, sets completed, and sets dropped incomplete.
+   */
+  partsCollected: number;
+  partsAssembled: number;
+  partSetsEvicted: number;
+  races: number;
+  /**
+   * Races where neither engine decoded.
+   */
+  racesUndecided: number;
+  /**
+   * CPU time spent on the scanner's own threads, and tasks run there. ML Kit's internal threads are not included.
+   */
+  threadCpuMs: Record<ScanThreadRole, number>;
+  threadTasks: Record<ScanThreadRole, number>;
+  raceWins: Partial<Record<DecoderEngine, number>>;
+  raceLosses: Partial<Record<DecoderEngine, number>>;
+}
+
+export interface DiagnosticFramesResult {
+  /**
+   * Absolute path of the frame recording in app storage.
+   */
+  path: string;
+  frames: number;
+}
+
+export type FrameDropReason = 'PAUSED' | 'COOLDOWN' | 'THROTTLED' | 'BUSY' | 'IDLE' | 'BLURRY' | 'STATIC';
+
 export interface IsSupportedResult {
   supported: boolean;
 }
@@ -100,10 +555,20 @@ export interface GetZoomRatioResult {
 
 export interface GetMinZoomRatioResult {
   zoomRatio: number;
+  /**
+   * False while the bounds are unknown and `zoomRatio` is a placeholder. Bounds cached from an earlier session
+   * count as known (Android only).
+   */
+  ready?: boolean;
 }
 
 export interface GetMaxZoomRatioResult {
   zoomRatio: number;
+  /**
+   * False while the bounds are unknown and `zoomRatio` is a placeholder. Bounds cached from an earlier session
+   * count as known (Android only).
+   */
+  ready?: boolean;
 }
 
 export interface IsGoogleBarcodeScannerModuleAvailableResult {
@@ -124,6 +589,34 @@ export interface PermissionStatus {
  */
 export interface BarcodesScannedEvent {
   barcodes: Barcode[];
+  /**
+   * Set while `journal` is on.
+   */
+  journalSessionId?: string;
+}
+
+export interface MultipartProgressEvent {
+  /**
+   * Identifies the set: the header id and part count, or the structured-append parity and count.
+   */
+  id: string;
+  total: number;
+  received: number;
+  /**
+   * 1-based numbers of the parts not scanned yet.
+   */
+  missing: number[];
+}
+
+export interface MultipartScannedEvent {
+  id: string;
+  total: number;
+  received: number;
+  /**
+   * The parts joined in order, headers removed.
+   */
+  rawValue: string;
+  format: BarcodeFormat;
 }
 
 export interface ScanErrorEvent {
@@ -151,6 +644,11 @@ export interface Barcode {
   driverLicense?: BarcodeDriverLicense;
   email?: BarcodeEmail;
 
+  /**
+   * Set on live reads while expected codes are loaded (Android only).
+   */
+  expectation?: ExpectedCodeStatus;
+
   format: BarcodeFormat;
 
   geoPoint?: BarcodeGeoPoint;
@@ -293,6 +791,102 @@ export enum Resolution {
   '3840x2160' = 3,
 }
 
+export enum PowerMode {
+  Normal = 'NORMAL',
+  LowPower = 'LOW_POWER',
+}
+
+export enum PowerState {
+  Active = 'ACTIVE',
+  Idle = 'IDLE',
+}
+
+export enum StartupPhase {
+  /**
+   * Camera container and scan line attached.
+   */
+  UiReady = 'UI_READY',
+  CameraProvider = 'CAMERA_PROVIDER',
+  /**
+   * Preview and analysis bound to the camera.
+   */
+  CameraBound = 'CAMERA_BOUND',
+  FirstPreviewFrame = 'FIRST_PREVIEW_FRAME',
+  /**
+   * First frame past the frame gates, handed to the decoder.
+   */
+  FirstAnalyzedFrame = 'FIRST_ANALYZED_FRAME',
+  /**
+   * First decoder completion, whether it decoded or not.
+   */
+  FirstDecoderResult = 'FIRST_DECODER_RESULT',
+  FirstDecode = 'FIRST_DECODE',
+}
+
+export enum ScanThreadRole {
+  /**
+   * Camera frame callbacks: frame gating, preprocessing and ZXing decodes.
+   */
+  Analysis = 'ANALYSIS',
+  /**
+   * Extra decoder lanes used for racing.
+   */
+  Decode = 'DECODE',
+  /**
+   * Diagnostics dumps and other file I/O.
+   */
+  Background = 'BACKGROUND',
+}
+
+export enum PreviewMode {
+  /**
+   * TextureView preview.
+   */
+  Compatible = 'COMPATIBLE',
+  /**
+   * SurfaceView preview where the device supports it.
+   */
+  Performance = 'PERFORMANCE',
+}
+
+export enum CaptureProfile {
+  /**
+   * The camera's own capture settings.
+   */
+  Default = 'DEFAULT',
+  /**
+   * High fixed frame rate and fast noise reduction and edge modes.
+   */
+  Barcode = 'BARCODE',
+}
+
+export enum ThermalTier {
+  Nominal = 'NOMINAL',
+  /**
+   * Thermal status moderate: analysis capped at 1280x720 and ~8 fps.
+   */
+  Warm = 'WARM',
+  /**
+   * Thermal status severe: 640x480, ~5 fps, scan line paused.
+   */
+  Hot = 'HOT',
+  /**
+   * Thermal status critical or worse: 640x480, ~2.5 fps, scan line paused.
+   */
+  Critical = 'CRITICAL',
+}
+
+export enum DecoderEngine {
+  /**
+   * ML Kit. Also reports codes it detects but cannot decode, which drive region focus and auto-zoom.
+   */
+  MlKit = 'MLKIT',
+  /**
+   * ZXing. Pure Java: no Google Play Services, no model download. QR codes only.
+   */
+  ZXing = 'ZXING',
+}
+
 export enum LensFacing {
   Front = 'FRONT',
   Back = 'BACK',
@@ -16,6 +16,16 @@ import type {
   GetMaxZoomRatioResult,
   IsGoogleBarcodeScannerModuleAvailableResult,
   StartScanOptions,
+  ScanMetrics,
+  ScanTimings,
+  LoadExpectedCodesOptions,
+  LoadExpectedCodesResult,
+  ExpectedCodesTally,
+  QueryScanJournalOptions,
+  QueryScanJournalResult,
+  ExportScanSessionOptions,
+  ExportScanSessionResult,
+  DiagnosticFramesResult,
 } from './definitions';
 
 export class QrCodeScannerWeb extends WebPlugin implements QrCodeScannerPlugin {
@@ -35,6 +45,42 @@ export class QrCodeScannerWeb extends WebPlugin implements QrCodeScannerPlugin {
     // no-op
   }
 
+  async getScanMetrics(): Promise<ScanMetrics> {
+    throw this.unavailable('getScanMetrics not supported on web');
+  }
+
+  async getScanTimings(): Promise<ScanTimings> {
+    throw this.unavailable('getScanTimings not supported on web');
+  }
+
+  async loadExpectedCodes(_options: LoadExpectedCodesOptions): Promise<LoadExpectedCodesResult> {
+    throw this.unavailable('loadExpectedCodes not supported on web');
+  }
+
+  async getExpectedCodesTally(): Promise<ExpectedCodesTally> {
+    throw this.unavailable('getExpectedCodesTally not supported on web');
+  }
+
+  async clearExpectedCodes(): Promise<void> {
+    throw this.unavailable('clearExpectedCodes not supported on web');
+  }
+
+  async queryScanJournal(_options?: QueryScanJournalOptions): Promise<QueryScanJournalResult> {
+    throw this.unavailable('queryScanJournal not supported on web');
+  }
+
+  async exportScanSession(_options?: ExportScanSessionOptions): Promise<ExportScanSessionResult> {
+    throw this.unavailable('exportScanSession not supported on web');
+  }
+
+  async truncateScanJournal(): Promise<void> {
+    throw this.unavailable('truncateScanJournal not supported on web');
+  }
+
+  async exportDiagnosticFrames(): Promise<DiagnosticFramesResult> {
+    throw this.unavailable('exportDiagnosticFrames not supported on web');
+  }
+
   async readBarcodesFromImage(_options: ReadBarcodesFromImageOptions): Promise<ReadBarcodesFromImageResult> {
     throw this.unavailable('readBarcodesFromImage not supported on web');
   }